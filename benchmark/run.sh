@@ -0,0 +1,41 @@
+#!/bin/sh
+# Builds the project and benchmarks with javac and runs JMH. Arguments are passed to JMH, for
+# example: ./run.sh DynamicHashFileBenchmark.find -p recordsCount=100000
+set -e
+
+JMH_VERSION=1.37
+MAVEN_REPOSITORY=https://repo1.maven.org/maven2
+BENCHMARK_DIRECTORY=$(cd "$(dirname "$0")" && pwd)
+LIB=$BENCHMARK_DIRECTORY/lib
+BUILD=$BENCHMARK_DIRECTORY/build
+
+download() {
+  if [ ! -f "$LIB/$(basename "$1")" ]; then
+    curl -sSf -o "$LIB/$(basename "$1")" "$MAVEN_REPOSITORY/$1"
+  fi
+}
+
+mkdir -p "$LIB"
+download org/openjdk/jmh/jmh-core/$JMH_VERSION/jmh-core-$JMH_VERSION.jar
+download \
+  org/openjdk/jmh/jmh-generator-annprocess/$JMH_VERSION/jmh-generator-annprocess-$JMH_VERSION.jar
+download net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar
+download org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar
+
+JMH_CLASSPATH=$LIB/jmh-core-$JMH_VERSION.jar:$LIB/jopt-simple-5.0.4.jar:$LIB/commons-math3-3.6.1.jar
+
+rm -rf "$BUILD"
+mkdir -p "$BUILD/project" "$BUILD/benchmark"
+
+# tests of the project are not needed
+find "$BENCHMARK_DIRECTORY/../src" -name '*.java' -not -path '*/src/test/*' \
+  > "$BUILD/project-sources"
+javac -encoding UTF-8 -nowarn -d "$BUILD/project" @"$BUILD/project-sources"
+
+find "$BENCHMARK_DIRECTORY/src" -name '*.java' > "$BUILD/benchmark-sources"
+javac -encoding UTF-8 -nowarn \
+  -cp "$BUILD/project:$JMH_CLASSPATH" \
+  -processorpath "$LIB/jmh-generator-annprocess-$JMH_VERSION.jar:$JMH_CLASSPATH" \
+  -d "$BUILD/benchmark" @"$BUILD/benchmark-sources"
+
+java -cp "$BUILD/benchmark:$BUILD/project:$JMH_CLASSPATH" org.openjdk.jmh.Main "$@"
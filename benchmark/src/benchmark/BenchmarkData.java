@@ -0,0 +1,82 @@
+package benchmark;
+
+import entity.Parcel;
+import entity.ParcelForQuadTree;
+import entity.shape.Direction;
+import entity.shape.GpsCoordinates;
+import entity.shape.Rectangle;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/** Generated data of benchmarks. Every generator gets its seed, so runs use the same data. */
+final class BenchmarkData {
+  static final long SEED = 42;
+  // area of generated shapes, the same as default area of application
+  static final Rectangle AREA =
+      new Rectangle(
+          new GpsCoordinates(Direction.S, 0, Direction.W, 0),
+          new GpsCoordinates(Direction.S, 100, Direction.W, 100));
+
+  private BenchmarkData() {}
+
+  /** Parcels with identification numbers from the first one, in random order. */
+  static List<Parcel> createParcels(int firstIdentificationNumber, int count, Random random) {
+    List<Parcel> parcels = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      int identificationNumber = firstIdentificationNumber + i;
+      parcels.add(
+          new Parcel(
+              identificationNumber, String.valueOf(identificationNumber), createShape(random)));
+    }
+    Collections.shuffle(parcels, random);
+
+    return parcels;
+  }
+
+  static List<ParcelForQuadTree> createQuadTreeParcels(
+      int firstIdentificationNumber, int count, Random random) {
+    List<ParcelForQuadTree> parcels = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      parcels.add(new ParcelForQuadTree(firstIdentificationNumber + i, createShape(random)));
+    }
+
+    return parcels;
+  }
+
+  /** Small rectangle inside of area. */
+  static Rectangle createShape(Random random) {
+    return createShape(random, 1);
+  }
+
+  static Rectangle createShape(Random random, double maxSize) {
+    double width = random.nextDouble(100 - maxSize);
+    double length = random.nextDouble(100 - maxSize);
+
+    return new Rectangle(
+        new GpsCoordinates(Direction.S, width, Direction.W, length),
+        new GpsCoordinates(
+            Direction.S,
+            width + random.nextDouble(maxSize),
+            Direction.W,
+            length + random.nextDouble(maxSize)));
+  }
+
+  static Path createDirectory() throws IOException {
+    return Files.createTempDirectory("dynamic-hash-file-benchmark");
+  }
+
+  static void deleteDirectory(Path directory) throws IOException {
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+}
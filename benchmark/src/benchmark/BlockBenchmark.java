@@ -0,0 +1,73 @@
+package benchmark;
+
+import entity.Parcel;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import structure.dynamichashfile.entity.Block;
+
+/** Conversion of full block of parcels to bytes and back. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BlockBenchmark {
+  @Param({"5", "20"})
+  int blockingFactor;
+
+  Block<Parcel> block;
+  Block<Parcel> readBlock;
+  byte[] blockBytes;
+  ByteBuffer buffer;
+
+  @Setup(Level.Trial)
+  public void createBlock() {
+    block = new Block<>(blockingFactor, Parcel.class);
+    BenchmarkData.createParcels(0, blockingFactor, new Random(BenchmarkData.SEED))
+        .forEach(block::addRecord);
+
+    readBlock = new Block<>(blockingFactor, Parcel.class);
+    blockBytes = block.toByteArray();
+    buffer = ByteBuffer.allocate(block.getByteSize());
+    block.writeTo(buffer);
+  }
+
+  @Benchmark
+  public byte[] toByteArray() {
+    return block.toByteArray();
+  }
+
+  @Benchmark
+  public Block<Parcel> fromByteArray() {
+    readBlock.fromByteArray(blockBytes);
+    return readBlock;
+  }
+
+  /** Path used by FileBlockManager, buffer of block is reused. */
+  @Benchmark
+  public ByteBuffer writeTo() {
+    buffer.clear();
+    block.writeTo(buffer);
+    return buffer;
+  }
+
+  @Benchmark
+  public Block<Parcel> readFrom() {
+    readBlock.readFrom(buffer, 0);
+    return readBlock;
+  }
+}
@@ -0,0 +1,156 @@
+package benchmark;
+
+import entity.Parcel;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import structure.dynamichashfile.DynamicHashFile;
+
+/**
+ * Operations of DynamicHashFile with parcels. Inserted record is deleted and deleted record is
+ * inserted back outside of measured time, so count of records stays the same.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicHashFileBenchmark {
+  @State(Scope.Benchmark)
+  public static class FileState {
+    @Param({"10000", "100000"})
+    int recordsCount;
+
+    @Param({"5", "20"})
+    int blockingFactor;
+
+    @Param({"5"})
+    int overflowBlockingFactor;
+
+    Path directory;
+    DynamicHashFile<Parcel> dynamicHashFile;
+    List<Parcel> insertedParcels;
+    Random random;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+      random = new Random(BenchmarkData.SEED);
+      directory = BenchmarkData.createDirectory();
+      dynamicHashFile =
+          new DynamicHashFile<>(
+              directory.resolve("main.sz").toString(),
+              directory.resolve("overflow.sz").toString(),
+              blockingFactor,
+              overflowBlockingFactor,
+              Parcel.class);
+
+      insertedParcels = BenchmarkData.createParcels(0, recordsCount, random);
+      dynamicHashFile.insertAll(insertedParcels);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFile() throws IOException {
+      dynamicHashFile.close();
+      BenchmarkData.deleteDirectory(directory);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FindState {
+    // part of searched records, which are in the file
+    @Param({"1.0", "0.5"})
+    double hitRatio;
+
+    Parcel[] parcelsToFind;
+    int index;
+
+    @Setup(Level.Trial)
+    public void createParcelsToFind(FileState fileState) {
+      Random random = new Random(BenchmarkData.SEED);
+      List<Parcel> missingParcels =
+          BenchmarkData.createParcels(fileState.recordsCount, fileState.recordsCount, random);
+
+      parcelsToFind = new Parcel[1 << 16];
+      for (int i = 0; i < parcelsToFind.length; i++) {
+        List<Parcel> parcels =
+            random.nextDouble() < hitRatio ? fileState.insertedParcels : missingParcels;
+        parcelsToFind[i] = parcels.get(random.nextInt(parcels.size()));
+      }
+    }
+
+    Parcel next() {
+      return parcelsToFind[index++ & (parcelsToFind.length - 1)];
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class InsertState {
+    Parcel parcelToInsert;
+    int nextIdentificationNumber;
+
+    @Setup(Level.Trial)
+    public void setUp(FileState fileState) {
+      nextIdentificationNumber = 2 * fileState.recordsCount;
+    }
+
+    @Setup(Level.Invocation)
+    public void createParcel(FileState fileState) {
+      parcelToInsert =
+          new Parcel(
+              nextIdentificationNumber,
+              String.valueOf(nextIdentificationNumber++),
+              BenchmarkData.createShape(fileState.random));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteParcel(FileState fileState) throws IOException {
+      fileState.dynamicHashFile.delete(parcelToInsert);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class DeleteState {
+    Parcel parcelToDelete;
+
+    @Setup(Level.Invocation)
+    public void chooseParcel(FileState fileState) {
+      List<Parcel> insertedParcels = fileState.insertedParcels;
+      parcelToDelete = insertedParcels.get(fileState.random.nextInt(insertedParcels.size()));
+    }
+
+    @TearDown(Level.Invocation)
+    public void insertParcel(FileState fileState) {
+      fileState.dynamicHashFile.insert(parcelToDelete);
+    }
+  }
+
+  @Benchmark
+  public Object find(FileState fileState, FindState findState) {
+    return fileState.dynamicHashFile.findOptional(findState.next());
+  }
+
+  @Benchmark
+  public void insert(FileState fileState, InsertState insertState) {
+    fileState.dynamicHashFile.insert(insertState.parcelToInsert);
+  }
+
+  @Benchmark
+  public void delete(FileState fileState, DeleteState deleteState) throws IOException {
+    fileState.dynamicHashFile.delete(deleteState.parcelToDelete);
+  }
+}
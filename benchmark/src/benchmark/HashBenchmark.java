@@ -0,0 +1,47 @@
+package benchmark;
+
+import entity.Parcel;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Hash of SpatialData as BitSet and as bits used by DynamicHashFile. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HashBenchmark {
+  Parcel[] parcels;
+  int index;
+
+  @Setup(Level.Trial)
+  public void createParcels() {
+    List<Parcel> createdParcels =
+        BenchmarkData.createParcels(0, 1 << 12, new Random(BenchmarkData.SEED));
+    parcels = createdParcels.toArray(new Parcel[0]);
+  }
+
+  @Benchmark
+  public BitSet hash() {
+    return parcels[index++ & (parcels.length - 1)].hash();
+  }
+
+  @Benchmark
+  public long hashBits() {
+    return parcels[index++ & (parcels.length - 1)].hashBits();
+  }
+}
@@ -0,0 +1,104 @@
+package benchmark;
+
+import entity.ParcelForQuadTree;
+import entity.shape.Rectangle;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import structure.quadtree.QuadTree;
+
+/** Insert and search of QuadTree with parcels, inserted parcel is deleted after measurement. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadTreeBenchmark {
+  // one tree for helper methods of other states too, which insert and delete parcels
+  @State(Scope.Benchmark)
+  public static class TreeState {
+    @Param({"10000", "100000"})
+    int itemsCount;
+
+    @Param({"10", "20"})
+    int maxHeight;
+
+    QuadTree<ParcelForQuadTree> quadTree;
+    Random random;
+
+    @Setup(Level.Trial)
+    public void createQuadTree() {
+      random = new Random(BenchmarkData.SEED);
+      quadTree = new QuadTree<>(maxHeight, BenchmarkData.AREA);
+      BenchmarkData.createQuadTreeParcels(0, itemsCount, random).forEach(quadTree::insert);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class SearchState {
+    // max width and length of searched area
+    @Param({"1", "10"})
+    double searchedAreaSize;
+
+    Rectangle[] searchedAreas;
+    int index;
+
+    @Setup(Level.Trial)
+    public void createSearchedAreas(TreeState treeState) {
+      searchedAreas = new Rectangle[1 << 12];
+      for (int i = 0; i < searchedAreas.length; i++) {
+        searchedAreas[i] = BenchmarkData.createShape(treeState.random, searchedAreaSize);
+      }
+    }
+
+    Rectangle next() {
+      return searchedAreas[index++ & (searchedAreas.length - 1)];
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class InsertState {
+    ParcelForQuadTree parcelToInsert;
+    int nextIdentificationNumber;
+
+    @Setup(Level.Trial)
+    public void setUp(TreeState treeState) {
+      nextIdentificationNumber = treeState.itemsCount;
+    }
+
+    @Setup(Level.Invocation)
+    public void createParcel(TreeState treeState) {
+      parcelToInsert =
+          new ParcelForQuadTree(
+              nextIdentificationNumber++, BenchmarkData.createShape(treeState.random));
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteParcel(TreeState treeState) {
+      treeState.quadTree.deleteData(parcelToInsert);
+    }
+  }
+
+  @Benchmark
+  public void insert(TreeState treeState, InsertState insertState) {
+    treeState.quadTree.insert(insertState.parcelToInsert);
+  }
+
+  @Benchmark
+  public List<ParcelForQuadTree> search(TreeState treeState, SearchState searchState) {
+    return treeState.quadTree.search(searchState.next());
+  }
+}
@@ -0,0 +1,89 @@
+package benchmark;
+
+import entity.Parcel;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import structure.dynamichashfile.DynamicHashFile;
+import structure.dynamichashfile.DynamicHashFileConfiguration;
+import structure.dynamichashfile.hash.MixedHashStrategy;
+import structure.dynamichashfile.trie.TrieNode;
+import util.file.IFileBuilder;
+import util.file.dynamichashfile.BinaryBuilderTrie;
+import util.file.dynamichashfile.TextBuilderTrie;
+
+/** Save and load of trie of DynamicHashFile in text format and in binary format. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TrieFileBenchmark {
+  // records of file, which trie is saved
+  @Param({"10000", "100000"})
+  int recordsCount;
+
+  @Param({"TEXT", "BINARY"})
+  String format;
+
+  Path directory;
+  String pathToTrie;
+  List<TrieNode> trieNodes;
+  IFileBuilder<TrieNode> fileBuilder;
+
+  @Setup(Level.Trial)
+  public void createTrie() throws IOException {
+    directory = BenchmarkData.createDirectory();
+    pathToTrie = directory.resolve("trie").toString();
+
+    // hash of parcel has only 12 bits, mixed hash lets trie grow with count of records
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            directory.resolve("main.sz").toString(),
+            directory.resolve("overflow.sz").toString(),
+            5,
+            5,
+            Parcel.class,
+            new DynamicHashFileConfiguration().setHashStrategy(new MixedHashStrategy(32)))) {
+      dynamicHashFile.insertAll(
+          BenchmarkData.createParcels(0, recordsCount, new Random(BenchmarkData.SEED)));
+      trieNodes = dynamicHashFile.getTrieNodes();
+    }
+
+    fileBuilder = format.equals("TEXT") ? new TextBuilderTrie<>() : new BinaryBuilderTrie();
+    fileBuilder.saveToFile(pathToTrie, trieNodes);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteTrie() throws IOException {
+    BenchmarkData.deleteDirectory(directory);
+  }
+
+  @Benchmark
+  public void save() throws IOException {
+    fileBuilder.saveToFile(pathToTrie, trieNodes);
+  }
+
+  @Benchmark
+  public List<TrieNode> load() throws IOException {
+    fileBuilder.clearLoadedData();
+    fileBuilder.loadFromFile(pathToTrie);
+    return fileBuilder.getLoadedData();
+  }
+}
@@ -0,0 +1,109 @@
+package benchmark;
+
+import entity.Parcel;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import structure.dynamichashfile.DynamicHashFile;
+import structure.dynamichashfile.DynamicHashFileConfiguration;
+import structure.dynamichashfile.entity.record.Record;
+import structure.dynamichashfile.hash.MixedHashStrategy;
+import structure.dynamichashfile.trie.CompactTrie;
+import structure.dynamichashfile.trie.InnerTrieNode;
+import structure.dynamichashfile.trie.TrieDirectory;
+import structure.dynamichashfile.trie.TrieNode;
+
+/**
+ * Search of leaf of hash by every index type of DynamicHashFile, without reading blocks. Trie is
+ * created by inserting records into file, searched hashes are hashes of its records.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TrieIndexBenchmark {
+  @Param({"10000", "100000"})
+  int recordsCount;
+
+  @Param({"TRIE", "DIRECTORY", "COMPACT_TRIE"})
+  String indexType;
+
+  InnerTrieNode root;
+  TrieDirectory directory;
+  CompactTrie compactTrie;
+  long[] hashes;
+  int index;
+
+  @Setup(Level.Trial)
+  public void createTrie() throws IOException {
+    Path directoryOfFiles = BenchmarkData.createDirectory();
+    MixedHashStrategy hashStrategy = new MixedHashStrategy(32);
+    List<Parcel> parcels =
+        BenchmarkData.createParcels(0, recordsCount, new Random(BenchmarkData.SEED));
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            directoryOfFiles.resolve("main.sz").toString(),
+            directoryOfFiles.resolve("overflow.sz").toString(),
+            5,
+            5,
+            Parcel.class,
+            new DynamicHashFileConfiguration().setHashStrategy(hashStrategy))) {
+      dynamicHashFile.insertAll(parcels);
+      root = (InnerTrieNode) dynamicHashFile.getTrieNodes().get(0);
+    } finally {
+      BenchmarkData.deleteDirectory(directoryOfFiles);
+    }
+
+    directory =
+        indexType.equals("DIRECTORY")
+            ? new TrieDirectory(root, DynamicHashFileConfiguration.DEFAULT_MAX_DIRECTORY_DEPTH)
+            : null;
+    compactTrie = indexType.equals("COMPACT_TRIE") ? new CompactTrie(root) : null;
+
+    hashes = new long[parcels.size()];
+    for (int i = 0; i < hashes.length; i++) {
+      hashes[i] = hashStrategy.hash(parcels.get(i));
+    }
+  }
+
+  @Benchmark
+  public TrieNode getLeaf() {
+    long hashBits = hashes[index];
+    index = (index + 1) % hashes.length;
+
+    if (compactTrie != null) {
+      return compactTrie.getLeaf(hashBits);
+    }
+
+    int depth = 0;
+    TrieNode node = root;
+    if (directory != null) {
+      depth = directory.getDepthOfNode(hashBits);
+      node = directory.getNode(hashBits);
+    }
+
+    while (node instanceof InnerTrieNode innerNode) {
+      node =
+          Record.isHashBitSet(hashBits, depth++) ? innerNode.getLeftSon() : innerNode.getRightSon();
+    }
+
+    return node;
+  }
+}
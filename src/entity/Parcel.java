@@ -4,8 +4,10 @@ import entity.shape.Direction;
 import entity.shape.GpsCoordinates;
 import entity.shape.Rectangle;
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
+import structure.dynamichashfile.constant.ElementByteSize;
 import structure.dynamichashfile.entity.LimitedString;
 import structure.dynamichashfile.entity.record.Record;
 import structure.quadtree.IShapeData;
@@ -123,6 +125,58 @@ public class Parcel extends SpatialData<Property> implements IShapeData {
     }
   }
 
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    buffer.putInt(SpatialDataType.PARCEL.ordinal());
+    buffer.putInt(getIdentificationNumber());
+    getDescription().writeTo(buffer);
+    getShapeOfData().writeTo(buffer);
+
+    buffer.putInt(getRelatedDataList().size());
+    for (SpatialData<?> spatialData : getRelatedDataList()) {
+      buffer.putInt(spatialData.getIdentificationNumber());
+    }
+
+    for (int i = 0; i < MAX_RELATED_PROPERTY_LIST_SIZE - getRelatedDataList().size(); i++) {
+      buffer.putInt(Integer.MIN_VALUE);
+    }
+  }
+
+  /** Offset points to the beginning of record - to the type written by writeTo. */
+  @Override
+  public void readFrom(ByteBuffer buffer, int offset) {
+    setMaximumDescriptionSize(MAX_DESCRIPTION_SIZE);
+    setMaximumRelatedDataListSize(MAX_RELATED_PROPERTY_LIST_SIZE);
+
+    int position = offset + ElementByteSize.intByteSize();
+
+    setIdentificationNumber(buffer.getInt(position));
+    position += ElementByteSize.intByteSize();
+
+    LimitedString description = new LimitedString();
+    description.readFrom(buffer, position);
+    setDescription(description);
+    position += getMaxDescriptionSize() + LimitedString.getStaticAttributesByteSize();
+
+    Rectangle shape = new Rectangle();
+    shape.readFrom(buffer, position);
+    setShape(shape);
+    position += Rectangle.getByteArraySize();
+
+    // list deserialization, zombie data after valid items are skipped
+    int numberOfRelatedData = buffer.getInt(position);
+    position += ElementByteSize.intByteSize();
+
+    List<Property> relatedDataList = new ArrayList<>(numberOfRelatedData);
+
+    for (int i = 0; i < numberOfRelatedData; i++) {
+      relatedDataList.add(new Property(buffer.getInt(position), -1, ""));
+      position += ElementByteSize.intByteSize();
+    }
+
+    setRelatedDataList(relatedDataList);
+  }
+
   @Override
   public void fromByteArray(byte[] byteArray) {
     try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArray);
@@ -3,6 +3,7 @@ package entity;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import structure.dynamichashfile.constant.ElementByteSize;
 import structure.dynamichashfile.entity.record.Record;
@@ -36,4 +37,17 @@ public class RecordDataFactory {
       throw new RuntimeException("Error during conversion from byte array.", e);
     }
   }
+
+  public static Record fromByteBuffer(ByteBuffer buffer, int offset) {
+    SpatialDataType className = SpatialDataType.values()[buffer.getInt(offset)];
+
+    Record record =
+        switch (className) {
+          case PROPERTY -> new Property();
+          case PARCEL -> new Parcel();
+        };
+
+    record.readFrom(buffer, offset);
+    return record;
+  }
 }
@@ -1,9 +1,10 @@
 package entity;
 
 import entity.shape.Rectangle;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
+import structure.dynamichashfile.constant.ElementByteSize;
 import structure.dynamichashfile.entity.LimitedString;
 import structure.dynamichashfile.entity.record.Record;
 import structure.quadtree.IShapeData;
@@ -190,15 +191,22 @@ public abstract class SpatialData<T extends SpatialData<?>> extends Record imple
   }
 
   @Override
-  public BitSet hash() {
-    BitSet bitSet = new BitSet(12);
-    char[] hash = Integer.toBinaryString(identificationNumber % 4096).toCharArray();
-    for (int i = 0; i < hash.length; i++) {
-      if (hash[i] == '1') {
-        bitSet.set(i);
-      }
-    }
-    return bitSet;
+  public long hashBits() {
+    // same bits as characters of Integer.toBinaryString(identificationNumber % 4096)
+    int hashedValue = identificationNumber % 4096;
+    return (Integer.reverse(hashedValue) >>> Integer.numberOfLeadingZeros(hashedValue))
+        & 0xFFFFFFFFL;
+  }
+
+  @Override
+  public long getHashKey() {
+    return identificationNumber;
+  }
+
+  @Override
+  public boolean hasSameKey(ByteBuffer buffer, int offset) {
+    // every spatial data starts with its type followed by identification number
+    return buffer.getInt(offset + ElementByteSize.intByteSize()) == identificationNumber;
   }
 
   @Override
@@ -12,6 +12,16 @@ public enum Direction {
     this.direction = direction;
   }
 
+  public static Direction fromChar(char direction) {
+    return switch (direction) {
+      case 'N' -> N;
+      case 'S' -> S;
+      case 'W' -> W;
+      case 'E' -> E;
+      default -> throw new IllegalArgumentException("Unknown direction " + direction);
+    };
+  }
+
   public char getDirection() {
     return direction;
   }
@@ -3,6 +3,7 @@ package entity.shape;
 import java.io.*;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.ByteBuffer;
 import structure.dynamichashfile.entity.IConvertableToBytes;
 import structure.quadtree.IShapeData;
 
@@ -170,6 +171,37 @@ public class Rectangle implements IShapeData, IConvertableToBytes {
     }
   }
 
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    writePointTo(buffer, firstPoint);
+    writePointTo(buffer, secondPoint);
+  }
+
+  private void writePointTo(ByteBuffer buffer, GpsCoordinates point) {
+    buffer.putDouble(point.widthCoordinate());
+    buffer.putChar(point.width().getDirection());
+    buffer.putDouble(point.lengthCoordinate());
+    buffer.putChar(point.length().getDirection());
+  }
+
+  @Override
+  public void readFrom(ByteBuffer buffer, int offset) {
+    GpsCoordinates firstPoint = extractPointFromBuffer(buffer, offset);
+
+    GpsCoordinates secondPoint = extractPointFromBuffer(buffer, offset + (BYTE_ARRAY_SIZE / 2));
+
+    initializeRectangle(firstPoint, secondPoint);
+  }
+
+  private GpsCoordinates extractPointFromBuffer(ByteBuffer buffer, int offset) {
+    double widthCoordinate = buffer.getDouble(offset);
+    Direction width = Direction.fromChar(buffer.getChar(offset + 8));
+    double lengthCoordinate = buffer.getDouble(offset + 10);
+    Direction length = Direction.fromChar(buffer.getChar(offset + 18));
+
+    return new GpsCoordinates(width, widthCoordinate, length, lengthCoordinate);
+  }
+
   private GpsCoordinates extractPointFromByteArray(DataInputStream inputStream) throws IOException {
     double secondPointWidthCoordinate = inputStream.readDouble();
     Direction secondPointWidth = Direction.valueOf(String.valueOf(inputStream.readChar()));
@@ -12,11 +12,13 @@ import java.util.List;
 import java.util.Random;
 import mvc.view.observable.IObserver;
 import structure.dynamichashfile.DynamicHashFile;
+import structure.dynamichashfile.DynamicHashFileConfiguration;
 import structure.dynamichashfile.trie.InnerTrieNode;
 import structure.dynamichashfile.trie.TrieNode;
 import structure.quadtree.QuadTree;
 import util.file.IFileBuilder;
 import util.file.IOManager;
+import util.file.dynamichashfile.BinaryBuilderTrie;
 import util.file.dynamichashfile.DynamicHashFileInfo;
 import util.file.dynamichashfile.DynamicHashFileInfoBuilder;
 import util.file.dynamichashfile.TextBuilderTrie;
@@ -55,15 +57,14 @@ public class ModelWrapper implements IModel {
 
   @Override
   public Property findProperty(int propertyIdentificationNumber) {
-    Property foundedProperty =
-        propertyDynamicHashFile.find(new Property(propertyIdentificationNumber));
+    Property foundedProperty = findPropertyInFile(new Property(propertyIdentificationNumber));
 
     List<Parcel> propertyRelatedData = foundedProperty.getRelatedDataList();
 
     List<Parcel> parcelsOfProperty = new ArrayList<>(propertyRelatedData.size());
 
     for (Parcel parcelWithOnlyIdentificationNumber : propertyRelatedData) {
-      parcelsOfProperty.add(parcelDynamicHashFile.find(parcelWithOnlyIdentificationNumber));
+      parcelsOfProperty.add(findParcelInFile(parcelWithOnlyIdentificationNumber));
     }
 
     foundedProperty.setRelatedDataList(parcelsOfProperty);
@@ -73,14 +74,14 @@ public class ModelWrapper implements IModel {
 
   @Override
   public Parcel findParcel(int parcelIdentificationNumber) {
-    Parcel foundedParcel = parcelDynamicHashFile.find(new Parcel(parcelIdentificationNumber));
+    Parcel foundedParcel = findParcelInFile(new Parcel(parcelIdentificationNumber));
 
     List<Property> parcelRelatedDataList = foundedParcel.getRelatedDataList();
 
     List<Property> propertiesOfParcel = new ArrayList<>(parcelRelatedDataList.size());
 
     for (Property propertyWithOnlyIdentificationNumber : parcelRelatedDataList) {
-      propertiesOfParcel.add(propertyDynamicHashFile.find(propertyWithOnlyIdentificationNumber));
+      propertiesOfParcel.add(findPropertyInFile(propertyWithOnlyIdentificationNumber));
     }
 
     foundedParcel.setRelatedDataList(propertiesOfParcel);
@@ -88,6 +89,28 @@ public class ModelWrapper implements IModel {
     return foundedParcel;
   }
 
+  private Property findPropertyInFile(Property property) {
+    return propertyDynamicHashFile
+        .findOptional(property)
+        .orElseThrow(
+            () ->
+                new IllegalStateException(
+                    String.format(
+                        "Property with identification number %d was not found!",
+                        property.getIdentificationNumber())));
+  }
+
+  private Parcel findParcelInFile(Parcel parcel) {
+    return parcelDynamicHashFile
+        .findOptional(parcel)
+        .orElseThrow(
+            () ->
+                new IllegalStateException(
+                    String.format(
+                        "Parcel with identification number %d was not found!",
+                        parcel.getIdentificationNumber())));
+  }
+
   @Override
   public void insertProperty(int registrationNumber, String description, Rectangle shape)
       throws IOException {
@@ -118,7 +141,7 @@ public class ModelWrapper implements IModel {
 
       propertyRelatedDataList.add(parcelOfProperty);
 
-      Parcel parcelInHashFile = parcelDynamicHashFile.find(parcelOfProperty);
+      Parcel parcelInHashFile = findParcelInFile(parcelOfProperty);
       parcelInHashFile.addRelatedData(new Property(newPropertyIdentificationNumber));
 
 //      parcelDynamicHashFile.delete(parcelInHashFile);
@@ -170,7 +193,7 @@ public class ModelWrapper implements IModel {
 
       parcelRelatedDataList.add(propertyOfParcel);
 
-      Property propertyInHashFile = propertyDynamicHashFile.find(propertyOfParcel);
+      Property propertyInHashFile = findPropertyInFile(propertyOfParcel);
       propertyInHashFile.addRelatedData(new Parcel(newParcelIdentificationNumber));
 
 //      propertyDynamicHashFile.delete(propertyInHashFile);
@@ -190,11 +213,10 @@ public class ModelWrapper implements IModel {
 
   @Override
   public void removeProperty(int propertyIdentificationNumber) throws IOException {
-    Property propertyToDelete =
-        propertyDynamicHashFile.find(new Property(propertyIdentificationNumber));
+    Property propertyToDelete = findPropertyInFile(new Property(propertyIdentificationNumber));
 
     for (Parcel parcel : propertyToDelete.getRelatedDataList()) {
-      Parcel foundedParcel = parcelDynamicHashFile.find(parcel);
+      Parcel foundedParcel = findParcelInFile(parcel);
       foundedParcel.removeRelatedData(propertyToDelete);
       parcelDynamicHashFile.edit(foundedParcel, foundedParcel);
     }
@@ -208,10 +230,10 @@ public class ModelWrapper implements IModel {
 
   @Override
   public void removeParcel(int parcelIdentificationNumber) throws IOException {
-    Parcel parcelToDelete = parcelDynamicHashFile.find(new Parcel(parcelIdentificationNumber));
+    Parcel parcelToDelete = findParcelInFile(new Parcel(parcelIdentificationNumber));
 
     for (Property property : parcelToDelete.getRelatedDataList()) {
-      Property foundedProperty = propertyDynamicHashFile.find(property);
+      Property foundedProperty = findPropertyInFile(property);
       foundedProperty.removeRelatedData(parcelToDelete);
       propertyDynamicHashFile.edit(foundedProperty, foundedProperty);
     }
@@ -273,7 +295,7 @@ public class ModelWrapper implements IModel {
       List<SpatialDataForQuadTree> mergedParcels = parcelsOfEditedProperty;
       for (SpatialDataForQuadTree parcelForQuadTree : mergedParcels) {
         Parcel parcelOfProperty =
-            parcelDynamicHashFile.find(new Parcel(parcelForQuadTree.getIdentificationNumber()));
+            findParcelInFile(new Parcel(parcelForQuadTree.getIdentificationNumber()));
 
         parcelOfProperty.removeRelatedData(propertyToEdit);
 
@@ -349,8 +371,7 @@ public class ModelWrapper implements IModel {
       List<SpatialDataForQuadTree> mergedProperties = propertiesOfEditedParcel;
       for (SpatialDataForQuadTree propertyForQuadTree : mergedProperties) {
         Property propertyOfParcel =
-            propertyDynamicHashFile.find(
-                new Property(propertyForQuadTree.getIdentificationNumber()));
+            findPropertyInFile(new Property(propertyForQuadTree.getIdentificationNumber()));
 
         propertyOfParcel.removeRelatedData(parcelToEdit);
 
@@ -544,7 +565,7 @@ public class ModelWrapper implements IModel {
     quadTreeManager.saveToFile("quadParecls.sz", parcelQuadTree.search(parcelQuadTree.getShape()));
 
     // saving Trie
-    IOManager<TrieNode> trieIOManager = new IOManager<>(new TextBuilderTrie<>());
+    IOManager<TrieNode> trieIOManager = new IOManager<>(new BinaryBuilderTrie());
     trieIOManager.saveToFile("trieProperties.sz", propertyDynamicHashFile.getTrieNodes());
     trieIOManager.saveToFile("trieParcels.sz", parcelDynamicHashFile.getTrieNodes());
 
@@ -579,17 +600,8 @@ public class ModelWrapper implements IModel {
     }
 
     // loading Trie
-    IFileBuilder<TrieNode> trieNodeBuilder = new TextBuilderTrie<>();
-    IOManager<TrieNode> trieIOManager = new IOManager<>(trieNodeBuilder);
-    trieIOManager.loadFromFile("trieProperties.sz");
-
-    List<TrieNode> propertyTrieNodes = trieNodeBuilder.getLoadedData();
-    trieNodeBuilder.clearLoadedData();
-
-    trieIOManager.loadFromFile("trieParcels.sz");
-
-    List<TrieNode> parcelTrieNodes = trieNodeBuilder.getLoadedData();
-    trieNodeBuilder.clearLoadedData();
+    List<TrieNode> propertyTrieNodes = loadTrieNodes("trieProperties.sz");
+    List<TrieNode> parcelTrieNodes = loadTrieNodes("trieParcels.sz");
 
     // loading dynamic files info
     IFileBuilder<DynamicHashFileInfo> fileInfoBuilder = new DynamicHashFileInfoBuilder();
@@ -614,7 +626,8 @@ public class ModelWrapper implements IModel {
                 propertyFileInfo.blockingFactorOfMainFile(),
                 propertyFileInfo.blockingFactorOfOverflowFile(),
                 propertyFileInfo.tClass(),
-                (InnerTrieNode) propertyTrieNodes.get(0));
+                (InnerTrieNode) propertyTrieNodes.get(0),
+                getConfiguration(propertyFileInfo));
 
     parcelDynamicHashFile =
         (DynamicHashFile<Parcel>)
@@ -624,11 +637,29 @@ public class ModelWrapper implements IModel {
                 parcelFileInfo.blockingFactorOfMainFile(),
                 parcelFileInfo.blockingFactorOfOverflowFile(),
                 parcelFileInfo.tClass(),
-                (InnerTrieNode) parcelTrieNodes.get(0));
+                (InnerTrieNode) parcelTrieNodes.get(0),
+                getConfiguration(parcelFileInfo));
 
     sendNotifications();
   }
 
+  private static List<TrieNode> loadTrieNodes(String pathToFile) throws IOException {
+    // tries saved before binary format are still loaded from text
+    IFileBuilder<TrieNode> trieNodeBuilder =
+        BinaryBuilderTrie.isBinaryTrieFile(pathToFile)
+            ? new BinaryBuilderTrie()
+            : new TextBuilderTrie<>();
+
+    new IOManager<>(trieNodeBuilder).loadFromFile(pathToFile);
+    return trieNodeBuilder.getLoadedData();
+  }
+
+  private static DynamicHashFileConfiguration getConfiguration(DynamicHashFileInfo fileInfo) {
+    return new DynamicHashFileConfiguration()
+        .setIndexType(fileInfo.indexType())
+        .setMaxDirectoryDepth(fileInfo.maxDirectoryDepth());
+  }
+
   private int getNewParcelIdentificationNumber() {
     parcelIdentificationNumberSequence++;
     return parcelIdentificationNumberSequence;
@@ -0,0 +1,183 @@
+package structure.dynamichashfile;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import structure.dynamichashfile.entity.record.Record;
+
+/**
+ * Runs asynchronous operations of DynamicHashFile. Leaves are read by limited count of readers in
+ * order of their first find, finds of the same leaf waiting meanwhile are served by one read of its
+ * blocks. More finds wait under higher load, so less reads are needed for them.
+ */
+class AsyncIoScheduler<T extends Record> implements AutoCloseable {
+  private final Executor executor;
+  // only own executor is shut down by scheduler
+  private final ExecutorService ownExecutor;
+  private final LeafReader<T> leafReader;
+  private final int maxReadersCount;
+  // finds waiting for read of main block on the address, in order of the first one
+  private final Map<Long, List<PendingFind<T>>> pendingFinds;
+  private int readersCount;
+
+  interface LeafReader<T extends Record> {
+    /**
+     * Finds records in blocks of leaf with main block on given address.
+     *
+     * @return found records in order of given ones
+     */
+    List<Optional<T>> read(long addressOfMainBlock, List<T> recordsToFind);
+  }
+
+  private record PendingFind<T extends Record>(T record, CompletableFuture<Optional<T>> result) {}
+
+  AsyncIoScheduler(Executor executor, int maxReadersCount, LeafReader<T> leafReader) {
+    this.ownExecutor =
+        executor == null
+            ? Executors.newFixedThreadPool(
+                maxReadersCount,
+                runnable -> {
+                  Thread thread = new Thread(runnable, "dynamic-hash-file-io");
+                  thread.setDaemon(true);
+                  return thread;
+                })
+            : null;
+    this.executor = executor == null ? ownExecutor : executor;
+    this.leafReader = leafReader;
+    this.maxReadersCount = maxReadersCount;
+    this.pendingFinds = new LinkedHashMap<>();
+  }
+
+  CompletableFuture<Optional<T>> find(long addressOfMainBlock, T recordToFind) {
+    PendingFind<T> find = new PendingFind<>(recordToFind, new CompletableFuture<>());
+    boolean startsReader;
+
+    synchronized (pendingFinds) {
+      pendingFinds.computeIfAbsent(addressOfMainBlock, address -> new ArrayList<>()).add(find);
+
+      startsReader = readersCount < maxReadersCount;
+      if (startsReader) {
+        readersCount++;
+      }
+    }
+
+    if (startsReader) {
+      try {
+        executor.execute(this::readLeaves);
+      } catch (RejectedExecutionException e) {
+        // running readers serve the find, otherwise no one would
+        List<PendingFind<T>> rejectedFinds = new ArrayList<>();
+        synchronized (pendingFinds) {
+          if (--readersCount == 0) {
+            pendingFinds.values().forEach(rejectedFinds::addAll);
+            pendingFinds.clear();
+          }
+        }
+        completeExceptionally(rejectedFinds, e);
+      }
+    }
+
+    return find.result();
+  }
+
+  /** Reads leaves with waiting finds until there are none. */
+  private void readLeaves() {
+    boolean isFinished = false;
+
+    try {
+      while (true) {
+        Map.Entry<Long, List<PendingFind<T>>> leafFinds;
+
+        synchronized (pendingFinds) {
+          Iterator<Map.Entry<Long, List<PendingFind<T>>>> iterator =
+              pendingFinds.entrySet().iterator();
+
+          if (!iterator.hasNext()) {
+            readersCount--;
+            isFinished = true;
+            return;
+          }
+
+          leafFinds = iterator.next();
+          iterator.remove();
+        }
+
+        readLeaf(leafFinds.getKey(), leafFinds.getValue());
+      }
+    } finally {
+      if (!isFinished) {
+        releaseFailedReader();
+      }
+    }
+  }
+
+  /** Reader stopped by error leaves, waiting finds fail when no other reader serves them. */
+  private void releaseFailedReader() {
+    List<PendingFind<T>> abandonedFinds = new ArrayList<>();
+    synchronized (pendingFinds) {
+      if (--readersCount == 0) {
+        pendingFinds.values().forEach(abandonedFinds::addAll);
+        pendingFinds.clear();
+      }
+    }
+
+    completeExceptionally(
+        abandonedFinds, new IllegalStateException("Reader of leaves stopped by error!"));
+  }
+
+  private void readLeaf(long addressOfMainBlock, List<PendingFind<T>> finds) {
+    List<Optional<T>> foundRecords;
+
+    try {
+      foundRecords =
+          leafReader.read(addressOfMainBlock, finds.stream().map(PendingFind::record).toList());
+    } catch (Throwable e) {
+      completeExceptionally(finds, e);
+      // errors are not recoverable, they stop the reader after its finds are completed
+      if (e instanceof Error error) {
+        throw error;
+      }
+      return;
+    }
+
+    // futures are completed without locks of file, their actions can use the file again
+    for (int i = 0; i < finds.size(); i++) {
+      finds.get(i).result().complete(foundRecords.get(i));
+    }
+  }
+
+  private static <T extends Record> void completeExceptionally(
+      List<PendingFind<T>> finds, Throwable exception) {
+    for (PendingFind<T> find : finds) {
+      find.result().completeExceptionally(exception);
+    }
+  }
+
+  CompletableFuture<Void> run(Runnable operation) {
+    return CompletableFuture.runAsync(operation, executor);
+  }
+
+  /** Waits for operations scheduled on own executor. */
+  @Override
+  public void close() {
+    if (ownExecutor == null) {
+      return;
+    }
+
+    ownExecutor.shutdown();
+    try {
+      ownExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
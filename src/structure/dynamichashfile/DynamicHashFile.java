@@ -1,16 +1,51 @@
 package structure.dynamichashfile;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import structure.dynamichashfile.constant.IndexType;
+import structure.dynamichashfile.constant.InsertStatus;
 import structure.dynamichashfile.entity.Block;
+import structure.dynamichashfile.entity.BlockView;
+import structure.dynamichashfile.entity.FileHeader;
 import structure.dynamichashfile.entity.record.Record;
 import structure.dynamichashfile.entity.record.RecordFactory;
+import structure.dynamichashfile.event.LeafExpandEvent;
+import structure.dynamichashfile.event.LeavesShrinkEvent;
+import structure.dynamichashfile.event.ShakeOffEvent;
+import structure.dynamichashfile.hash.IHashStrategy;
+import structure.dynamichashfile.metrics.DynamicHashFileMetrics;
+import structure.dynamichashfile.metrics.DynamicHashFileMetricsBean;
+import structure.dynamichashfile.metrics.OperationRecorder;
+import structure.dynamichashfile.storage.BlockCacheStatistics;
+import structure.dynamichashfile.storage.SyncStatistics;
 import structure.dynamichashfile.trie.*;
+import structure.dynamichashfile.wal.TrieDelta;
+import util.file.dynamichashfile.BinaryBuilderTrie;
 import util.file.dynamichashfile.DynamicHashFileInfo;
 
 public class DynamicHashFile<T extends Record> implements AutoCloseable {
   private static final int INVALID_ADDRESS = Block.getInvalidAddress();
+  // 64 stripes of leaf locks
+  private static final int LEAF_LOCKS_BITS = 6;
   private final FileBlockManager<T> fileBlockManager;
+  private final IHashStrategy hashStrategy;
+  private final AsyncIoScheduler<T> ioScheduler;
+  // null when overflow chains are reorganized only on demand
+  private final OverflowReorganizer overflowReorganizer;
+  private final OperationRecorder operationRecorder = new OperationRecorder();
+  // null when metrics are not registered in MBean server
+  private final ObjectName metricsMXBeanName;
+  // trie is read under read lock, operations changing trie or free blocks need write lock
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  // blocks of leaf are guarded by its stripe when only read lock of trie is held
+  private final ReentrantReadWriteLock[] leafLocks = createLeafLocks();
   private Trie trie;
 
   public DynamicHashFile(
@@ -20,6 +55,25 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
       int blockingFactorOfOverflowFile,
       Class<T> tClass)
       throws IOException {
+    this(
+        pathToMainFile,
+        pathToOverflowFile,
+        blockingFactorOfMainFile,
+        blockingFactorOfOverflowFile,
+        tClass,
+        new DynamicHashFileConfiguration());
+  }
+
+  public DynamicHashFile(
+      String pathToMainFile,
+      String pathToOverflowFile,
+      int blockingFactorOfMainFile,
+      int blockingFactorOfOverflowFile,
+      Class<T> tClass,
+      DynamicHashFileConfiguration configuration)
+      throws IOException {
+    // registered name is checked before files are opened
+    ObjectName metricsName = getMetricsMXBeanName(pathToMainFile, configuration);
 
     this.fileBlockManager =
         new FileBlockManager<>(
@@ -27,9 +81,37 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
             blockingFactorOfMainFile,
             pathToOverflowFile,
             blockingFactorOfOverflowFile,
-            tClass);
-
-    this.trie = new Trie(RecordFactory.getDummyInstance(tClass).getMaxHashSize());
+            tClass,
+            configuration);
+    fileBlockManager.setForceLock(lock.writeLock());
+
+    this.hashStrategy = configuration.getHashStrategy(RecordFactory.getDummyInstance(tClass));
+    checkHeaderOfFile();
+
+    // file closed with checkpoint continues with its trie, crashed file with trie from log or
+    // from its blocks
+    InnerTrieNode checkpointTrie =
+        fileBlockManager.getRecoveredTrie() != null
+            ? fileBlockManager.getRecoveredTrie()
+            : fileBlockManager.getCheckpointTrie();
+    if (checkpointTrie == null) {
+      checkpointTrie = fileBlockManager.recoverTrie(hashStrategy);
+    }
+    this.trie =
+        checkpointTrie == null
+            ? new Trie(hashStrategy.getHashSize(), configuration)
+            : new Trie(checkpointTrie, hashStrategy.getHashSize(), configuration);
+    startLog();
+
+    this.ioScheduler =
+        new AsyncIoScheduler<>(
+            configuration.getAsyncExecutor(),
+            configuration.getAsyncReadersCount(),
+            this::findInLeaf);
+    this.metricsMXBeanName = metricsName;
+    registerMetricsMXBean();
+    this.overflowReorganizer =
+        startOverflowReorganizer(configuration.getOverflowReorganizationRate());
   }
 
   public DynamicHashFile(
@@ -40,6 +122,27 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
       Class<T> tClass,
       InnerTrieNode rootOfTrie)
       throws IOException {
+    this(
+        pathToMainFile,
+        pathToOverflowFile,
+        blockingFactorOfMainFile,
+        blockingFactorOfOverflowFile,
+        tClass,
+        rootOfTrie,
+        new DynamicHashFileConfiguration());
+  }
+
+  public DynamicHashFile(
+      String pathToMainFile,
+      String pathToOverflowFile,
+      int blockingFactorOfMainFile,
+      int blockingFactorOfOverflowFile,
+      Class<T> tClass,
+      InnerTrieNode rootOfTrie,
+      DynamicHashFileConfiguration configuration)
+      throws IOException {
+    // registered name is checked before files are opened
+    ObjectName metricsName = getMetricsMXBeanName(pathToMainFile, configuration);
 
     this.fileBlockManager =
         new FileBlockManager<>(
@@ -47,9 +150,186 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
             blockingFactorOfMainFile,
             pathToOverflowFile,
             blockingFactorOfOverflowFile,
-            tClass);
+            tClass,
+            configuration);
+    fileBlockManager.setForceLock(lock.writeLock());
+
+    this.hashStrategy = configuration.getHashStrategy(RecordFactory.getDummyInstance(tClass));
+    checkHeaderOfFile();
+
+    // trie recovered from log is newer than saved one
+    this.trie =
+        new Trie(
+            fileBlockManager.getRecoveredTrie() != null
+                ? fileBlockManager.getRecoveredTrie()
+                : rootOfTrie,
+            hashStrategy.getHashSize(),
+            configuration);
+    startLog();
+
+    this.ioScheduler =
+        new AsyncIoScheduler<>(
+            configuration.getAsyncExecutor(),
+            configuration.getAsyncReadersCount(),
+            this::findInLeaf);
+    this.metricsMXBeanName = metricsName;
+    registerMetricsMXBean();
+    this.overflowReorganizer =
+        startOverflowReorganizer(configuration.getOverflowReorganizationRate());
+  }
+
+  /**
+   * Opens file with header only by its paths. Record class, blocking factors, hash and index are
+   * taken from headers, trie from checkpoint saved on close or from blocks of file, which was not
+   * closed.
+   */
+  public static <T extends Record> DynamicHashFile<T> open(
+      String pathToMainFile, String pathToOverflowFile) throws IOException {
+    return open(pathToMainFile, pathToOverflowFile, new DynamicHashFileConfiguration());
+  }
+
+  /**
+   * @param configuration storage and cache settings, its hash and index are replaced by values
+   *     from header
+   */
+  public static <T extends Record> DynamicHashFile<T> open(
+      String pathToMainFile, String pathToOverflowFile, DynamicHashFileConfiguration configuration)
+      throws IOException {
+    FileHeader mainFileHeader = FileBlockManager.readHeader(pathToMainFile);
+    FileHeader overflowFileHeader = FileBlockManager.readHeader(pathToOverflowFile);
+
+    if (mainFileHeader == null || overflowFileHeader == null) {
+      throw new IllegalStateException(
+          String.format(
+              "Files %s and %s have no header! They have to be opened with blocking factors and"
+                  + " trie.",
+              pathToMainFile, pathToOverflowFile));
+    }
+
+    // T is chosen by caller, class of records from header can be checked only against Record
+    @SuppressWarnings("unchecked")
+    Class<T> tClass = (Class<T>) getRecordClass(mainFileHeader, pathToMainFile);
+
+    // header describes hash only after the first close, trie of file never closed is recovered
+    // with hash of configuration
+    DynamicHashFileConfiguration configurationOfFile = configuration.copy();
+    if (!mainFileHeader.getHashStrategyClassName().isEmpty()) {
+      configurationOfFile
+          .setHashStrategy(createHashStrategy(mainFileHeader))
+          .setIndexType(mainFileHeader.getIndexType())
+          .setMaxDirectoryDepth(mainFileHeader.getMaxDirectoryDepth());
+    }
+
+    return new DynamicHashFile<>(
+        pathToMainFile,
+        pathToOverflowFile,
+        mainFileHeader.getBlockingFactor(),
+        overflowFileHeader.getBlockingFactor(),
+        tClass,
+        configurationOfFile);
+  }
+
+  private static Class<? extends Record> getRecordClass(FileHeader header, String pathToFile) {
+    try {
+      return Class.forName(header.getRecordClassName()).asSubclass(Record.class);
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(
+          String.format(
+              "Class %s of records in file %s was not found!",
+              header.getRecordClassName(), pathToFile));
+    }
+  }
+
+  private static IHashStrategy createHashStrategy(FileHeader header) {
+    try {
+      return (IHashStrategy)
+          Class.forName(header.getHashStrategyClassName())
+              .getConstructor(int.class)
+              .newInstance(header.getHashSize());
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException(
+          String.format(
+              "Hash strategy %s cannot be created with hash size %d!",
+              header.getHashStrategyClassName(), header.getHashSize()));
+    }
+  }
+
+  private void checkHeaderOfFile() throws IOException {
+    FileHeader header = fileBlockManager.getMainFileHeader();
+
+    // header describes hash only after the first checkpoint
+    if (header != null
+        && !header.getHashStrategyClassName().isEmpty()
+        && (!header.getHashStrategyClassName().equals(hashStrategy.getClass().getName())
+            || header.getHashSize() != hashStrategy.getHashSize())) {
+      // file stays as it was, including its checkpoint
+      fileBlockManager.close();
+      throw new IllegalStateException(
+          String.format(
+              "File %s was created with hash %s of size %d, it cannot be opened with hash %s of"
+                  + " size %d!",
+              fileBlockManager.getMainFilePath(),
+              header.getHashStrategyClassName(),
+              header.getHashSize(),
+              hashStrategy.getClass().getName(),
+              hashStrategy.getHashSize()));
+    }
+  }
+
+  private void startLog() throws IOException {
+    if (fileBlockManager.isLogged()) {
+      fileBlockManager.checkpointLog(trie.root);
+    }
+  }
+
+  /**
+   * Commits changes of operation to log and releases write lock, has to be called after every
+   * operation changing file.
+   */
+  private void endWriteOperation() {
+    try {
+      if (fileBlockManager.isLogged()) {
+        fileBlockManager.commitToLog(trie.takeChanges(), trie.root);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when writing to log of file %s. Error message: %s",
+              fileBlockManager.getMainFilePath(), e.getLocalizedMessage()));
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Waits until finished operation is durable. It is called without lock, so operations of other
+   * threads finished meanwhile share one force of files.
+   */
+  private void makeDurable() {
+    try {
+      fileBlockManager.makeDurable();
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when making changes of file %s durable. Error message: %s",
+              fileBlockManager.getMainFilePath(), e.getLocalizedMessage()));
+    }
+  }
 
-    this.trie = new Trie(rootOfTrie, RecordFactory.getDummyInstance(tClass).getMaxHashSize());
+  private static ReentrantReadWriteLock[] createLeafLocks() {
+    ReentrantReadWriteLock[] leafLocks = new ReentrantReadWriteLock[1 << LEAF_LOCKS_BITS];
+    for (int i = 0; i < leafLocks.length; i++) {
+      leafLocks[i] = new ReentrantReadWriteLock();
+    }
+
+    return leafLocks;
+  }
+
+  /** Stripe of leaf is chosen by address of its main block, which is fixed under read lock. */
+  private ReentrantReadWriteLock getLeafLock(LeafTrieNode leaf) {
+    long addressHash = leaf.getAddressOfData() * 0x9E3779B97F4A7C15L;
+
+    return leafLocks[(int) (addressHash >>> (Long.SIZE - LEAF_LOCKS_BITS))];
   }
 
   private static <T extends Record> Record[] getDataToFill(T recordToInsert, Block<T> block) {
@@ -61,48 +341,243 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
   }
 
   public T find(T recordToFind) {
+    return findOptional(recordToFind)
+        .orElseThrow(
+            () ->
+                new IllegalStateException(
+                    String.format("Record %s was not found!", recordToFind)));
+  }
+
+  /** Same as find, but missing record is returned as empty Optional instead of exception. */
+  public Optional<T> findOptional(T recordToFind) {
     if (recordToFind == null) {
       throw new IllegalArgumentException("Cannot find null record!");
     }
 
-    BitSet hash = recordToFind.hash();
+    long startNanos = System.nanoTime();
+    lock.readLock().lock();
+    try {
+      LeafTrieNode leafOfData = findLeafWithBlock(recordToFind);
 
-    long address = trie.getLeafOfData(hash).getAddressOfData();
+      if (leafOfData == null) {
+        return Optional.empty();
+      }
 
-    if (address == INVALID_ADDRESS) {
-      throw new IllegalStateException(
-          String.format("Address for record %s was not found!", recordToFind));
+      Lock leafLock = getLeafLock(leafOfData).readLock();
+      leafLock.lock();
+      try {
+        return Optional.ofNullable(findRecord(recordToFind, leafOfData.getAddressOfData()));
+      } finally {
+        leafLock.unlock();
+      }
+    } finally {
+      lock.readLock().unlock();
+      operationRecorder.recordFind(startNanos);
     }
+  }
 
-    Block<T> block = fileBlockManager.getMainBlock(address);
-
+  private T findRecord(T recordToFind, long address) {
+    // only keys are compared in read bytes, whole Block is not created
+    BlockView<T> block = fileBlockManager.getMainBlockView(address);
     T foundRecord = (T) block.getRecord(recordToFind);
+    int overflowBlocksCount = 0;
 
-    if (foundRecord == null) {
-      long overflowBlockAddress = block.getAddressOfOverflowBlock();
+    long overflowBlockAddress = block.getAddressOfOverflowBlock();
+    while (foundRecord == null && overflowBlockAddress != INVALID_ADDRESS) {
+      block = fileBlockManager.getOverflowBlockView(overflowBlockAddress);
+      foundRecord = (T) block.getRecord(recordToFind);
+      overflowBlocksCount++;
 
-      while (overflowBlockAddress != INVALID_ADDRESS) {
-        block = fileBlockManager.getOverflowBlock(overflowBlockAddress);
-        foundRecord = (T) block.getRecord(recordToFind);
+      overflowBlockAddress = block.getNextOverflowBlockAddress();
+    }
 
-        if (foundRecord != null) {
-          return foundRecord;
+    operationRecorder.recordOverflowBlocksOfFind(overflowBlocksCount);
+    return foundRecord;
+  }
+
+  /**
+   * Leaf of record with main block, search does not change trie and can run concurrently.
+   *
+   * @return null when leaf or its block does not exist
+   */
+  private LeafTrieNode findLeafWithBlock(T record) {
+    LeafTrieNode leafOfData = trie.findLeafOfData(hashStrategy.hash(record));
+
+    return leafOfData == null || leafOfData.getAddressOfData() == INVALID_ADDRESS
+        ? null
+        : leafOfData;
+  }
+
+  /**
+   * Finds record asynchronously. Finds of records from the same leaf waiting at the same time are
+   * served by one read of its blocks.
+   */
+  public CompletableFuture<Optional<T>> findAsync(T recordToFind) {
+    if (recordToFind == null) {
+      throw new IllegalArgumentException("Cannot find null record!");
+    }
+
+    long address;
+    lock.readLock().lock();
+    try {
+      LeafTrieNode leafOfData = findLeafWithBlock(recordToFind);
+
+      if (leafOfData == null) {
+        return CompletableFuture.completedFuture(Optional.empty());
+      }
+      address = leafOfData.getAddressOfData();
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return ioScheduler.find(address, recordToFind);
+  }
+
+  /**
+   * Reads blocks of leaf once for all records. Trie could change since the finds were scheduled, so
+   * records are searched in their current leaves.
+   */
+  private List<Optional<T>> findInLeaf(long addressOfMainBlock, List<T> recordsToFind) {
+    List<Optional<T>> foundRecords =
+        new ArrayList<>(Collections.nCopies(recordsToFind.size(), Optional.empty()));
+
+    lock.readLock().lock();
+    try {
+      Map<LeafTrieNode, List<Integer>> indexesByLeaf = new IdentityHashMap<>();
+      for (int i = 0; i < recordsToFind.size(); i++) {
+        LeafTrieNode leafOfData = findLeafWithBlock(recordsToFind.get(i));
+
+        if (leafOfData != null) {
+          indexesByLeaf.computeIfAbsent(leafOfData, leaf -> new ArrayList<>()).add(i);
         }
+      }
 
-        overflowBlockAddress = block.getNextOverflowBlockAddress();
+      for (Map.Entry<LeafTrieNode, List<Integer>> leafIndexes : indexesByLeaf.entrySet()) {
+        LeafTrieNode leafOfData = leafIndexes.getKey();
+        List<Integer> indexes = leafIndexes.getValue();
 
-        if (overflowBlockAddress == INVALID_ADDRESS) {
-          throw new IllegalStateException(String.format("Record %s was not found!", recordToFind));
+        Lock leafLock = getLeafLock(leafOfData).readLock();
+        leafLock.lock();
+        try {
+          List<T> records = indexes.stream().map(recordsToFind::get).toList();
+          List<T> foundInLeaf = findRecords(records, leafOfData.getAddressOfData());
+
+          for (int i = 0; i < indexes.size(); i++) {
+            foundRecords.set(indexes.get(i), Optional.ofNullable(foundInLeaf.get(i)));
+          }
+        } finally {
+          leafLock.unlock();
         }
       }
-    } else {
-      return foundRecord;
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return foundRecords;
+  }
+
+  /** Searches main block and overflow blocks only until all records are found. */
+  private List<T> findRecords(List<T> recordsToFind, long address) {
+    List<T> foundRecords = new ArrayList<>(Collections.nCopies(recordsToFind.size(), null));
+    int missingCount = recordsToFind.size();
+    int overflowBlocksCount = 0;
+
+    BlockView<T> block = fileBlockManager.getMainBlockView(address);
+    long overflowBlockAddress = block.getAddressOfOverflowBlock();
+
+    while (true) {
+      for (int i = 0; i < recordsToFind.size(); i++) {
+        if (foundRecords.get(i) == null) {
+          // blocks of file contain only records of T
+          @SuppressWarnings("unchecked")
+          T foundRecord = (T) block.getRecord(recordsToFind.get(i));
+          foundRecords.set(i, foundRecord);
+          missingCount -= foundRecord == null ? 0 : 1;
+        }
+      }
+
+      if (missingCount == 0 || overflowBlockAddress == INVALID_ADDRESS) {
+        operationRecorder.recordOverflowBlocksOfFind(overflowBlocksCount);
+        return foundRecords;
+      }
+
+      block = fileBlockManager.getOverflowBlockView(overflowBlockAddress);
+      overflowBlockAddress = block.getNextOverflowBlockAddress();
+      overflowBlocksCount++;
+    }
+  }
+
+  /** Inserts record asynchronously, failed insert completes the future exceptionally. */
+  public CompletableFuture<Void> insertAsync(T recordToInsert) {
+    return ioScheduler.run(() -> insert(recordToInsert));
+  }
+
+  /** Deletes record asynchronously, failed delete completes the future exceptionally. */
+  public CompletableFuture<Void> deleteAsync(T recordToDelete) {
+    return ioScheduler.run(
+        () -> {
+          try {
+            delete(recordToDelete);
+          } catch (IOException e) {
+            throw new CompletionException(e);
+          }
+        });
+  }
+
+  /** Checks presence of record without creating it from bytes. */
+  public boolean contains(T recordToFind) {
+    if (recordToFind == null) {
+      throw new IllegalArgumentException("Cannot find null record!");
     }
 
-    throw new IllegalStateException(String.format("Record %s was not found!", recordToFind));
+    lock.readLock().lock();
+    try {
+      LeafTrieNode leafOfData = findLeafWithBlock(recordToFind);
+
+      if (leafOfData == null) {
+        return false;
+      }
+
+      Lock leafLock = getLeafLock(leafOfData).readLock();
+      leafLock.lock();
+      try {
+        BlockView<T> mainBlock = fileBlockManager.getMainBlockView(leafOfData.getAddressOfData());
+
+        return mainBlock.containsRecord(recordToFind)
+            || isInOverflowBlocks(mainBlock.getAddressOfOverflowBlock(), recordToFind);
+      } finally {
+        leafLock.unlock();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
   }
 
   public void edit(T recordToEdit, T changedRecordToSave) {
+    long startNanos = System.nanoTime();
+    // the first write removes checkpoint of trie, so it is done under write lock
+    if (fileBlockManager.isLogged() || fileBlockManager.hasTrieCheckpoint()) {
+      lock.writeLock().lock();
+      try {
+        editRecord(recordToEdit, changedRecordToSave);
+      } finally {
+        endWriteOperation();
+      }
+    } else {
+      // edit does not change trie, edits of different leaves can run concurrently
+      lock.readLock().lock();
+      try {
+        editRecord(recordToEdit, changedRecordToSave);
+      } finally {
+        lock.readLock().unlock();
+      }
+    }
+
+    makeDurable();
+    operationRecorder.recordEdit(startNanos);
+  }
+
+  private void editRecord(T recordToEdit, T changedRecordToSave) {
     if (!recordToEdit.equals(changedRecordToSave)) {
       throw new IllegalArgumentException(
           String.format(
@@ -114,15 +589,23 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
       throw new IllegalArgumentException("Cannot find null record!");
     }
 
-    BitSet hash = recordToEdit.hash();
+    LeafTrieNode leafOfData = findLeafWithBlock(recordToEdit);
 
-    long address = trie.getLeafOfData(hash).getAddressOfData();
-
-    if (address == INVALID_ADDRESS) {
+    if (leafOfData == null) {
       throw new IllegalStateException(
           String.format("Address for record %s was not found!", recordToEdit));
     }
 
+    Lock leafLock = getLeafLock(leafOfData).writeLock();
+    leafLock.lock();
+    try {
+      editInBlocks(recordToEdit, changedRecordToSave, leafOfData.getAddressOfData());
+    } finally {
+      leafLock.unlock();
+    }
+  }
+
+  private void editInBlocks(T recordToEdit, T changedRecordToSave, long address) {
     Block<T> block = fileBlockManager.getMainBlock(address);
 
     T foundRecord = (T) block.getRecord(recordToEdit);
@@ -164,23 +647,84 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
   }
 
   public void insert(T recordToInsert) {
-    // checking if hash file already contains the item
-    boolean isDuplicate;
+    long startNanos = System.nanoTime();
+    if (!tryInsertIntoMainBlock(recordToInsert)) {
+      lock.writeLock().lock();
+      try {
+        insertRecord(recordToInsert);
+      } finally {
+        endWriteOperation();
+      }
+    }
+
+    makeDurable();
+    operationRecorder.recordInsert(startNanos);
+  }
+
+  /**
+   * Inserts record into main block with free space under read lock of trie, so inserts into
+   * different leaves run concurrently. Logged file commits whole trie with every operation, so it
+   * always inserts under write lock. The first write removes checkpoint of trie under write lock
+   * too.
+   *
+   * @return false when record has to be inserted under write lock
+   */
+  private boolean tryInsertIntoMainBlock(T recordToInsert) {
+    if (recordToInsert == null
+        || fileBlockManager.isLogged()
+        || fileBlockManager.hasTrieCheckpoint()) {
+      return false;
+    }
+
+    lock.readLock().lock();
     try {
-      find(recordToInsert);
-      isDuplicate = true;
-    } catch (IllegalStateException e) {
-      isDuplicate = false;
+      LeafTrieNode leafOfData = findLeafWithBlock(recordToInsert);
+
+      if (leafOfData == null) {
+        return false;
+      }
+
+      Lock leafLock = getLeafLock(leafOfData).writeLock();
+      leafLock.lock();
+      try {
+        long address = leafOfData.getAddressOfData();
+        Block<T> block = fileBlockManager.getMainBlock(address);
+
+        if (!block.hasFreeSpace()) {
+          return false;
+        }
+
+        checkIsNotInserted(recordToInsert, block);
+
+        block.addRecord(recordToInsert);
+        fileBlockManager.writeMainBlock(block, address);
+        leafOfData.addDataInMainBlock();
+        return true;
+      } finally {
+        leafLock.unlock();
+      }
+    } finally {
+      lock.readLock().unlock();
     }
+  }
 
-    if (isDuplicate) {
+  /** Checks blocks, where the record would be placed. */
+  private void checkIsNotInserted(T recordToInsert, Block<T> mainBlock) {
+    if (mainBlock.getRecord(recordToInsert) != null
+        || isInOverflowBlocks(mainBlock.getAddressOfOverflowBlock(), recordToInsert)) {
       throw new IllegalStateException(
           String.format(
               "Cannot insert new item. DynamicHashFile already contains item %s", recordToInsert));
     }
+  }
 
-    BitSet hash = recordToInsert.hash();
-    LeafTrieNode leafOfData = trie.getLeafOfData(hash);
+  private void insertRecord(T recordToInsert) {
+    if (recordToInsert == null) {
+      throw new IllegalArgumentException("Cannot insert null record!");
+    }
+
+    LeafTrieNode leafOfData = trie.getLeafOfData(hashStrategy.hash(recordToInsert));
+    trie.markChanged(leafOfData);
     long address = leafOfData.getAddressOfData();
 
     if (address == INVALID_ADDRESS) {
@@ -190,6 +734,8 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
 
     Block<T> block = fileBlockManager.getMainBlock(address);
 
+    checkIsNotInserted(recordToInsert, block);
+
     // free space in block for data - insert
     if (block.hasFreeSpace()) {
       block.addRecord(recordToInsert);
@@ -211,14 +757,239 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     }
   }
 
-  public void delete(T recordToDelete) throws IOException {
+  private boolean isInOverflowBlocks(long overflowBlockAddress, T record) {
+    while (overflowBlockAddress != INVALID_ADDRESS) {
+      BlockView<T> overflowBlock = fileBlockManager.getOverflowBlockView(overflowBlockAddress);
+
+      if (overflowBlock.containsRecord(record)) {
+        return true;
+      }
+
+      overflowBlockAddress = overflowBlock.getNextOverflowBlockAddress();
+    }
+
+    return false;
+  }
+
+  /**
+   * Inserts all records. Records are grouped by leaf of the trie, so every block is read and
+   * written once and full leaf is split for whole group at once.
+   *
+   * @return status of every record in order of iteration of given collection
+   */
+  public List<InsertStatus> insertAll(Collection<T> recordsToInsert) {
+    List<InsertStatus> statuses;
+
+    lock.writeLock().lock();
+    try {
+      statuses = insertAllRecords(recordsToInsert);
+    } finally {
+      endWriteOperation();
+    }
+
+    makeDurable();
+    return statuses;
+  }
+
+  private List<InsertStatus> insertAllRecords(Collection<T> recordsToInsert) {
+    if (recordsToInsert == null || recordsToInsert.contains(null)) {
+      throw new IllegalArgumentException("Cannot insert null records!");
+    }
+
+    List<T> records = new ArrayList<>(recordsToInsert);
+    InsertStatus[] statuses = new InsertStatus[records.size()];
+
+    // equal records have equal hash, duplicates inside batch are searched only among same hashes
+    Map<Long, List<T>> recordsByHash = new HashMap<>();
+    Map<LeafTrieNode, List<Integer>> indexesByLeaf = new LinkedHashMap<>();
+
+    for (int i = 0; i < records.size(); i++) {
+      T recordToInsert = records.get(i);
+      long hashBits = hashStrategy.hash(recordToInsert);
+      List<T> recordsWithSameHash =
+          recordsByHash.computeIfAbsent(hashBits, key -> new ArrayList<>());
+
+      if (recordsWithSameHash.contains(recordToInsert)) {
+        statuses[i] = InsertStatus.DUPLICATE;
+        continue;
+      }
+      recordsWithSameHash.add(recordToInsert);
+
+      LeafTrieNode leafOfData = trie.getLeafOfData(hashBits);
+      indexesByLeaf.computeIfAbsent(leafOfData, leaf -> new ArrayList<>()).add(i);
+    }
+
+    for (Map.Entry<LeafTrieNode, List<Integer>> group : indexesByLeaf.entrySet()) {
+      insertGroup(group.getKey(), group.getValue(), records, statuses);
+    }
+
+    return Arrays.asList(statuses);
+  }
+
+  private void insertGroup(
+      LeafTrieNode leafOfData, List<Integer> indexes, List<T> records, InsertStatus[] statuses) {
+    trie.markChanged(leafOfData);
+    long address = leafOfData.getAddressOfData();
+
+    if (address == INVALID_ADDRESS) {
+      throw new IllegalStateException(
+          String.format("Address for record %s was not found!", records.get(indexes.get(0))));
+    }
+
+    Block<T> block = fileBlockManager.getMainBlock(address);
+    List<Record> overflowRecords = getOverflowRecords(block);
+    List<Record> recordsToInsert = new ArrayList<>();
+
+    for (int index : indexes) {
+      T recordToInsert = records.get(index);
+
+      if (block.getRecord(recordToInsert) != null || overflowRecords.contains(recordToInsert)) {
+        statuses[index] = InsertStatus.DUPLICATE;
+      } else {
+        recordsToInsert.add(recordToInsert);
+        statuses[index] = InsertStatus.INSERTED;
+      }
+    }
+
+    if (recordsToInsert.isEmpty()) {
+      return;
+    }
+
+    int freeSpace = block.getBlockingFactor() - block.getValidRecordsCount();
+
+    if (recordsToInsert.size() <= freeSpace) {
+      recordsToInsert.forEach(block::addRecord);
+      leafOfData.addDataInMainBlock(recordsToInsert.size());
+      fileBlockManager.writeMainBlock(block, address);
+      return;
+    }
+
+    if (leafOfData.getDepth() == trie.maxDepth || leafOfData.hasItemsInOverflowBlock()) {
+      // leaf cannot be split, rest of records goes to its overflow blocks
+      recordsToInsert.subList(0, freeSpace).forEach(block::addRecord);
+      leafOfData.addDataInMainBlock(freeSpace);
+      fileBlockManager.writeMainBlock(block, address);
+
+      for (Record recordToInsert : recordsToInsert.subList(freeSpace, recordsToInsert.size())) {
+        trie.insertDataInOveflowFile(recordToInsert, leafOfData);
+      }
+      return;
+    }
+
+    List<Record> dataToFill = new ArrayList<>(Arrays.asList(block.getValidRecords()));
+    dataToFill.addAll(recordsToInsert);
+
+    try {
+      trie.splitLeafByHash(dataToFill, leafOfData);
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when splitting leaf %s. Error message: %s",
+              leafOfData, e.getLocalizedMessage()));
+    }
+  }
+
+  private List<Record> getOverflowRecords(Block<T> mainBlock) {
+    List<Record> overflowRecords = new ArrayList<>();
+
+    long overflowBlockAddress = mainBlock.getAddressOfOverflowBlock();
+    while (overflowBlockAddress != INVALID_ADDRESS) {
+      Block<T> overflowBlock = fileBlockManager.getOverflowBlock(overflowBlockAddress);
+      Collections.addAll(overflowRecords, overflowBlock.getValidRecords());
+
+      overflowBlockAddress = overflowBlock.getNextOverflowBlockAddress();
+    }
+
+    return overflowRecords;
+  }
+
+  public void delete(T recordToDelete) throws IOException {
+    long startNanos = System.nanoTime();
+    if (!tryDeleteFromMainBlock(recordToDelete)) {
+      lock.writeLock().lock();
+      try {
+        deleteRecord(recordToDelete);
+      } finally {
+        endWriteOperation();
+      }
+    }
+
+    makeDurable();
+    operationRecorder.recordDelete(startNanos);
+  }
+
+  /**
+   * Deletes record from main block of leaf without overflow blocks under read lock of trie, when
+   * the block stays non-empty and leaf cannot be merged with its brother.
+   *
+   * @return false when record has to be deleted under write lock
+   */
+  private boolean tryDeleteFromMainBlock(T recordToDelete) {
+    if (recordToDelete == null
+        || fileBlockManager.isLogged()
+        || fileBlockManager.hasTrieCheckpoint()) {
+      return false;
+    }
+
+    lock.readLock().lock();
+    try {
+      LeafTrieNode leafOfData = findLeafWithBlock(recordToDelete);
+
+      if (leafOfData == null) {
+        return false;
+      }
+
+      Lock leafLock = getLeafLock(leafOfData).writeLock();
+      leafLock.lock();
+      try {
+        if (leafOfData.getDataSizeInMainBlock() < 2
+            || leafOfData.getOverflowBlocksCount() > 0
+            || canShrinkAfterDelete(leafOfData)) {
+          return false;
+        }
+
+        long address = leafOfData.getAddressOfData();
+        Block<T> mainBlock = fileBlockManager.getMainBlock(address);
+        Record foundRecord = mainBlock.getRecord(recordToDelete);
+
+        if (foundRecord == null) {
+          return false;
+        }
+
+        mainBlock.removeRecord(foundRecord);
+        fileBlockManager.writeMainBlock(mainBlock, address);
+        leafOfData.removeDataInMainBlock();
+        return true;
+      } finally {
+        leafLock.unlock();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Brother is guarded by another stripe, so its count can change meanwhile. Missed shrink only
+   * leaves the trie deeper until next delete under write lock.
+   */
+  private boolean canShrinkAfterDelete(LeafTrieNode leafOfData) {
+    InnerTrieNode parent = (InnerTrieNode) leafOfData.getParent();
+    TrieNode brother =
+        parent.getLeftSon() == leafOfData ? parent.getRightSon() : parent.getLeftSon();
+
+    return brother instanceof LeafTrieNode leafBrother
+        && !leafBrother.hasItemsInOverflowBlock()
+        && leafOfData.getDataSizeInMainBlock() - 1 + leafBrother.getDataSizeInMainBlock()
+            <= fileBlockManager.getMainFileBlockingFactor();
+  }
+
+  private void deleteRecord(T recordToDelete) throws IOException {
     if (recordToDelete == null) {
       throw new IllegalArgumentException("Cannot delete null record!");
     }
 
-    BitSet hash = recordToDelete.hash();
-
-    LeafTrieNode leafOfData = trie.getLeafOfData(hash);
+    LeafTrieNode leafOfData = trie.getLeafOfData(hashStrategy.hash(recordToDelete));
+    trie.markChanged(leafOfData);
     long address = leafOfData.getAddressOfData();
 
     if (address == INVALID_ADDRESS) {
@@ -332,6 +1103,7 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
         if (paretnOfData.getRightSon() != null && paretnOfData.getRightSon().equals(leafOfData)) {
           paretnOfData.setRightSon(null);
         }
+        trie.onSonsChanged(paretnOfData);
       } else {
         fileBlockManager.writeMainBlock(mainBlock, address);
       }
@@ -351,6 +1123,323 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     }
   }
 
+  /**
+   * Shortens main file by moving its last blocks into free blocks in the middle of it. Every block
+   * is moved under its own write lock, so lookups run between the moves.
+   *
+   * @param maxBlocksCount max count of blocks removed from the end of file, next call continues
+   * @return count of removed blocks, less than given count when the file has no free blocks
+   */
+  public int compactMainFile(int maxBlocksCount) {
+    if (maxBlocksCount < 0) {
+      throw new IllegalArgumentException("Count of blocks cannot be negative!");
+    }
+
+    // leaves by their addresses are found again only when trie changes between moves
+    Map<Long, LeafTrieNode> leavesByAddress = new HashMap<>();
+    int removedBlocksCount = 0;
+
+    while (removedBlocksCount < maxBlocksCount && removeLastMainBlock(leavesByAddress)) {
+      removedBlocksCount++;
+    }
+
+    makeDurable();
+    return removedBlocksCount;
+  }
+
+  /**
+   * @return false when there is no free block, so the last block cannot be removed
+   */
+  private boolean removeLastMainBlock(Map<Long, LeafTrieNode> leavesByAddress) {
+    lock.writeLock().lock();
+    try {
+      if (!fileBlockManager.hasFreeMainBlocks()) {
+        return false;
+      }
+
+      long lastBlockAddress = fileBlockManager.getLastMainBlockAddress();
+      LeafTrieNode leafOfBlock = leavesByAddress.get(lastBlockAddress);
+
+      if (!isLeafOfBlock(leafOfBlock, lastBlockAddress)) {
+        leavesByAddress.clear();
+        for (TrieNode node : getTrieNodes()) {
+          if (node instanceof LeafTrieNode leaf && leaf.getAddressOfData() != INVALID_ADDRESS) {
+            leavesByAddress.put(leaf.getAddressOfData(), leaf);
+          }
+        }
+        leafOfBlock = leavesByAddress.get(lastBlockAddress);
+      }
+
+      if (leafOfBlock == null) {
+        fileBlockManager.truncateLastFreeMainBlock();
+        return true;
+      }
+
+      long newAddress = fileBlockManager.moveLastMainBlockToFreeBlock();
+      leafOfBlock.setAddressOfData(newAddress);
+      trie.markChanged(leafOfBlock);
+
+      leavesByAddress.remove(lastBlockAddress);
+      leavesByAddress.put(newAddress, leafOfBlock);
+      return true;
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when compacting file %s. Error message: %s",
+              fileBlockManager.getMainFilePath(), e.getLocalizedMessage()));
+    } finally {
+      endWriteOperation();
+    }
+  }
+
+  private boolean isLeafOfBlock(LeafTrieNode leaf, long address) {
+    return leaf != null && leaf.getAddressOfData() == address && isInTrie(leaf);
+  }
+
+  private record ChainReorganization(int blocksCount, boolean isReorganized) {}
+
+  /**
+   * Reorganizes overflow chains of all leaves now, every leaf under its own lock. Records of leaf
+   * fill its main block and the fewest overflow blocks on consecutive addresses, linked in
+   * ascending order. They are the lowest run of free blocks and blocks of chain, other blocks of
+   * chain are released.
+   *
+   * @return count of reorganized leaves
+   */
+  public int reorganizeOverflowChains() {
+    int reorganizedLeavesCount = 0;
+
+    for (LeafTrieNode leafOfData : getLeavesWithOverflowBlocks()) {
+      if (reorganizeChainOfLeaf(leafOfData).isReorganized()) {
+        reorganizedLeavesCount++;
+      }
+    }
+
+    makeDurable();
+    return reorganizedLeavesCount;
+  }
+
+  private OverflowReorganizer startOverflowReorganizer(int blocksPerSecond) {
+    if (blocksPerSecond == 0) {
+      return null;
+    }
+
+    OverflowReorganizer reorganizer =
+        new OverflowReorganizer(
+            blocksPerSecond,
+            this::getLeavesWithOverflowBlocks,
+            leafOfData -> {
+              ChainReorganization reorganization = reorganizeChainOfLeaf(leafOfData);
+              if (reorganization.isReorganized()) {
+                makeDurable();
+              }
+
+              return reorganization.blocksCount();
+            });
+    reorganizer.start();
+
+    return reorganizer;
+  }
+
+  private List<LeafTrieNode> getLeavesWithOverflowBlocks() {
+    List<LeafTrieNode> leaves = new ArrayList<>();
+
+    for (TrieNode node : getTrieNodes()) {
+      if (node instanceof LeafTrieNode leaf
+          && (leaf.getOverflowBlocksCount() > 0 || leaf.hasItemsInOverflowBlock())) {
+        leaves.add(leaf);
+      }
+    }
+
+    return leaves;
+  }
+
+  private ChainReorganization reorganizeChainOfLeaf(LeafTrieNode leafOfData) {
+    lock.writeLock().lock();
+    try {
+      // leaf could be split or merged since it was found
+      if (!isInTrie(leafOfData) || leafOfData.getAddressOfData() == INVALID_ADDRESS) {
+        return new ChainReorganization(0, false);
+      }
+
+      return reorganizeChain(leafOfData);
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when reorganizing overflow blocks of leaf %s. Error message: %s",
+              leafOfData, e.getLocalizedMessage()));
+    } finally {
+      endWriteOperation();
+    }
+  }
+
+  private boolean isInTrie(TrieNode node) {
+    for (TrieNode currentNode = node; currentNode != trie.root; ) {
+      InnerTrieNode parent = (InnerTrieNode) currentNode.getParent();
+
+      if (parent == null
+          || (parent.getLeftSon() != currentNode && parent.getRightSon() != currentNode)) {
+        return false;
+      }
+      currentNode = parent;
+    }
+
+    return true;
+  }
+
+  private ChainReorganization reorganizeChain(LeafTrieNode leafOfData) throws IOException {
+    long address = leafOfData.getAddressOfData();
+    Block<T> mainBlock = fileBlockManager.getMainBlock(address);
+    List<Record> records = new ArrayList<>(Arrays.asList(mainBlock.getValidRecords()));
+    List<Long> overflowAddresses = new ArrayList<>();
+    boolean isContiguous = true;
+
+    long overflowBlockAddress = mainBlock.getAddressOfOverflowBlock();
+    while (overflowBlockAddress != INVALID_ADDRESS) {
+      Block<T> overflowBlock = fileBlockManager.getOverflowBlock(overflowBlockAddress);
+      Collections.addAll(records, overflowBlock.getValidRecords());
+
+      isContiguous &=
+          overflowAddresses.isEmpty()
+              || overflowAddresses.get(overflowAddresses.size() - 1)
+                      + fileBlockManager.getOverflowBlockByteSize()
+                  == overflowBlockAddress;
+      overflowAddresses.add(overflowBlockAddress);
+      overflowBlockAddress = overflowBlock.getNextOverflowBlockAddress();
+    }
+
+    int readBlocksCount = overflowAddresses.size() + 1;
+    int mainBlockRecordsCount = Math.min(records.size(), mainBlock.getBlockingFactor());
+    int overflowBlockingFactor = fileBlockManager.getOverflowFileBlockingFactor();
+    int requiredBlocksCount =
+        (records.size() - mainBlockRecordsCount + overflowBlockingFactor - 1)
+            / overflowBlockingFactor;
+
+    if (isContiguous
+        && mainBlock.getValidRecordsCount() == mainBlockRecordsCount
+        && overflowAddresses.size() == requiredBlocksCount) {
+      // blocks are organized, only counts of leaf could differ from them
+      boolean isLeafChanged = updateCountsOfLeaf(leafOfData, records.size(), mainBlockRecordsCount);
+      if (isLeafChanged) {
+        trie.markChanged(leafOfData);
+      }
+
+      return new ChainReorganization(readBlocksCount, isLeafChanged);
+    }
+
+    trie.markChanged(leafOfData);
+    mainBlock.clear();
+    records.subList(0, mainBlockRecordsCount).forEach(mainBlock::addRecord);
+
+    List<Long> runAddresses =
+        requiredBlocksCount == 0
+            ? List.of()
+            : fileBlockManager.takeOverflowBlocksRun(requiredBlocksCount, overflowAddresses);
+    mainBlock.setAddressOfOverflowBlock(
+        requiredBlocksCount == 0 ? INVALID_ADDRESS : runAddresses.get(0));
+
+    int recordIndex = mainBlockRecordsCount;
+    for (int i = 0; i < requiredBlocksCount; i++) {
+      Block<T> overflowBlock = new Block<>(overflowBlockingFactor, fileBlockManager.getTClass());
+      overflowBlock.setPreviousOverflowBlockAddress(
+          i == 0 ? INVALID_ADDRESS : runAddresses.get(i - 1));
+      overflowBlock.setNextOverflowBlockAddress(
+          i == requiredBlocksCount - 1 ? INVALID_ADDRESS : runAddresses.get(i + 1));
+
+      while (recordIndex < records.size() && overflowBlock.hasFreeSpace()) {
+        overflowBlock.addRecord(records.get(recordIndex++));
+      }
+      fileBlockManager.writeOverflowBlock(overflowBlock, runAddresses.get(i));
+    }
+    fileBlockManager.writeMainBlock(mainBlock, address);
+
+    // blocks from the end of file are released first, so the file is truncated by them
+    List<Long> releasedAddresses = new ArrayList<>(overflowAddresses);
+    releasedAddresses.removeAll(runAddresses);
+    releasedAddresses.sort(Collections.reverseOrder());
+    for (long releasedAddress : releasedAddresses) {
+      fileBlockManager.deleteOverflowBlock(
+          leafOfData,
+          new Block<>(overflowBlockingFactor, fileBlockManager.getTClass()),
+          releasedAddress);
+    }
+
+    updateCountsOfLeaf(leafOfData, records.size(), mainBlockRecordsCount);
+
+    // overflow blocks of run, released blocks and main block are written
+    return new ChainReorganization(
+        readBlocksCount + runAddresses.size() + releasedAddresses.size() + 1, true);
+  }
+
+  /** Addresses of overflow blocks of leaf in order of its chain. */
+  List<Long> getOverflowBlockAddresses(LeafTrieNode leafOfData) {
+    List<Long> addresses = new ArrayList<>();
+
+    lock.readLock().lock();
+    try {
+      long overflowBlockAddress =
+          fileBlockManager
+              .getMainBlockView(leafOfData.getAddressOfData())
+              .getAddressOfOverflowBlock();
+      while (overflowBlockAddress != INVALID_ADDRESS) {
+        addresses.add(overflowBlockAddress);
+        overflowBlockAddress =
+            fileBlockManager.getOverflowBlock(overflowBlockAddress).getNextOverflowBlockAddress();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return addresses;
+  }
+
+  /** Valid records of main block and overflow blocks of leaf in order of its chain. */
+  List<Record[]> getRecordsOfBlocks(LeafTrieNode leafOfData) {
+    List<Record[]> records = new ArrayList<>();
+
+    lock.readLock().lock();
+    try {
+      Block<T> block = fileBlockManager.getMainBlock(leafOfData.getAddressOfData());
+      records.add(block.getValidRecords());
+
+      long overflowBlockAddress = block.getAddressOfOverflowBlock();
+      while (overflowBlockAddress != INVALID_ADDRESS) {
+        block = fileBlockManager.getOverflowBlock(overflowBlockAddress);
+        records.add(block.getValidRecords());
+        overflowBlockAddress = block.getNextOverflowBlockAddress();
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+
+    return records;
+  }
+
+  /**
+   * Sets counts of leaf to its densely filled blocks.
+   *
+   * @return true when counts were changed
+   */
+  private boolean updateCountsOfLeaf(
+      LeafTrieNode leafOfData, int recordsCount, int mainBlockRecordsCount) {
+    int overflowBlockingFactor = fileBlockManager.getOverflowFileBlockingFactor();
+    int reserveRecordsCount = recordsCount - mainBlockRecordsCount;
+    int overflowBlocksCount =
+        (reserveRecordsCount + overflowBlockingFactor - 1) / overflowBlockingFactor;
+
+    if (leafOfData.getDataSizeInMainBlock() == mainBlockRecordsCount
+        && leafOfData.getDataSizeInReserveBlock() == reserveRecordsCount
+        && leafOfData.getOverflowBlocksCount() == overflowBlocksCount) {
+      return false;
+    }
+
+    leafOfData
+        .setDataSizeInMainBlock(mainBlockRecordsCount)
+        .setDataSizeInReserveBlocks(reserveRecordsCount)
+        .setOverflowBlocksCount(overflowBlocksCount);
+    return true;
+  }
+
   private boolean shouldMakeShakeOff(LeafTrieNode leafOfData) {
     int requiredNumberOfBlocks =
         (int)
@@ -368,6 +1457,9 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     if (mainBlock.getAddressOfOverflowBlock() == INVALID_ADDRESS) {
       return;
     }
+    operationRecorder.recordShakeOff();
+    ShakeOffEvent event = new ShakeOffEvent();
+    event.begin();
 
     List<Block<T>> overflowBlocksList = new ArrayList<>();
     List<Long> addressList = new ArrayList<>();
@@ -386,6 +1478,8 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
 
       addressOfNextOverflowBlock = overflowBlock.getNextOverflowBlockAddress();
     }
+    int recordsCount = records.size();
+    int releasedBlocksCount = 0;
 
     for (int i = 0; i < mainBlock.getBlockingFactor(); i++) {
       if (records.isEmpty()) {
@@ -465,6 +1559,7 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
         fileBlockManager.deleteOverflowBlock(
             nodeOfMainBlock, overflowBlock, addressOfOverflowBlock);
         overflowBlocksList.set(i, null);
+        releasedBlocksCount++;
       }
     }
 
@@ -476,6 +1571,18 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     }
 
     fileBlockManager.writeMainBlock(mainBlock, nodeOfMainBlock.getAddressOfData());
+
+    // records moved to main block are counted in it
+    nodeOfMainBlock
+        .setDataSizeInMainBlock(mainBlock.getValidRecordsCount())
+        .setDataSizeInReserveBlocks(recordsCount - mainBlock.getValidRecordsCount())
+        .setOverflowBlocksCount(overflowBlocksList.size() - releasedBlocksCount);
+    event.commit(
+        nodeOfMainBlock.getAddressOfData(),
+        nodeOfMainBlock.getDepth(),
+        recordsCount,
+        overflowBlocksList.size(),
+        releasedBlocksCount);
   }
 
   private Block<T> getPreviousNonNullBlock(List<Block<T>> blockList, int currentIndex) {
@@ -518,12 +1625,49 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     }
   }
 
+  /** Count of records computed from leaves of trie. */
+  public long getRecordCount() {
+    long recordCount = 0;
+
+    for (TrieNode node : getTrieNodes()) {
+      if (node instanceof LeafTrieNode leaf) {
+        recordCount += leaf.getDataSizeInMainBlock() + leaf.getDataSizeInReserveBlock();
+      }
+    }
+
+    return recordCount;
+  }
+
   @Override
   public void close() throws IOException {
+    // scheduled operations are finished before files are closed, failed reorganization too
     try {
-      fileBlockManager.close();
+      if (overflowReorganizer != null) {
+        overflowReorganizer.close();
+      }
+    } finally {
+      closeFiles();
+    }
+  }
+
+  private void closeFiles() throws IOException {
+    ioScheduler.close();
+    fileBlockManager.stopPeriodicSync();
+    unregisterMetricsMXBean();
+    DynamicHashFileInfo info = getInfo();
+
+    lock.writeLock().lock();
+    try {
+      try {
+        fileBlockManager.writeTrieCheckpoint(
+            trie.root, getRecordCount(), hashStrategy, info.indexType(), info.maxDirectoryDepth());
+      } finally {
+        fileBlockManager.close();
+      }
     } catch (IOException e) {
       throw new IOException(e);
+    } finally {
+      lock.writeLock().unlock();
     }
   }
 
@@ -533,52 +1677,223 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     Stack<TrieNode> nodesStack = new Stack<>();
     nodesStack.push(trie.root);
 
-    while (!nodesStack.isEmpty()) {
-      TrieNode currentNode = nodesStack.pop();
-      nodes.add(currentNode);
+    lock.readLock().lock();
+    try {
+      while (!nodesStack.isEmpty()) {
+        TrieNode currentNode = nodesStack.pop();
+        nodes.add(currentNode);
 
-      if (currentNode instanceof InnerTrieNode innerCurrentNode) {
-        if (innerCurrentNode.getRightSon() != null) {
-          nodesStack.push(innerCurrentNode.getRightSon());
-        } else {
-          nodes.add(null);
-        }
+        if (currentNode instanceof InnerTrieNode innerCurrentNode) {
+          if (innerCurrentNode.getRightSon() != null) {
+            nodesStack.push(innerCurrentNode.getRightSon());
+          } else {
+            nodes.add(null);
+          }
 
-        if (innerCurrentNode.getLeftSon() != null) {
-          nodesStack.push(innerCurrentNode.getLeftSon());
-        } else {
-          nodes.add(null);
+          if (innerCurrentNode.getLeftSon() != null) {
+            nodesStack.push(innerCurrentNode.getLeftSon());
+          } else {
+            nodes.add(null);
+          }
         }
       }
+    } finally {
+      lock.readLock().unlock();
     }
 
     return nodes;
   }
 
+  public BlockCacheStatistics getMainFileCacheStatistics() {
+    return fileBlockManager.getMainFileCacheStatistics();
+  }
+
+  public BlockCacheStatistics getOverflowFileCacheStatistics() {
+    return fileBlockManager.getOverflowFileCacheStatistics();
+  }
+
+  /** Count and latency of forces of files and size of their batches. */
+  public SyncStatistics getSyncStatistics() {
+    return fileBlockManager.getSyncStatistics();
+  }
+
+  /** Block I/O of files and latencies and costs of operations since the file was opened. */
+  public DynamicHashFileMetrics getMetrics() {
+    return operationRecorder.getMetrics(
+        fileBlockManager.getMainFileIoMetrics(), fileBlockManager.getOverflowFileIoMetrics());
+  }
+
+  /**
+   * @return null when metrics are not registered in MBean server
+   */
+  private static ObjectName getMetricsMXBeanName(
+      String pathToMainFile, DynamicHashFileConfiguration configuration) {
+    if (!configuration.isMetricsMXBean()) {
+      return null;
+    }
+
+    ObjectName name;
+    try {
+      name =
+          new ObjectName(
+              String.format(
+                  "structure.dynamichashfile:type=DynamicHashFile,name=%s",
+                  ObjectName.quote(pathToMainFile)));
+    } catch (JMException e) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Metrics of file %s cannot be named. Error message: %s",
+              pathToMainFile, e.getLocalizedMessage()));
+    }
+
+    if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+      throw new IllegalStateException(
+          String.format("Metrics of file %s are already registered!", pathToMainFile));
+    }
+
+    return name;
+  }
+
+  private void registerMetricsMXBean() throws IOException {
+    if (metricsMXBeanName == null) {
+      return;
+    }
+
+    try {
+      ManagementFactory.getPlatformMBeanServer()
+          .registerMBean(new DynamicHashFileMetricsBean(this::getMetrics), metricsMXBeanName);
+    } catch (JMException e) {
+      ioScheduler.close();
+      fileBlockManager.close();
+      throw new IllegalStateException(
+          String.format(
+              "Metrics of file %s cannot be registered. Error message: %s",
+              fileBlockManager.getMainFilePath(), e.getLocalizedMessage()));
+    }
+  }
+
+  private void unregisterMetricsMXBean() {
+    if (metricsMXBeanName == null) {
+      return;
+    }
+
+    try {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsMXBeanName);
+    } catch (JMException e) {
+      // bean was already unregistered by someone else
+    }
+  }
+
   public DynamicHashFileInfo getInfo() {
     return new DynamicHashFileInfo(
         fileBlockManager.getMainFileBlockingFactor(),
         fileBlockManager.getOverflowFileBlockingFactor(),
         fileBlockManager.getTClass(),
         fileBlockManager.getMainFilePath(),
-        fileBlockManager.getOvetflowFilePath());
+        fileBlockManager.getOvetflowFilePath(),
+        trie.indexType,
+        trie.directory == null
+            ? DynamicHashFileConfiguration.DEFAULT_MAX_DIRECTORY_DEPTH
+            : trie.directory.getMaxGlobalDepth());
   }
 
   private class Trie {
     private final InnerTrieNode root;
     private final int maxDepth;
+    private final IndexType indexType;
+    // only in directory mode, otherwise leaves are searched from root
+    private final TrieDirectory directory;
+    // only in compact trie mode
+    private final CompactTrie compactTrie;
+    // nodes with changed sons or counters since last commit, only when file is logged
+    private final Set<TrieNode> changedNodes;
+
+    private Trie(int maxDepth, DynamicHashFileConfiguration configuration) {
+      this(createRoot(maxDepth), maxDepth, configuration);
+    }
 
-    private Trie(int maxDepth) {
-      root = new InnerTrieNode(null, maxDepth);
+    private Trie(InnerTrieNode root, int maxDepth, DynamicHashFileConfiguration configuration) {
+      this.root = root;
+      this.maxDepth = maxDepth;
+      this.indexType = configuration.getIndexType();
+      this.directory =
+          indexType == IndexType.DIRECTORY
+              ? new TrieDirectory(root, Math.min(configuration.getMaxDirectoryDepth(), maxDepth))
+              : null;
+      this.compactTrie = indexType == IndexType.COMPACT_TRIE ? new CompactTrie(root) : null;
+      this.changedNodes =
+          fileBlockManager.isLogged() ? Collections.newSetFromMap(new IdentityHashMap<>()) : null;
+    }
+
+    private static InnerTrieNode createRoot(int maxDepth) {
+      InnerTrieNode root = new InnerTrieNode(null, maxDepth);
       root.setLeftSon(new LeafTrieNode(root, maxDepth));
       root.setRightSon(new LeafTrieNode(root, maxDepth));
 
-      this.maxDepth = maxDepth;
+      return root;
     }
 
-    private Trie(InnerTrieNode root, int maxDepth) {
-      this.root = root;
-      this.maxDepth = maxDepth;
+    /** Has to be called after every change of sons of node. */
+    private void onSonsChanged(InnerTrieNode changedNode) {
+      if (directory != null) {
+        directory.refresh(changedNode);
+      }
+      if (compactTrie != null) {
+        compactTrie.refresh(changedNode);
+      }
+
+      markChanged(changedNode);
+    }
+
+    /** Has to be called for leaf with changed counters or address, whole subtree is logged. */
+    private void markChanged(TrieNode changedNode) {
+      if (changedNodes != null) {
+        changedNodes.add(changedNode);
+      }
+    }
+
+    /**
+     * Changed subtrees still attached to trie. Subtree inside another changed subtree is not
+     * returned, it is saved with it.
+     */
+    private List<TrieDelta> takeChanges() throws IOException {
+      List<TrieDelta> deltas = new ArrayList<>();
+
+      for (TrieNode changedNode : changedNodes) {
+        TrieDelta delta = getDelta(changedNode);
+
+        if (delta != null) {
+          deltas.add(delta);
+        }
+      }
+
+      changedNodes.clear();
+      return deltas;
+    }
+
+    private TrieDelta getDelta(TrieNode changedNode) throws IOException {
+      // bits of path are collected from the deepest one, which ends on the highest position
+      long prefix = 0;
+      int depth = 0;
+
+      for (TrieNode node = changedNode; node != root; node = node.getParent()) {
+        if (!(node.getParent() instanceof InnerTrieNode parent)
+            || (parent.getLeftSon() != node && parent.getRightSon() != node)
+            || changedNodes.contains(parent)) {
+          // node was removed from trie, or it is saved with its changed ancestor
+          return null;
+        }
+
+        prefix = (prefix << 1) | (parent.getLeftSon() == node ? 1 : 0);
+        depth++;
+      }
+
+      ByteArrayOutputStream subtree = new ByteArrayOutputStream();
+      try (DataOutputStream outputStream = new DataOutputStream(subtree)) {
+        BinaryBuilderTrie.writeTrie(changedNode, outputStream);
+      }
+
+      return new TrieDelta(depth, prefix, subtree.toByteArray());
     }
 
     private static <T extends Record> void fillBlockFromOtherBlock(
@@ -588,21 +1903,68 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
       }
     }
 
-    private LeafTrieNode getLeafOfData(BitSet hash) {
+    /**
+     * Leaf of data without creating missing leaves and blocks.
+     *
+     * @return null when leaf of data does not exist
+     */
+    private LeafTrieNode findLeafOfData(long hashBits) {
+      int currentBitSetIndex = 0;
+      TrieNode currentNode = root;
+
+      if (directory != null) {
+        currentBitSetIndex = directory.getDepthOfNode(hashBits);
+        currentNode = directory.getNode(hashBits);
+      } else if (compactTrie != null) {
+        currentNode = compactTrie.getLeaf(hashBits);
+      }
+
+      while (currentNode instanceof InnerTrieNode innerNode) {
+        currentNode =
+            Record.isHashBitSet(hashBits, currentBitSetIndex++)
+                ? innerNode.getLeftSon()
+                : innerNode.getRightSon();
+      }
+
+      if (currentNode != null) {
+        operationRecorder.recordTrieDepth(currentNode.getDepth());
+      }
+      return (LeafTrieNode) currentNode;
+    }
+
+    private LeafTrieNode getLeafOfData(long hashBits) {
       int currentBitSetIndex = 0;
       TrieNode currentNode = root;
       TrieNode parent;
 
+      if (directory != null) {
+        // directory skips first levels of trie, search continues from node in it
+        currentBitSetIndex = directory.getDepthOfNode(hashBits);
+        currentNode = directory.getNode(hashBits);
+
+        if (currentNode instanceof LeafTrieNode leafNode) {
+          return createBlockIfMissing(leafNode);
+        }
+      } else if (compactTrie != null) {
+        // missing leaf is created by search from root
+        LeafTrieNode leafNode = compactTrie.getLeaf(hashBits);
+
+        if (leafNode != null) {
+          return createBlockIfMissing(leafNode);
+        }
+      }
+
       do {
         parent = currentNode;
 
+        boolean isBitSet = Record.isHashBitSet(hashBits, currentBitSetIndex);
         currentNode =
-            hash.get(currentBitSetIndex)
+            isBitSet
                 ? ((InnerTrieNode) currentNode).getLeftSon()
                 : ((InnerTrieNode) currentNode).getRightSon();
 
         if (currentNode == null) {
-          currentNode = createLeafNode((InnerTrieNode) parent, hash.get(currentBitSetIndex));
+          currentNode = createLeafNode((InnerTrieNode) parent, isBitSet);
         }
 
         if (currentNode instanceof InnerTrieNode) {
@@ -610,19 +1972,25 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
           continue;
         }
 
-        // if node has no address, create one
-        LeafTrieNode currentLeafNode = (LeafTrieNode) currentNode;
-        if (currentLeafNode.getAddressOfData() == INVALID_ADDRESS) {
-          currentLeafNode.setAddressOfData(fileBlockManager.getNewMainBlockAddress());
-          fileBlockManager.createMainBlock(currentLeafNode.getAddressOfData());
-        }
-
-        return currentLeafNode;
+        return createBlockIfMissing((LeafTrieNode) currentNode);
       } while (currentBitSetIndex != maxDepth + 1);
 
       return LeafTrieNode.getInvalidAddressNode();
     }
 
+    private LeafTrieNode createBlockIfMissing(LeafTrieNode leafNode) {
+      operationRecorder.recordTrieDepth(leafNode.getDepth());
+
+      // if node has no address, create one
+      if (leafNode.getAddressOfData() == INVALID_ADDRESS) {
+        leafNode.setAddressOfData(fileBlockManager.getNewMainBlockAddress());
+        fileBlockManager.createMainBlock(leafNode.getAddressOfData());
+        markChanged(leafNode);
+      }
+
+      return leafNode;
+    }
+
     private LeafTrieNode createLeafNode(InnerTrieNode parent, boolean isLeftSon) {
       LeafTrieNode createdNode = new LeafTrieNode(parent, maxDepth);
 
@@ -635,13 +2003,27 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
       long address = fileBlockManager.getNewMainBlockAddress();
       createdNode.setAddressOfData(address);
       fileBlockManager.createMainBlock(address);
+
+      onSonsChanged(parent);
       return createdNode;
     }
 
     public void expandLeafByHash(Record[] dataToFill, LeafTrieNode leafToExpand)
         throws IOException {
+      LeafExpandEvent event = new LeafExpandEvent();
+      event.begin();
+      long addressOfExpandedLeaf = leafToExpand.getAddressOfData();
+      int iterations = 0;
+
       LeafTrieNode leafBeingExpanded = leafToExpand;
       InnerTrieNode parentOfOriginalLeaf = (InnerTrieNode) leafBeingExpanded.getParent();
+      InnerTrieNode changedNode = parentOfOriginalLeaf;
+
+      // hashes are used on every level of expansion
+      long[] hashesOfData = new long[dataToFill.length];
+      for (int i = 0; i < dataToFill.length; i++) {
+        hashesOfData[i] = hashStrategy.hash(dataToFill[i]);
+      }
 
       while (true) {
 
@@ -649,6 +2031,8 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
           insertDataInOveflowFile(dataToFill[dataToFill.length - 1], leafBeingExpanded);
           break;
         }
+        operationRecorder.recordExpandIteration();
+        iterations++;
 
         InnerTrieNode newTransformedInnerNode = new InnerTrieNode(parentOfOriginalLeaf, maxDepth);
 
@@ -671,6 +2055,7 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
         boolean blockIsFull =
             fillBlocksByBits(
                 dataToFill,
+                hashesOfData,
                 leftSonBlock,
                 rightSonBlock,
                 newTransformedInnerNode.getDepth(),
@@ -712,6 +2097,94 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
 
         break;
       }
+
+      onSonsChanged(changedNode);
+      event.commit(addressOfExpandedLeaf, leafToExpand.getDepth(), dataToFill.length, iterations);
+    }
+
+    /**
+     * Replaces leaf by subtree with blocks holding all given records. Unlike expandLeafByHash it
+     * accepts any number of records, every new block is written only once.
+     */
+    private void splitLeafByHash(List<Record> dataToFill, LeafTrieNode leafToSplit)
+        throws IOException {
+      InnerTrieNode parentOfLeaf = (InnerTrieNode) leafToSplit.getParent();
+      boolean isLeftSon = parentOfLeaf.getLeftSon() == leafToSplit;
+
+      fileBlockManager.deleteMainBlock(leafToSplit);
+
+      Record[] records = dataToFill.toArray(new Record[0]);
+      long[] hashes = new long[records.length];
+      for (int i = 0; i < records.length; i++) {
+        hashes[i] = hashStrategy.hash(records[i]);
+      }
+
+      TrieNode subtree = createSubtree(records, hashes, 0, records.length, parentOfLeaf);
+
+      if (isLeftSon) {
+        parentOfLeaf.setLeftSon(subtree);
+      } else {
+        parentOfLeaf.setRightSon(subtree);
+      }
+
+      onSonsChanged(parentOfLeaf);
+    }
+
+    /** Creates subtree for records between from and to, records are reordered in place. */
+    private TrieNode createSubtree(
+        Record[] records, long[] hashes, int from, int to, InnerTrieNode parent) {
+      if (from == to) {
+        return null;
+      }
+
+      int depth = parent.getDepth() + 1;
+      int blockingFactor = fileBlockManager.getMainFileBlockingFactor();
+
+      if (to - from > blockingFactor && depth < maxDepth) {
+        InnerTrieNode innerNode = new InnerTrieNode(parent, maxDepth);
+
+        // records with set bit are moved before others, they belong to left son - order of
+        // records is kept, so blocks are filled same as by inserts of single records
+        Record[] rightSonRecords = new Record[to - from];
+        long[] rightSonHashes = new long[to - from];
+        int leftSonEnd = from;
+        int rightSonCount = 0;
+        for (int i = from; i < to; i++) {
+          if (Record.isHashBitSet(hashes[i], depth)) {
+            records[leftSonEnd] = records[i];
+            hashes[leftSonEnd] = hashes[i];
+            leftSonEnd++;
+          } else {
+            rightSonRecords[rightSonCount] = records[i];
+            rightSonHashes[rightSonCount] = hashes[i];
+            rightSonCount++;
+          }
+        }
+        System.arraycopy(rightSonRecords, 0, records, leftSonEnd, rightSonCount);
+        System.arraycopy(rightSonHashes, 0, hashes, leftSonEnd, rightSonCount);
+
+        innerNode.setLeftSon(createSubtree(records, hashes, from, leftSonEnd, innerNode));
+        innerNode.setRightSon(createSubtree(records, hashes, leftSonEnd, to, innerNode));
+        return innerNode;
+      }
+
+      LeafTrieNode leaf = new LeafTrieNode(parent, maxDepth);
+      Block<T> block = new Block<>(blockingFactor, fileBlockManager.getTClass());
+
+      int mainBlockEnd = Math.min(to, from + blockingFactor);
+      for (int i = from; i < mainBlockEnd; i++) {
+        block.addRecord(records[i]);
+      }
+      leaf.addDataInMainBlock(mainBlockEnd - from);
+      leaf.setAddressOfData(fileBlockManager.getNewMainBlockAddress());
+      fileBlockManager.writeMainBlock(block, leaf.getAddressOfData());
+
+      // leaf in max depth cannot be split anymore
+      for (int i = mainBlockEnd; i < to; i++) {
+        insertDataInOveflowFile(records[i], leaf);
+      }
+
+      return leaf;
     }
 
     private void insertDataInOveflowFile(Record dataToInsert, LeafTrieNode nodeOfMainBlock) {
@@ -770,15 +2243,17 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
 
     private boolean fillBlocksByBits(
         Record[] dataToFill,
+        long[] hashesOfData,
         Block<T> leftSonBlock,
         Block<T> rightSonBlock,
         int depth,
         LeafTrieNode leftSon,
         LeafTrieNode rightSon) {
       boolean blockIsFullFlag = false;
-      for (Record record : dataToFill) {
+      for (int i = 0; i < dataToFill.length; i++) {
+        Record record = dataToFill[i];
         try {
-          if (record.hash().get(depth)) {
+          if (Record.isHashBitSet(hashesOfData[i], depth)) {
             leftSonBlock.addRecord(record);
             leftSon.addDataInMainBlock();
           } else {
@@ -794,6 +2269,9 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
     }
 
     private void shrinkLeaves(InnerTrieNode parentNodeToShrink) throws IOException {
+      LeavesShrinkEvent event = new LeavesShrinkEvent();
+      event.begin();
+
       LeafTrieNode leftChild = (LeafTrieNode) parentNodeToShrink.getLeftSon();
       LeafTrieNode rightChild = (LeafTrieNode) parentNodeToShrink.getRightSon();
 
@@ -858,6 +2336,10 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
 
       fileBlockManager.deleteMainBlock(leftChild);
       fileBlockManager.deleteMainBlock(rightChild);
+
+      onSonsChanged(parentOfParent);
+      event.commit(
+          addressOfNewParent, newParentToShrinkChildrenInto.getDepth(), itemCountOfChildren);
     }
 
     public void shrinkIfNeeded(InnerTrieNode nodeToShrink) throws IOException {
@@ -896,6 +2378,8 @@ public class DynamicHashFile<T extends Record> implements AutoCloseable {
               currentNode.setRightSon(null);
             }
           }
+
+          onSonsChanged(currentNode);
           break;
         }
 
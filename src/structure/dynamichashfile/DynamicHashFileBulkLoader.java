@@ -0,0 +1,262 @@
+package structure.dynamichashfile;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import structure.dynamichashfile.entity.Block;
+import structure.dynamichashfile.entity.record.Record;
+import structure.dynamichashfile.entity.record.RecordFactory;
+import structure.dynamichashfile.hash.IHashStrategy;
+import structure.dynamichashfile.trie.InnerTrieNode;
+import structure.dynamichashfile.trie.LeafTrieNode;
+import structure.dynamichashfile.trie.TrieNode;
+
+/**
+ * Creates new DynamicHashFile from records sorted in order of trie leaves. Records are read in one
+ * pass, every subtree gets depth just big enough for its records and every block is written once
+ * on the end of its file. Existing content of both files is deleted.
+ */
+public class DynamicHashFileBulkLoader<T extends Record> {
+  private static final int INVALID_ADDRESS = Block.getInvalidAddress();
+  private static final Subtree EMPTY_SUBTREE = new Subtree(List.of(), null);
+  private final String pathToMainFile;
+  private final String pathToOverflowFile;
+  private final int blockingFactorOfMainFile;
+  private final int blockingFactorOfOverflowFile;
+  private final Class<T> tClass;
+  private final T tDummyInstance;
+  private DynamicHashFileConfiguration configuration;
+  private IHashStrategy hashStrategy;
+  private int maxDepth;
+  private FileBlockManager<T> fileBlockManager;
+  private Iterator<T> records;
+  private T nextRecord;
+  private long nextRecordKey;
+
+  public DynamicHashFileBulkLoader(
+      String pathToMainFile,
+      String pathToOverflowFile,
+      int blockingFactorOfMainFile,
+      int blockingFactorOfOverflowFile,
+      Class<T> tClass) {
+    this.pathToMainFile = pathToMainFile;
+    this.pathToOverflowFile = pathToOverflowFile;
+    this.blockingFactorOfMainFile = blockingFactorOfMainFile;
+    this.blockingFactorOfOverflowFile = blockingFactorOfOverflowFile;
+    this.tClass = tClass;
+    this.tDummyInstance = RecordFactory.getDummyInstance(tClass);
+    setConfiguration(new DynamicHashFileConfiguration());
+  }
+
+  public DynamicHashFileBulkLoader<T> setConfiguration(DynamicHashFileConfiguration configuration) {
+    if (configuration == null) {
+      throw new IllegalArgumentException("Configuration cannot be null!");
+    }
+
+    this.configuration = configuration;
+    this.hashStrategy = configuration.getHashStrategy(tDummyInstance);
+    this.maxDepth = hashStrategy.getHashSize();
+    return this;
+  }
+
+  /**
+   * Key ordering records the same way as leaves of trie. Left son is used for set bit, so set bit
+   * is ordered before not set one.
+   */
+  public static long getKey(Record record, IHashStrategy hashStrategy) {
+    // bit i of hash is moved to position hash size - 1 - i and negated
+    return Long.reverse(~hashStrategy.hash(record)) >>> (Long.SIZE - hashStrategy.getHashSize());
+  }
+
+  /** Sorts records by their key and loads them. */
+  public DynamicHashFile<T> load(Collection<T> recordsToLoad) throws IOException {
+    List<Map.Entry<Long, T>> keyedRecords = new ArrayList<>(recordsToLoad.size());
+    for (T record : recordsToLoad) {
+      keyedRecords.add(Map.entry(getKey(record, hashStrategy), record));
+    }
+    keyedRecords.sort((first, second) -> Long.compareUnsigned(first.getKey(), second.getKey()));
+
+    return loadSorted(keyedRecords.stream().map(Map.Entry::getValue).iterator());
+  }
+
+  /**
+   * Loads records which are already sorted by {@link #getKey(Record, IHashStrategy)} with hash
+   * strategy of configuration.
+   *
+   * @throws IllegalArgumentException when records are not sorted
+   * @throws IllegalStateException when there are two equal records
+   */
+  public DynamicHashFile<T> loadSorted(Iterator<T> sortedRecords) throws IOException {
+    clearFile(pathToMainFile);
+    clearFile(pathToOverflowFile);
+    // log of previous content cannot be replayed over new one
+    Files.deleteIfExists(Path.of(FileBlockManager.getPathToLog(pathToMainFile)));
+
+    InnerTrieNode root = new InnerTrieNode(null, maxDepth);
+
+    try (FileBlockManager<T> manager =
+        new FileBlockManager<>(
+            pathToMainFile,
+            blockingFactorOfMainFile,
+            pathToOverflowFile,
+            blockingFactorOfOverflowFile,
+            tClass,
+            configuration)) {
+      this.fileBlockManager = manager;
+      this.records = sortedRecords;
+      moveToNextRecord();
+
+      // root is never a leaf, so its sons are created even for small number of records
+      root.setLeftSon(toNode(loadSonSubtree(root, 0), root));
+      root.setRightSon(toNode(loadSonSubtree(root, 1), root));
+    } finally {
+      this.fileBlockManager = null;
+      this.records = null;
+      this.nextRecord = null;
+    }
+
+    return new DynamicHashFile<>(
+        pathToMainFile,
+        pathToOverflowFile,
+        blockingFactorOfMainFile,
+        blockingFactorOfOverflowFile,
+        tClass,
+        root,
+        configuration);
+  }
+
+  private static void clearFile(String path) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(path, "rw")) {
+      file.setLength(0);
+    }
+  }
+
+  /** Loads subtree of son of parent, which is given by prefix of keys. */
+  private Subtree loadSonSubtree(InnerTrieNode parent, long prefix) {
+    int depth = parent.getDepth() + 1;
+
+    if (nextRecord == null || nextRecordKey >>> (maxDepth - depth) != prefix) {
+      return EMPTY_SUBTREE;
+    }
+
+    if (depth == maxDepth) {
+      // all records with the same hash
+      List<Record> recordsOfLeaf = new ArrayList<>();
+      while (nextRecord != null && nextRecordKey == prefix) {
+        if (recordsOfLeaf.contains(nextRecord)) {
+          throw new IllegalStateException(
+              String.format("Cannot load record %s more than once!", nextRecord));
+        }
+
+        recordsOfLeaf.add(nextRecord);
+        moveToNextRecord();
+      }
+
+      return recordsOfLeaf.size() <= blockingFactorOfMainFile
+          ? new Subtree(recordsOfLeaf, null)
+          : new Subtree(null, writeLeaf(parent, recordsOfLeaf));
+    }
+
+    InnerTrieNode node = new InnerTrieNode(parent, maxDepth);
+    Subtree leftSon = loadSonSubtree(node, prefix << 1);
+    Subtree rightSon = loadSonSubtree(node, (prefix << 1) | 1);
+
+    if (leftSon.records != null
+        && rightSon.records != null
+        && leftSon.records.size() + rightSon.records.size() <= blockingFactorOfMainFile) {
+      // both sons fit into one block, subtree will be only one leaf
+      List<Record> recordsOfLeaf = new ArrayList<>(leftSon.records);
+      recordsOfLeaf.addAll(rightSon.records);
+      return new Subtree(recordsOfLeaf, null);
+    }
+
+    node.setLeftSon(toNode(leftSon, node));
+    node.setRightSon(toNode(rightSon, node));
+    return new Subtree(null, node);
+  }
+
+  private TrieNode toNode(Subtree subtree, InnerTrieNode parent) {
+    if (subtree.node != null) {
+      return subtree.node;
+    }
+
+    return subtree.records.isEmpty() ? null : writeLeaf(parent, subtree.records);
+  }
+
+  private LeafTrieNode writeLeaf(InnerTrieNode parent, List<Record> recordsOfLeaf) {
+    LeafTrieNode leaf = new LeafTrieNode(parent, maxDepth);
+    Block<T> mainBlock = new Block<>(blockingFactorOfMainFile, tClass);
+
+    int dataInMainBlockCount = Math.min(recordsOfLeaf.size(), blockingFactorOfMainFile);
+    for (int i = 0; i < dataInMainBlockCount; i++) {
+      mainBlock.addRecord(recordsOfLeaf.get(i));
+    }
+    leaf.addDataInMainBlock(dataInMainBlockCount);
+    leaf.setAddressOfData(fileBlockManager.getNewMainBlockAddress());
+
+    // only leaf in max depth can have more records than blocking factor
+    List<Record> overflowRecords =
+        recordsOfLeaf.subList(dataInMainBlockCount, recordsOfLeaf.size());
+    if (!overflowRecords.isEmpty()) {
+      mainBlock.setAddressOfOverflowBlock(writeOverflowBlocks(leaf, overflowRecords));
+    }
+
+    fileBlockManager.writeMainBlock(mainBlock, leaf.getAddressOfData());
+    return leaf;
+  }
+
+  private long writeOverflowBlocks(LeafTrieNode leaf, List<Record> overflowRecords) {
+    int overflowBlocksCount =
+        (overflowRecords.size() + blockingFactorOfOverflowFile - 1) / blockingFactorOfOverflowFile;
+
+    long[] addresses = new long[overflowBlocksCount];
+    for (int i = 0; i < overflowBlocksCount; i++) {
+      addresses[i] = fileBlockManager.getNewOverflowBlockAddress();
+    }
+
+    for (int i = 0; i < overflowBlocksCount; i++) {
+      Block<T> overflowBlock = new Block<>(blockingFactorOfOverflowFile, tClass);
+
+      int from = i * blockingFactorOfOverflowFile;
+      int to = Math.min(from + blockingFactorOfOverflowFile, overflowRecords.size());
+      overflowRecords.subList(from, to).forEach(overflowBlock::addRecord);
+
+      overflowBlock
+          .setPreviousOverflowBlockAddress(i == 0 ? INVALID_ADDRESS : addresses[i - 1])
+          .setNextOverflowBlockAddress(
+              i == overflowBlocksCount - 1 ? INVALID_ADDRESS : addresses[i + 1]);
+
+      fileBlockManager.writeOverflowBlock(overflowBlock, addresses[i]);
+    }
+
+    leaf.setOverflowBlocksCount(overflowBlocksCount);
+    leaf.setDataSizeInReserveBlocks(overflowRecords.size());
+    return addresses[0];
+  }
+
+  private void moveToNextRecord() {
+    if (!records.hasNext()) {
+      nextRecord = null;
+      return;
+    }
+
+    T record = records.next();
+    if (record == null) {
+      throw new IllegalArgumentException("Cannot load null record!");
+    }
+
+    long key = getKey(record, hashStrategy);
+    if (nextRecord != null && Long.compareUnsigned(key, nextRecordKey) < 0) {
+      throw new IllegalArgumentException(
+          String.format("Records are not sorted! Record %s is out of order.", record));
+    }
+
+    nextRecord = record;
+    nextRecordKey = key;
+  }
+
+  /** Records of subtree which still fit into one block, or already written subtree. */
+  private record Subtree(List<Record> records, TrieNode node) {}
+}
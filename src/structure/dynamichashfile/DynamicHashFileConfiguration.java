@@ -0,0 +1,341 @@
+package structure.dynamichashfile;
+
+import java.util.concurrent.Executor;
+import structure.dynamichashfile.constant.CacheWritePolicy;
+import structure.dynamichashfile.constant.DurabilityMode;
+import structure.dynamichashfile.constant.IndexType;
+import structure.dynamichashfile.constant.StorageType;
+import structure.dynamichashfile.entity.record.Record;
+import structure.dynamichashfile.hash.IHashStrategy;
+import structure.dynamichashfile.hash.RecordHashStrategy;
+
+/** Optional settings of DynamicHashFile. Default values keep behaviour of plain constructors. */
+public class DynamicHashFileConfiguration {
+  public static final int DEFAULT_CACHE_CAPACITY_IN_BLOCKS = 64;
+  public static final int DEFAULT_MAX_DIRECTORY_DEPTH = 20;
+  public static final int DEFAULT_LOG_CHECKPOINT_INTERVAL = 10_000;
+  public static final long DEFAULT_DURABILITY_PERIOD_MILLIS = 1000;
+  private static final int MAX_DIRECTORY_DEPTH = 30;
+  private int cacheCapacityInBlocks;
+  private long cacheCapacityInBytes;
+  private CacheWritePolicy cacheWritePolicy;
+  private StorageType storageType;
+  private IHashStrategy hashStrategy;
+  private IndexType indexType;
+  private int maxDirectoryDepth;
+  private boolean writeAheadLog;
+  private int logGroupCommitSize;
+  private int logCheckpointInterval;
+  private DurabilityMode durabilityMode;
+  private long durabilityPeriodMillis;
+  private Executor asyncExecutor;
+  private int asyncReadersCount;
+  private boolean metricsMXBean;
+  private int overflowReorganizationRate;
+
+  public DynamicHashFileConfiguration() {
+    this.cacheCapacityInBlocks = DEFAULT_CACHE_CAPACITY_IN_BLOCKS;
+    this.cacheCapacityInBytes = 0;
+    this.cacheWritePolicy = CacheWritePolicy.WRITE_THROUGH;
+    this.storageType = StorageType.RANDOM_ACCESS_FILE;
+    this.indexType = IndexType.TRIE;
+    this.maxDirectoryDepth = DEFAULT_MAX_DIRECTORY_DEPTH;
+    this.writeAheadLog = false;
+    this.logGroupCommitSize = 1;
+    this.logCheckpointInterval = DEFAULT_LOG_CHECKPOINT_INTERVAL;
+    this.durabilityMode = DurabilityMode.NONE;
+    this.durabilityPeriodMillis = DEFAULT_DURABILITY_PERIOD_MILLIS;
+    this.asyncReadersCount = Runtime.getRuntime().availableProcessors();
+    this.metricsMXBean = false;
+    this.overflowReorganizationRate = 0;
+  }
+
+  public int getCacheCapacityInBlocks() {
+    return cacheCapacityInBlocks;
+  }
+
+  /**
+   * @param cacheCapacityInBlocks number of cached blocks per file, 0 turns the cache off
+   */
+  public DynamicHashFileConfiguration setCacheCapacityInBlocks(int cacheCapacityInBlocks) {
+    if (cacheCapacityInBlocks < 0) {
+      throw new IllegalArgumentException("Cache capacity cannot be negative!");
+    }
+
+    this.cacheCapacityInBlocks = cacheCapacityInBlocks;
+    this.cacheCapacityInBytes = 0;
+    return this;
+  }
+
+  public long getCacheCapacityInBytes() {
+    return cacheCapacityInBytes;
+  }
+
+  /**
+   * @param cacheCapacityInBytes memory for cached blocks per file, replaces capacity in blocks
+   */
+  public DynamicHashFileConfiguration setCacheCapacityInBytes(long cacheCapacityInBytes) {
+    if (cacheCapacityInBytes < 0) {
+      throw new IllegalArgumentException("Cache capacity cannot be negative!");
+    }
+
+    this.cacheCapacityInBytes = cacheCapacityInBytes;
+    return this;
+  }
+
+  public CacheWritePolicy getCacheWritePolicy() {
+    return cacheWritePolicy;
+  }
+
+  public DynamicHashFileConfiguration setCacheWritePolicy(CacheWritePolicy cacheWritePolicy) {
+    if (cacheWritePolicy == null) {
+      throw new IllegalArgumentException("Cache write policy cannot be null!");
+    }
+
+    this.cacheWritePolicy = cacheWritePolicy;
+    return this;
+  }
+
+  public StorageType getStorageType() {
+    return storageType;
+  }
+
+  public DynamicHashFileConfiguration setStorageType(StorageType storageType) {
+    if (storageType == null) {
+      throw new IllegalArgumentException("Storage type cannot be null!");
+    }
+
+    this.storageType = storageType;
+    return this;
+  }
+
+  public IHashStrategy getHashStrategy() {
+    return hashStrategy;
+  }
+
+  /**
+   * @param hashStrategy hash used by trie, null uses hash of record with its max hash size
+   */
+  public DynamicHashFileConfiguration setHashStrategy(IHashStrategy hashStrategy) {
+    this.hashStrategy = hashStrategy;
+    return this;
+  }
+
+  public IndexType getIndexType() {
+    return indexType;
+  }
+
+  public DynamicHashFileConfiguration setIndexType(IndexType indexType) {
+    if (indexType == null) {
+      throw new IllegalArgumentException("Index type cannot be null!");
+    }
+
+    this.indexType = indexType;
+    return this;
+  }
+
+  public int getMaxDirectoryDepth() {
+    return maxDirectoryDepth;
+  }
+
+  /**
+   * @param maxDirectoryDepth max global depth of directory, directory has 2^depth entries
+   */
+  public DynamicHashFileConfiguration setMaxDirectoryDepth(int maxDirectoryDepth) {
+    if (maxDirectoryDepth < 1 || maxDirectoryDepth > MAX_DIRECTORY_DEPTH) {
+      throw new IllegalArgumentException(
+          String.format(
+              "Max directory depth %d must be between 1 and %d!",
+              maxDirectoryDepth, MAX_DIRECTORY_DEPTH));
+    }
+
+    this.maxDirectoryDepth = maxDirectoryDepth;
+    return this;
+  }
+
+  public boolean isWriteAheadLog() {
+    return writeAheadLog;
+  }
+
+  /**
+   * @param writeAheadLog logs changes into file next to main file with suffix .wal, file is
+   *     recovered from it after crash
+   */
+  public DynamicHashFileConfiguration setWriteAheadLog(boolean writeAheadLog) {
+    this.writeAheadLog = writeAheadLog;
+    return this;
+  }
+
+  public int getLogGroupCommitSize() {
+    return logGroupCommitSize;
+  }
+
+  /**
+   * @param logGroupCommitSize count of operations forced to the log by one fsync with durability
+   *     mode {@link DurabilityMode#NONE}, operations after the last forced group can be lost by
+   *     crash; with {@link DurabilityMode#GROUP_COMMIT} every operation waits for its force
+   */
+  public DynamicHashFileConfiguration setLogGroupCommitSize(int logGroupCommitSize) {
+    if (logGroupCommitSize < 1) {
+      throw new IllegalArgumentException("Group commit size must be at least 1!");
+    }
+
+    this.logGroupCommitSize = logGroupCommitSize;
+    return this;
+  }
+
+  public int getLogCheckpointInterval() {
+    return logCheckpointInterval;
+  }
+
+  /**
+   * @param logCheckpointInterval count of operations after which data files are forced and log is
+   *     started again
+   */
+  public DynamicHashFileConfiguration setLogCheckpointInterval(int logCheckpointInterval) {
+    if (logCheckpointInterval < 1) {
+      throw new IllegalArgumentException("Checkpoint interval must be at least 1!");
+    }
+
+    this.logCheckpointInterval = logCheckpointInterval;
+    return this;
+  }
+
+  public DurabilityMode getDurabilityMode() {
+    return durabilityMode;
+  }
+
+  /**
+   * @param durabilityMode when are data forced to the device - log when file is logged, otherwise
+   *     main and overflow file
+   */
+  public DynamicHashFileConfiguration setDurabilityMode(DurabilityMode durabilityMode) {
+    if (durabilityMode == null) {
+      throw new IllegalArgumentException("Durability mode cannot be null!");
+    }
+
+    this.durabilityMode = durabilityMode;
+    return this;
+  }
+
+  public long getDurabilityPeriodMillis() {
+    return durabilityPeriodMillis;
+  }
+
+  /**
+   * @param durabilityPeriodMillis time between two forces in periodic durability mode, 0 forces
+   *     every operation
+   */
+  public DynamicHashFileConfiguration setDurabilityPeriodMillis(long durabilityPeriodMillis) {
+    if (durabilityPeriodMillis < 0) {
+      throw new IllegalArgumentException("Durability period cannot be negative!");
+    }
+
+    this.durabilityPeriodMillis = durabilityPeriodMillis;
+    return this;
+  }
+
+  public Executor getAsyncExecutor() {
+    return asyncExecutor;
+  }
+
+  /**
+   * @param asyncExecutor runs asynchronous operations, for example executor of virtual threads.
+   *     File without it runs them on its own pool of daemon threads, as many as asynchronous
+   *     readers, which is shut down by close.
+   */
+  public DynamicHashFileConfiguration setAsyncExecutor(Executor asyncExecutor) {
+    if (asyncExecutor == null) {
+      throw new IllegalArgumentException("Executor cannot be null!");
+    }
+
+    this.asyncExecutor = asyncExecutor;
+    return this;
+  }
+
+  public int getAsyncReadersCount() {
+    return asyncReadersCount;
+  }
+
+  /**
+   * @param asyncReadersCount max count of leaves read by asynchronous finds at the same time, finds
+   *     of other leaves wait and the ones of the same leaf are served together
+   */
+  public DynamicHashFileConfiguration setAsyncReadersCount(int asyncReadersCount) {
+    if (asyncReadersCount < 1) {
+      throw new IllegalArgumentException("Count of asynchronous readers has to be at least 1!");
+    }
+
+    this.asyncReadersCount = asyncReadersCount;
+    return this;
+  }
+
+  public boolean isMetricsMXBean() {
+    return metricsMXBean;
+  }
+
+  /**
+   * @param metricsMXBean registers metrics of file in platform MBean server under name with path of
+   *     main file, until the file is closed
+   */
+  public DynamicHashFileConfiguration setMetricsMXBean(boolean metricsMXBean) {
+    this.metricsMXBean = metricsMXBean;
+    return this;
+  }
+
+  public int getOverflowReorganizationRate() {
+    return overflowReorganizationRate;
+  }
+
+  /**
+   * @param overflowReorganizationRate max count of blocks read and written per second by background
+   *     reorganization of overflow chains, 0 disables it
+   */
+  public DynamicHashFileConfiguration setOverflowReorganizationRate(
+      int overflowReorganizationRate) {
+    if (overflowReorganizationRate < 0) {
+      throw new IllegalArgumentException("Rate of reorganization cannot be negative!");
+    }
+
+    this.overflowReorganizationRate = overflowReorganizationRate;
+    return this;
+  }
+
+  DynamicHashFileConfiguration copy() {
+    DynamicHashFileConfiguration copy = new DynamicHashFileConfiguration();
+    copy.cacheCapacityInBlocks = cacheCapacityInBlocks;
+    copy.cacheCapacityInBytes = cacheCapacityInBytes;
+    copy.cacheWritePolicy = cacheWritePolicy;
+    copy.storageType = storageType;
+    copy.hashStrategy = hashStrategy;
+    copy.indexType = indexType;
+    copy.maxDirectoryDepth = maxDirectoryDepth;
+    copy.writeAheadLog = writeAheadLog;
+    copy.logGroupCommitSize = logGroupCommitSize;
+    copy.logCheckpointInterval = logCheckpointInterval;
+    copy.durabilityMode = durabilityMode;
+    copy.durabilityPeriodMillis = durabilityPeriodMillis;
+    copy.asyncExecutor = asyncExecutor;
+    copy.asyncReadersCount = asyncReadersCount;
+    copy.metricsMXBean = metricsMXBean;
+    copy.overflowReorganizationRate = overflowReorganizationRate;
+
+    return copy;
+  }
+
+  IHashStrategy getHashStrategy(Record dummyInstance) {
+    if (hashStrategy != null) {
+      return hashStrategy;
+    }
+
+    return new RecordHashStrategy(dummyInstance.getMaxHashSize());
+  }
+
+  int getCacheCapacityInBlocks(int blockByteSize) {
+    if (cacheCapacityInBytes > 0) {
+      return (int) Math.min(Integer.MAX_VALUE, cacheCapacityInBytes / blockByteSize);
+    }
+
+    return cacheCapacityInBlocks;
+  }
+}
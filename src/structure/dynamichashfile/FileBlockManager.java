@@ -1,26 +1,95 @@
 package structure.dynamichashfile;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import structure.dynamichashfile.constant.DurabilityMode;
 import structure.dynamichashfile.constant.ElementByteSize;
+import structure.dynamichashfile.constant.IndexType;
 import structure.dynamichashfile.entity.Block;
+import structure.dynamichashfile.entity.BlockView;
+import structure.dynamichashfile.entity.FileHeader;
 import structure.dynamichashfile.entity.record.Record;
 import structure.dynamichashfile.entity.record.RecordFactory;
+import structure.dynamichashfile.event.BlockReadEvent;
+import structure.dynamichashfile.event.BlockWriteEvent;
+import structure.dynamichashfile.hash.IHashStrategy;
+import structure.dynamichashfile.metrics.FileIoMetrics;
+import structure.dynamichashfile.metrics.FileIoRecorder;
+import structure.dynamichashfile.storage.BlockCacheStatistics;
+import structure.dynamichashfile.storage.CachedBlockStorage;
+import structure.dynamichashfile.storage.GroupSync;
+import structure.dynamichashfile.storage.IBlockStorage;
+import structure.dynamichashfile.storage.MappedFileStorage;
+import structure.dynamichashfile.storage.RandomAccessFileStorage;
+import structure.dynamichashfile.storage.SyncStatistics;
+import structure.dynamichashfile.trie.InnerTrieNode;
 import structure.dynamichashfile.trie.LeafTrieNode;
+import structure.dynamichashfile.trie.TrieNode;
+import structure.dynamichashfile.wal.RecoveredState;
+import structure.dynamichashfile.wal.TrieDelta;
+import structure.dynamichashfile.wal.WriteAheadLog;
+import util.file.dynamichashfile.BinaryBuilderTrie;
 
 class FileBlockManager<T extends Record> implements AutoCloseable {
   private static final int INVALID_ADDRESS = Block.getInvalidAddress();
   private final String mainFilePath;
   private final String ovetflowFilePath;
-  private final RandomAccessFile mainFileStream;
-  private final RandomAccessFile overflowFileStream;
+  private final IBlockStorage mainFileStream;
+  private final IBlockStorage overflowFileStream;
+  private final int mainBlockByteSize;
+  private final int overflowBlockByteSize;
+  // blocks of different leaves can be written concurrently, every thread has own buffers
+  private final ThreadLocal<ByteBuffer> mainBlockWriteBuffer;
+  private final ThreadLocal<ByteBuffer> overflowBlockWriteBuffer;
   private final Class<T> tClass;
   private final T tDummyInstance;
+  // headers are null for files created before them, blocks of such files start on offset 0
+  private final FileHeader mainFileHeader;
+  private final FileHeader overflowFileHeader;
+  // null when changes are not logged
+  private final WriteAheadLog writeAheadLog;
+  private final DurabilityMode durabilityMode;
+  private final long durabilityPeriodNanos;
+  // operations of logged file forced together without durability mode
+  private final int logGroupCommitSize;
+  private final GroupSync groupSync;
+  // forces registered operations every period, null when they are not forced periodically
+  private final ScheduledThreadPoolExecutor periodicSyncExecutor;
+  // failure of periodic force, reported by the next operation
+  private final AtomicReference<Exception> periodicSyncError;
+  private final FileIoRecorder mainFileIoRecorder;
+  private final FileIoRecorder overflowFileIoRecorder;
+  private volatile Lock forceLock;
+  private InnerTrieNode checkpointTrie;
+  private InnerTrieNode recoveredTrie;
   private int mainFileBlockingFactor;
   private int overflowFileBlockingFactor;
   private long firstFreeBlockAddressFromMainFile;
   private long firstFreeBlockAddressFromOverflowFile;
+  // free overflow blocks with neighbours in their list, loaded by the first search of run of
+  // blocks, previous addresses saved in file are not always valid
+  private TreeSet<Long> freeOverflowBlockAddresses;
+  private Map<Long, Long> nextFreeOverflowBlockAddresses;
+  private Map<Long, Long> previousFreeOverflowBlockAddresses;
 
   public FileBlockManager(
       String mainFilePath,
@@ -29,20 +98,785 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
       int overflowBlockingFactor,
       Class<T> tClass)
       throws IOException {
+    this(
+        mainFilePath,
+        mainBlockingFactor,
+        overflowFilePath,
+        overflowBlockingFactor,
+        tClass,
+        new DynamicHashFileConfiguration());
+  }
+
+  public FileBlockManager(
+      String mainFilePath,
+      int mainBlockingFactor,
+      String overflowFilePath,
+      int overflowBlockingFactor,
+      Class<T> tClass,
+      DynamicHashFileConfiguration configuration)
+      throws IOException {
     File mainFile = new File(mainFilePath);
     File overflowFile = new File(overflowFilePath);
 
     this.mainFilePath = mainFilePath;
     this.ovetflowFilePath = overflowFilePath;
-    this.mainFileStream = new RandomAccessFile(mainFile, "rw");
-    this.overflowFileStream = new RandomAccessFile(overflowFile, "rw");
+    this.mainBlockByteSize = new Block<>(mainBlockingFactor, tClass).getByteSize();
+    this.overflowBlockByteSize = new Block<>(overflowBlockingFactor, tClass).getByteSize();
+
+    IBlockStorage mainStorage = createStorage(mainFile, mainBlockByteSize, configuration);
+    IBlockStorage overflowStorage =
+        createStorage(overflowFile, overflowBlockByteSize, configuration);
+    RecoveredState recoveredState = null;
+
+    if (configuration.isWriteAheadLog()) {
+      this.writeAheadLog =
+          new WriteAheadLog(
+              getPathToLog(mainFilePath), configuration.getLogCheckpointInterval());
+
+      // log of deleted or new file is not replayed, it is replaced on start of logging
+      if (mainStorage.length() > 0) {
+        recoveredState = writeAheadLog.recover(mainStorage, overflowStorage);
+      }
+
+      mainStorage = writeAheadLog.wrap(WriteAheadLog.MAIN_FILE, mainStorage);
+      overflowStorage = writeAheadLog.wrap(WriteAheadLog.OVERFLOW_FILE, overflowStorage);
+    } else {
+      this.writeAheadLog = null;
+    }
+
+    this.mainFileStream = mainStorage;
+    this.overflowFileStream = overflowStorage;
+    this.durabilityMode = configuration.getDurabilityMode();
+    this.durabilityPeriodNanos = configuration.getDurabilityPeriodMillis() * 1_000_000;
+    this.logGroupCommitSize = configuration.getLogGroupCommitSize();
+    this.groupSync = new GroupSync(this::forceFiles);
+    this.mainFileIoRecorder = new FileIoRecorder();
+    this.overflowFileIoRecorder = new FileIoRecorder();
+    this.periodicSyncError = new AtomicReference<>();
+    this.forceLock = new ReentrantLock();
+    this.mainBlockWriteBuffer =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(mainBlockByteSize));
+    this.overflowBlockWriteBuffer =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(overflowBlockByteSize));
     this.mainFileBlockingFactor = mainBlockingFactor;
     this.overflowFileBlockingFactor = overflowBlockingFactor;
-    this.firstFreeBlockAddressFromOverflowFile = INVALID_ADDRESS;
-    this.firstFreeBlockAddressFromMainFile = INVALID_ADDRESS;
-
     this.tClass = tClass;
     this.tDummyInstance = RecordFactory.getDummyInstance(tClass);
+
+    try {
+      this.mainFileHeader =
+          readOrCreateHeader(mainFileStream, mainFilePath, mainBlockingFactor, mainBlockByteSize);
+      this.overflowFileHeader =
+          readOrCreateHeader(
+              overflowFileStream, overflowFilePath, overflowBlockingFactor, overflowBlockByteSize);
+      restoreLength(mainFileStream, mainFileHeader);
+      restoreLength(overflowFileStream, overflowFileHeader);
+    } catch (IllegalStateException e) {
+      closeFiles();
+      throw e;
+    }
+
+    this.firstFreeBlockAddressFromMainFile =
+        mainFileHeader == null ? INVALID_ADDRESS : mainFileHeader.getFirstFreeBlockAddress();
+    this.firstFreeBlockAddressFromOverflowFile =
+        overflowFileHeader == null
+            ? INVALID_ADDRESS
+            : overflowFileHeader.getFirstFreeBlockAddress();
+
+    if (recoveredState != null) {
+      // headers are written only on close, log has newer state
+      this.recoveredTrie = recoveredState.root();
+      this.firstFreeBlockAddressFromMainFile = recoveredState.firstFreeBlockAddressFromMainFile();
+      this.firstFreeBlockAddressFromOverflowFile =
+          recoveredState.firstFreeBlockAddressFromOverflowFile();
+    }
+
+    if (mainFileHeader != null && mainFileHeader.hasTrieCheckpoint()) {
+      // buffer can be shared with cache, so its position is not changed
+      this.checkpointTrie =
+          BinaryBuilderTrie.readTrie(
+              mainFileStream
+                  .read(
+                      mainFileHeader.getTrieCheckpointAddress(),
+                      mainFileHeader.getTrieCheckpointByteSize())
+                  .duplicate());
+    }
+
+    this.periodicSyncExecutor =
+        durabilityMode == DurabilityMode.PERIODIC && durabilityPeriodNanos > 0
+            ? startPeriodicSync()
+            : null;
+  }
+
+  private ScheduledThreadPoolExecutor startPeriodicSync() {
+    ScheduledThreadPoolExecutor executor =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "dynamic-hash-file-sync");
+              thread.setDaemon(true);
+              return thread;
+            });
+    executor.scheduleWithFixedDelay(
+        this::syncPeriodically,
+        durabilityPeriodNanos,
+        durabilityPeriodNanos,
+        TimeUnit.NANOSECONDS);
+
+    return executor;
+  }
+
+  private void syncPeriodically() {
+    try {
+      // nothing is forced, when no operation was registered since the last force
+      groupSync.syncRegistered();
+    } catch (Exception e) {
+      // exception would cancel next forces, next period tries to force again
+      periodicSyncError.set(e);
+    }
+  }
+
+  /**
+   * Stops periodic forces and waits for the running one. It has to be called before lock given to
+   * {@link #setForceLock(Lock)} is taken for close.
+   */
+  public void stopPeriodicSync() {
+    if (periodicSyncExecutor == null) {
+      return;
+    }
+
+    periodicSyncExecutor.shutdown();
+    try {
+      periodicSyncExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * @return header of file or null, when file has no header
+   */
+  static FileHeader readHeader(String pathToFile) throws IOException {
+    try (RandomAccessFile file = new RandomAccessFile(pathToFile, "r")) {
+      if (file.length() < FileHeader.BYTE_SIZE) {
+        return null;
+      }
+
+      byte[] data = new byte[FileHeader.BYTE_SIZE];
+      file.readFully(data);
+
+      if (!FileHeader.isHeader(ByteBuffer.wrap(data))) {
+        return null;
+      }
+
+      FileHeader header = new FileHeader();
+      header.fromByteArray(data);
+      return header;
+    }
+  }
+
+  private FileHeader readOrCreateHeader(
+      IBlockStorage storage, String path, int blockingFactor, int blockByteSize)
+      throws IOException {
+    if (storage.length() == 0) {
+      FileHeader header =
+          new FileHeader()
+              .setBlockingFactor(blockingFactor)
+              .setBlockByteSize(blockByteSize)
+              .setRecordClassName(tClass.getName());
+
+      writeHeader(storage, header);
+      return header;
+    }
+
+    if (storage.length() < FileHeader.BYTE_SIZE) {
+      return null;
+    }
+
+    ByteBuffer data = storage.read(0, FileHeader.BYTE_SIZE);
+    if (!FileHeader.isHeader(data)) {
+      return null;
+    }
+
+    FileHeader header = new FileHeader();
+    header.readFrom(data, 0);
+
+    if (header.getBlockByteSize() != blockByteSize
+        || !header.getRecordClassName().equals(tClass.getName())) {
+      throw new IllegalStateException(
+          String.format(
+              "File %s contains blocks of %s with %d bytes, but blocks of %s with %d bytes were"
+                  + " expected!",
+              path,
+              header.getRecordClassName(),
+              header.getBlockByteSize(),
+              tClass.getName(),
+              blockByteSize));
+    }
+
+    return header;
+  }
+
+  /**
+   * Ignores end of file behind length saved on close, storage could leave not used space there.
+   * Length is cleared until next close, so after crash the whole file is used.
+   */
+  private static void restoreLength(IBlockStorage storage, FileHeader header) throws IOException {
+    if (header == null || header.getFileLength() == 0) {
+      return;
+    }
+
+    if (header.getFileLength() < storage.length()) {
+      storage.setLength(header.getFileLength());
+    }
+    header.setFileLength(0);
+    writeHeader(storage, header);
+  }
+
+  private static void writeHeader(IBlockStorage storage, FileHeader header) throws IOException {
+    ByteBuffer data = ByteBuffer.allocate(FileHeader.BYTE_SIZE);
+    header.writeTo(data);
+    data.flip();
+
+    storage.write(0, data);
+  }
+
+  /**
+   * Checkpoint saved on the last close stays in file until blocks are changed, file opened only for
+   * reading can be opened from it after crash too. Changes of blocks have to be done under
+   * exclusive lock, while file has checkpoint.
+   */
+  public boolean hasTrieCheckpoint() {
+    return mainFileHeader != null && mainFileHeader.hasTrieCheckpoint();
+  }
+
+  /**
+   * Removes checkpoint of trie from the end of main file before the first change of blocks.
+   * Header without checkpoint marks file, which was not closed, its trie is recovered from blocks.
+   */
+  private void removeTrieCheckpoint() throws IOException {
+    if (!hasTrieCheckpoint()) {
+      return;
+    }
+
+    // new blocks are created on place of checkpoint
+    mainFileStream.setLength(mainFileHeader.getTrieCheckpointAddress());
+    mainFileHeader.setTrieCheckpoint(INVALID_ADDRESS, 0);
+    writeHeader(mainFileStream, mainFileHeader);
+  }
+
+  static String getPathToLog(String mainFilePath) {
+    return mainFilePath + ".wal";
+  }
+
+  /**
+   * @return trie restored from log after crash, or null when file was closed correctly or it is
+   *     not logged
+   */
+  public InnerTrieNode getRecoveredTrie() {
+    return recoveredTrie;
+  }
+
+  public boolean isLogged() {
+    return writeAheadLog != null;
+  }
+
+  /**
+   * Commits writes done since last commit as one operation together with changes of trie. Makes
+   * checkpoint of log, when it has enough operations.
+   */
+  public void commitToLog(List<TrieDelta> trieDeltas, InnerTrieNode root) throws IOException {
+    if (writeAheadLog.commit(
+        trieDeltas, firstFreeBlockAddressFromMainFile, firstFreeBlockAddressFromOverflowFile)) {
+      checkpointLog(root);
+    }
+  }
+
+  /**
+   * Makes operation durable by durability mode, it has to be called after every operation
+   * changing blocks.
+   */
+  public void makeDurable() throws IOException {
+    switch (durabilityMode) {
+      case NONE -> {
+        // operation of logged file finishing group waits for force of the whole group, the other
+        // ones are not durable until then
+        if (writeAheadLog != null && groupSync.register() % logGroupCommitSize == 0) {
+          groupSync.syncRegistered();
+        }
+      }
+      case PERIODIC -> {
+        groupSync.register();
+
+        Exception periodicSyncException = periodicSyncError.getAndSet(null);
+        if (periodicSyncException != null) {
+          throw new IOException(
+              String.format(
+                  "Periodic force of file %s failed! Error message: %s",
+                  mainFilePath, periodicSyncException.getLocalizedMessage()),
+              periodicSyncException);
+        }
+
+        // without period every operation is forced
+        if (periodicSyncExecutor == null) {
+          groupSync.syncRegistered();
+        }
+      }
+      case GROUP_COMMIT -> groupSync.sync();
+    }
+  }
+
+  /**
+   * @param forceLock lock giving exclusive access to storages, it is held only while dirty cached
+   *     blocks are written before force, force can be called without it held by caller
+   */
+  void setForceLock(Lock forceLock) {
+    this.forceLock = forceLock;
+  }
+
+  private void forceFiles() throws IOException {
+    if (writeAheadLog != null) {
+      // blocks are durable in log, only log is forced and files are forced by checkpoint
+      writeAheadLog.sync();
+      return;
+    }
+
+    forceLock.lock();
+    try {
+      writeDirtyBlocks(mainFileStream);
+      writeDirtyBlocks(overflowFileStream);
+    } finally {
+      forceLock.unlock();
+    }
+
+    // operations continue during force, blocks written meanwhile can be forced by it too
+    mainFileStream.sync();
+    overflowFileStream.sync();
+  }
+
+  private static void writeDirtyBlocks(IBlockStorage storage) throws IOException {
+    if (storage instanceof CachedBlockStorage cachedBlockStorage) {
+      cachedBlockStorage.writeDirtyBlocks();
+    }
+  }
+
+  public SyncStatistics getSyncStatistics() {
+    return groupSync.getStatistics();
+  }
+
+  /** Forces all blocks to files and starts log again with given trie. */
+  public void checkpointLog(InnerTrieNode root) throws IOException {
+    writeAheadLog.checkpoint(
+        root, firstFreeBlockAddressFromMainFile, firstFreeBlockAddressFromOverflowFile);
+  }
+
+  /**
+   * @return trie saved on last close of file or null, when there is no checkpoint
+   */
+  public InnerTrieNode getCheckpointTrie() {
+    return checkpointTrie;
+  }
+
+  /**
+   * Rebuilds trie of file, which was not closed and is not logged, from its blocks. Every main
+   * block with records becomes leaf on the prefix shared by hashes of its records, leaf is as deep
+   * as it is needed to separate it from other leaves. Block of interrupted split or move, whose
+   * prefix is covered by another leaf, is not used. Blocks not used by leaves are put into new
+   * lists of free blocks, lists saved in headers are valid only after close.
+   *
+   * @return root of rebuilt trie or null, when file is logged, was closed or has no blocks
+   */
+  public InnerTrieNode recoverTrie(IHashStrategy hashStrategy) throws IOException {
+    if (writeAheadLog != null
+        || mainFileHeader == null
+        || hasTrieCheckpoint()
+        || getLastMainBlockAddress() == INVALID_ADDRESS) {
+      return null;
+    }
+
+    int maxDepth = hashStrategy.getHashSize();
+    List<RecoveredLeaf> candidates = new ArrayList<>();
+    for (long address = getFirstBlockAddress(mainFileHeader);
+        address <= getLastMainBlockAddress();
+        address += mainBlockByteSize) {
+      RecoveredLeaf candidate = readRecoveredLeaf(address, hashStrategy, maxDepth);
+      if (candidate != null) {
+        candidates.add(candidate);
+      }
+    }
+
+    // blocks with records in main block are used by leaves, empty one can point to released chain
+    candidates.sort(
+        Comparator.comparing((RecoveredLeaf leaf) -> leaf.recordsInMainBlock() == 0)
+            .thenComparingInt(RecoveredLeaf::prefixLength));
+
+    List<RecoveredLeaf> leaves = new ArrayList<>();
+    Set<Long> usedOverflowBlockAddresses = new HashSet<>();
+    Set<Prefix> prefixesOfLeaves = new HashSet<>();
+    Set<Prefix> coveredPrefixes = new HashSet<>();
+    for (RecoveredLeaf candidate : candidates) {
+      if (isPrefixCovered(candidate, prefixesOfLeaves, coveredPrefixes)) {
+        continue;
+      }
+
+      RecoveredLeaf leaf = cutChainOfLeaf(candidate, usedOverflowBlockAddresses);
+      if (leaf.recordsInMainBlock() + leaf.recordsInOverflowBlocks() == 0) {
+        continue;
+      }
+
+      leaves.add(leaf);
+      usedOverflowBlockAddresses.addAll(leaf.overflowBlockAddresses());
+      for (int length = 1; length <= leaf.prefixLength(); length++) {
+        coveredPrefixes.add(Prefix.of(leaf.hashBits(), length));
+      }
+      prefixesOfLeaves.add(leaf.prefix());
+    }
+
+    InnerTrieNode root = createRecoveredTrie(leaves, maxDepth);
+
+    Set<Long> usedMainBlockAddresses = new HashSet<>();
+    for (RecoveredLeaf leaf : leaves) {
+      usedMainBlockAddresses.add(leaf.address());
+    }
+    firstFreeBlockAddressFromMainFile =
+        linkRecoveredFreeBlocks(
+            mainFileStream,
+            mainBlockWriteBuffer,
+            mainFileIoRecorder,
+            mainFileBlockingFactor,
+            getFirstBlockAddress(mainFileHeader),
+            mainBlockByteSize,
+            usedMainBlockAddresses);
+    firstFreeBlockAddressFromOverflowFile =
+        linkRecoveredFreeBlocks(
+            overflowFileStream,
+            overflowBlockWriteBuffer,
+            overflowFileIoRecorder,
+            overflowFileBlockingFactor,
+            getFirstBlockAddress(overflowFileHeader),
+            overflowBlockByteSize,
+            usedOverflowBlockAddresses);
+    freeOverflowBlockAddresses = null;
+
+    return root;
+  }
+
+  /**
+   * @return main block with its chain of overflow blocks or null, when they have no records
+   */
+  private RecoveredLeaf readRecoveredLeaf(long address, IHashStrategy hashStrategy, int maxDepth)
+      throws IOException {
+    Block<T> mainBlock = getMainBlock(address);
+    List<Record> records = new ArrayList<>(List.of(mainBlock.getValidRecords()));
+    List<Long> overflowBlockAddresses = new ArrayList<>();
+    List<Integer> overflowBlockRecordCounts = new ArrayList<>();
+
+    // chain written only partly before crash ends on the first invalid address
+    long overflowBlockAddress = mainBlock.getAddressOfOverflowBlock();
+    while (isOverflowBlockAddress(overflowBlockAddress)
+        && !overflowBlockAddresses.contains(overflowBlockAddress)) {
+      Block<T> overflowBlock = getOverflowBlock(overflowBlockAddress);
+      records.addAll(List.of(overflowBlock.getValidRecords()));
+      overflowBlockAddresses.add(overflowBlockAddress);
+      overflowBlockRecordCounts.add(overflowBlock.getValidRecordsCount());
+
+      overflowBlockAddress = overflowBlock.getNextOverflowBlockAddress();
+    }
+
+    if (records.isEmpty()) {
+      return null;
+    }
+
+    long hashBits = hashStrategy.hash(records.get(0));
+    int prefixLength = maxDepth;
+    for (Record record : records) {
+      prefixLength =
+          Math.min(prefixLength, Long.numberOfTrailingZeros(hashBits ^ hashStrategy.hash(record)));
+    }
+
+    return new RecoveredLeaf(
+        address,
+        hashBits,
+        prefixLength,
+        mainBlock.getValidRecordsCount(),
+        overflowBlockAddresses,
+        overflowBlockRecordCounts);
+  }
+
+  private boolean isOverflowBlockAddress(long address) throws IOException {
+    long firstBlockAddress = getFirstBlockAddress(overflowFileHeader);
+
+    return address >= firstBlockAddress
+        && address + overflowBlockByteSize <= overflowFileStream.length()
+        && (address - firstBlockAddress) % overflowBlockByteSize == 0;
+  }
+
+  /** Leaf is covered by shorter prefix of used leaf, or it covers used leaf itself. */
+  private static boolean isPrefixCovered(
+      RecoveredLeaf leaf, Set<Prefix> prefixesOfLeaves, Set<Prefix> coveredPrefixes) {
+    if (leaf.prefixLength() == 0 || coveredPrefixes.contains(leaf.prefix())) {
+      return true;
+    }
+
+    for (int length = 1; length < leaf.prefixLength(); length++) {
+      if (prefixesOfLeaves.contains(Prefix.of(leaf.hashBits(), length))) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /** Chain of leaf ends before overflow block used by another leaf. */
+  private RecoveredLeaf cutChainOfLeaf(RecoveredLeaf leaf, Set<Long> usedOverflowBlockAddresses)
+      throws IOException {
+    List<Long> overflowBlockAddresses = leaf.overflowBlockAddresses();
+    int blocksCount = 0;
+    while (blocksCount < overflowBlockAddresses.size()
+        && !usedOverflowBlockAddresses.contains(overflowBlockAddresses.get(blocksCount))) {
+      blocksCount++;
+    }
+
+    if (blocksCount == overflowBlockAddresses.size()) {
+      return leaf;
+    }
+
+    if (blocksCount == 0) {
+      Block<T> mainBlock = getMainBlock(leaf.address());
+      mainBlock.setAddressOfOverflowBlock(INVALID_ADDRESS);
+      writeMainBlock(mainBlock, leaf.address());
+    } else {
+      long lastAddress = overflowBlockAddresses.get(blocksCount - 1);
+      Block<T> lastBlock = getOverflowBlock(lastAddress);
+      lastBlock.setNextOverflowBlockAddress(INVALID_ADDRESS);
+      writeOverflowBlock(lastBlock, lastAddress);
+    }
+
+    return new RecoveredLeaf(
+        leaf.address(),
+        leaf.hashBits(),
+        leaf.prefixLength(),
+        leaf.recordsInMainBlock(),
+        overflowBlockAddresses.subList(0, blocksCount),
+        leaf.overflowBlockRecordCounts().subList(0, blocksCount));
+  }
+
+  /**
+   * Leaves ordered by bits of hashes from depth 0 are neighbours in trie, leaf is one level deeper
+   * than the longest prefix shared with its neighbours. Leaf with overflow blocks cannot be split,
+   * so it is as deep as prefix of its records.
+   */
+  private static InnerTrieNode createRecoveredTrie(List<RecoveredLeaf> leaves, int maxDepth) {
+    List<RecoveredLeaf> orderedLeaves = new ArrayList<>(leaves);
+    orderedLeaves.sort(
+        (first, second) ->
+            Long.compareUnsigned(
+                Long.reverse(first.prefix().bits()), Long.reverse(second.prefix().bits())));
+
+    InnerTrieNode root = new InnerTrieNode(null, maxDepth);
+    for (int i = 0; i < orderedLeaves.size(); i++) {
+      RecoveredLeaf leaf = orderedLeaves.get(i);
+      int sharedPrefixLength = 0;
+      if (i > 0) {
+        sharedPrefixLength = getSharedPrefixLength(orderedLeaves.get(i - 1), leaf);
+      }
+      if (i < orderedLeaves.size() - 1) {
+        sharedPrefixLength =
+            Math.max(sharedPrefixLength, getSharedPrefixLength(leaf, orderedLeaves.get(i + 1)));
+      }
+
+      int depthOfLeaf =
+          leaf.overflowBlockAddresses().isEmpty() ? sharedPrefixLength + 1 : leaf.prefixLength();
+
+      InnerTrieNode parent = root;
+      for (int depth = 0; depth < depthOfLeaf - 1; depth++) {
+        boolean isLeft = Record.isHashBitSet(leaf.hashBits(), depth);
+        TrieNode son = isLeft ? parent.getLeftSon() : parent.getRightSon();
+
+        if (son == null) {
+          son = new InnerTrieNode(parent, maxDepth);
+          if (isLeft) {
+            parent.setLeftSon(son);
+          } else {
+            parent.setRightSon(son);
+          }
+        }
+        parent = (InnerTrieNode) son;
+      }
+
+      LeafTrieNode leafNode =
+          new LeafTrieNode(parent, maxDepth)
+              .setAddressOfData(leaf.address())
+              .setDataSizeInMainBlock(leaf.recordsInMainBlock())
+              .setDataSizeInReserveBlocks(leaf.recordsInOverflowBlocks())
+              .setOverflowBlocksCount(leaf.overflowBlockAddresses().size());
+      if (Record.isHashBitSet(leaf.hashBits(), depthOfLeaf - 1)) {
+        parent.setLeftSon(leafNode);
+      } else {
+        parent.setRightSon(leafNode);
+      }
+    }
+
+    return root;
+  }
+
+  private static int getSharedPrefixLength(RecoveredLeaf first, RecoveredLeaf second) {
+    return Math.min(
+        Long.numberOfTrailingZeros(first.hashBits() ^ second.hashBits()),
+        Math.min(first.prefixLength(), second.prefixLength()));
+  }
+
+  /**
+   * Truncates not used blocks on the end of file and links the other ones into new list of free
+   * blocks in ascending order.
+   *
+   * @return address of the first free block or invalid address
+   */
+  private long linkRecoveredFreeBlocks(
+      IBlockStorage storage,
+      ThreadLocal<ByteBuffer> writeBuffers,
+      FileIoRecorder ioRecorder,
+      int blockingFactor,
+      long firstBlockAddress,
+      int blockByteSize,
+      Set<Long> usedAddresses)
+      throws IOException {
+    long blocksEndAddress = firstBlockAddress;
+    for (long address : usedAddresses) {
+      blocksEndAddress = Math.max(blocksEndAddress, address + blockByteSize);
+    }
+    storage.setLength(blocksEndAddress);
+
+    List<Long> freeAddresses = new ArrayList<>();
+    for (long address = firstBlockAddress; address < blocksEndAddress; address += blockByteSize) {
+      if (!usedAddresses.contains(address)) {
+        freeAddresses.add(address);
+      }
+    }
+
+    for (int i = 0; i < freeAddresses.size(); i++) {
+      Block<T> freeBlock = new Block<>(blockingFactor, tClass);
+      freeBlock.setPreviousFreeBlockAddress(i > 0 ? freeAddresses.get(i - 1) : INVALID_ADDRESS);
+      freeBlock.setNextFreeBlockAddress(
+          i < freeAddresses.size() - 1 ? freeAddresses.get(i + 1) : INVALID_ADDRESS);
+      writeBlock(storage, writeBuffers, ioRecorder, freeBlock, freeAddresses.get(i));
+    }
+
+    return freeAddresses.isEmpty() ? INVALID_ADDRESS : freeAddresses.get(0);
+  }
+
+  /**
+   * @return header of main file or null, when file was created without header
+   */
+  public FileHeader getMainFileHeader() {
+    return mainFileHeader;
+  }
+
+  /**
+   * Saves trie behind the last block of main file and description of DynamicHashFile into header.
+   * Blocks cannot be changed after checkpoint, it has to be followed by close. Nothing is saved
+   * for file without header.
+   */
+  public void writeTrieCheckpoint(
+      InnerTrieNode root,
+      long recordCount,
+      IHashStrategy hashStrategy,
+      IndexType indexType,
+      int maxDirectoryDepth)
+      throws IOException {
+    if (mainFileHeader == null) {
+      return;
+    }
+
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    try (DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream)) {
+      BinaryBuilderTrie.writeTrie(root, outputStream);
+    }
+
+    // file opened only for reading still has its checkpoint, the new one replaces it
+    long address = getMainBlocksEndAddress();
+    mainFileStream.write(address, ByteBuffer.wrap(byteArrayOutputStream.toByteArray()));
+    mainFileStream.setLength(address + byteArrayOutputStream.size());
+
+    mainFileHeader
+        .setTrieCheckpoint(address, byteArrayOutputStream.size())
+        .setRecordCount(recordCount)
+        .setHashStrategyClassName(hashStrategy.getClass().getName())
+        .setHashSize(hashStrategy.getHashSize())
+        .setIndexType(indexType)
+        .setMaxDirectoryDepth(maxDirectoryDepth);
+  }
+
+  private static long getFirstBlockAddress(FileHeader header) {
+    return header == null ? 0 : FileHeader.BYTE_SIZE;
+  }
+
+  private static IBlockStorage createStorage(
+      File file, int blockByteSize, DynamicHashFileConfiguration configuration)
+      throws IOException {
+    IBlockStorage storage =
+        switch (configuration.getStorageType()) {
+          case RANDOM_ACCESS_FILE -> new RandomAccessFileStorage(file);
+          case MEMORY_MAPPED -> new MappedFileStorage(file);
+        };
+
+    int cacheCapacity = configuration.getCacheCapacityInBlocks(blockByteSize);
+    if (cacheCapacity == 0) {
+      return storage;
+    }
+
+    return new CachedBlockStorage(
+        storage, cacheCapacity, blockByteSize, configuration.getCacheWritePolicy());
+  }
+
+  private static BlockCacheStatistics getCacheStatistics(IBlockStorage storage) {
+    if (storage instanceof CachedBlockStorage cachedBlockStorage) {
+      return cachedBlockStorage.getStatistics();
+    }
+
+    return new BlockCacheStatistics(0, 0, 0, 0, 0);
+  }
+
+  public BlockCacheStatistics getMainFileCacheStatistics() {
+    return getCacheStatistics(mainFileStream);
+  }
+
+  public BlockCacheStatistics getOverflowFileCacheStatistics() {
+    return getCacheStatistics(overflowFileStream);
+  }
+
+  public FileIoMetrics getMainFileIoMetrics() {
+    return mainFileIoRecorder.getMetrics();
+  }
+
+  public FileIoMetrics getOverflowFileIoMetrics() {
+    return overflowFileIoRecorder.getMetrics();
+  }
+
+  private void writeBlock(
+      IBlockStorage storage,
+      ThreadLocal<ByteBuffer> writeBuffers,
+      FileIoRecorder ioRecorder,
+      Block<T> block,
+      long address)
+      throws IOException {
+    removeTrieCheckpoint();
+
+    BlockWriteEvent event = new BlockWriteEvent();
+    event.begin();
+
+    ByteBuffer writeBuffer = writeBuffers.get();
+    writeBuffer.clear();
+    block.writeTo(writeBuffer);
+    writeBuffer.flip();
+
+    ioRecorder.recordBlockWrite(writeBuffer.remaining());
+    storage.write(address, writeBuffer);
+
+    event.commit(
+        storage == mainFileStream ? mainFilePath : ovetflowFilePath,
+        address,
+        block.getValidRecordsCount());
   }
 
   public String getMainFilePath() {
@@ -65,14 +899,40 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
     return overflowFileBlockingFactor;
   }
 
+  public int getOverflowBlockByteSize() {
+    return overflowBlockByteSize;
+  }
+
   public Block<T> getMainBlock(long address) {
     try {
-      mainFileStream.seek(address);
+      BlockReadEvent event = new BlockReadEvent();
+      event.begin();
+
       Block<T> block = new Block<>(mainFileBlockingFactor, tClass);
-      byte[] blockBytes = new byte[block.getByteSize()];
-      mainFileStream.read(blockBytes);
-      block.fromByteArray(blockBytes);
+      block.readFrom(mainFileStream.read(address, block.getByteSize()), 0);
+      mainFileIoRecorder.recordBlockRead(mainBlockByteSize);
+
+      event.commit(mainFilePath, address, block.getValidRecordsCount());
+      return block;
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when trying to read block from address %d. Error message: %s",
+              address, e.getLocalizedMessage()));
+    }
+  }
+
+  public BlockView<T> getMainBlockView(long address) {
+    try {
+      BlockReadEvent event = new BlockReadEvent();
+      event.begin();
 
+      mainFileIoRecorder.recordBlockRead(mainBlockByteSize);
+      BlockView<T> block =
+          new BlockView<>(
+              mainFileStream.read(address, mainBlockByteSize), 0, tDummyInstance.getByteSize());
+
+      event.commit(mainFilePath, address, block.getValidRecordsCount());
       return block;
     } catch (IOException e) {
       throw new RuntimeException(
@@ -84,8 +944,7 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
 
   public void writeMainBlock(Block<T> block, long address) {
     try {
-      mainFileStream.seek(address);
-      mainFileStream.write(block.toByteArray());
+      writeBlock(mainFileStream, mainBlockWriteBuffer, mainFileIoRecorder, block, address);
 
     } catch (IOException e) {
       throw new RuntimeException(
@@ -96,6 +955,7 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
   }
 
   public void deleteMainBlock(LeafTrieNode nodeOfBlockToDelete) throws IOException {
+    removeTrieCheckpoint();
     long addressOfData = nodeOfBlockToDelete.getAddressOfData();
     Block<T> blockToDelete = getMainBlock(addressOfData);
 
@@ -113,7 +973,14 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
   }
 
   public boolean isMainBlockOnTheEndOfFile(long address, Block<T> blockToCheck) throws IOException {
-    return address + blockToCheck.getByteSize() == mainFileStream.length();
+    return address + blockToCheck.getByteSize() == getMainBlocksEndAddress();
+  }
+
+  /** Blocks of main file end on checkpoint of trie, when file has one. */
+  private long getMainBlocksEndAddress() throws IOException {
+    return hasTrieCheckpoint()
+        ? mainFileHeader.getTrieCheckpointAddress()
+        : mainFileStream.length();
   }
 
   public String sequenceToStringMainFile() throws IOException {
@@ -144,7 +1011,7 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
     //        }
 
     sb.append("Main file:\n");
-    for (long i = 0, fileLength = mainFileStream.length();
+    for (long i = getFirstBlockAddress(mainFileHeader), fileLength = getMainBlocksEndAddress();
         i < fileLength;
         i +=
             ((long) tDummyInstance.getByteSize() * mainFileBlockingFactor
@@ -177,10 +1044,85 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
     writeMainBlock(blockToDelete, addressOfData);
   }
 
+  /**
+   * Address of the last block of main file.
+   *
+   * @return invalid address when main file has no blocks
+   */
+  public long getLastMainBlockAddress() throws IOException {
+    long lastBlockAddress = getMainBlocksEndAddress() - mainBlockByteSize;
+
+    return lastBlockAddress < getFirstBlockAddress(mainFileHeader)
+        ? INVALID_ADDRESS
+        : lastBlockAddress;
+  }
+
+  public boolean hasFreeMainBlocks() {
+    return firstFreeBlockAddressFromMainFile != INVALID_ADDRESS;
+  }
+
+  /**
+   * Removes the last block of main file, which is not used by any leaf. Free block is taken out of
+   * list of free blocks first.
+   */
+  public void truncateLastFreeMainBlock() throws IOException {
+    removeTrieCheckpoint();
+    long address = getLastMainBlockAddress();
+    Block<T> freeBlock = getMainBlock(address);
+    long previousFreeBlockAddress = freeBlock.getPreviousFreeBlockAddress();
+    long nextFreeBlockAddress = freeBlock.getNextFreeBlockAddress();
+
+    boolean isFirstFreeBlock = address == firstFreeBlockAddressFromMainFile;
+
+    // block, which is neither first nor linked by previous one, is not in the list
+    if (!isFirstFreeBlock && previousFreeBlockAddress == INVALID_ADDRESS) {
+      mainFileStream.setLength(address);
+      return;
+    }
+
+    if (isFirstFreeBlock) {
+      firstFreeBlockAddressFromMainFile = nextFreeBlockAddress;
+    } else {
+      Block<T> previousFreeBlock = getMainBlock(previousFreeBlockAddress);
+      previousFreeBlock.setNextFreeBlockAddress(nextFreeBlockAddress);
+      writeMainBlock(previousFreeBlock, previousFreeBlockAddress);
+    }
+
+    if (nextFreeBlockAddress != INVALID_ADDRESS) {
+      Block<T> nextFreeBlock = getMainBlock(nextFreeBlockAddress);
+      nextFreeBlock.setPreviousFreeBlockAddress(previousFreeBlockAddress);
+      writeMainBlock(nextFreeBlock, nextFreeBlockAddress);
+    }
+
+    mainFileStream.setLength(address);
+  }
+
+  /**
+   * Moves the last block of main file into the first free block and truncates the file.
+   *
+   * @return new address of block
+   */
+  public long moveLastMainBlockToFreeBlock() throws IOException {
+    removeTrieCheckpoint();
+    long address = getLastMainBlockAddress();
+    Block<T> block = getMainBlock(address);
+
+    long newAddress = getAddressFromFreeMainBlocks();
+    mainFileIoRecorder.recordFreeBlockReuse();
+    writeMainBlock(block, newAddress);
+    mainFileStream.setLength(address);
+
+    return newAddress;
+  }
+
   public void createMainBlock(long address) {
     try {
-      mainFileStream.seek(address);
-      mainFileStream.write(new Block<>(mainFileBlockingFactor, tClass).toByteArray());
+      writeBlock(
+          mainFileStream,
+          mainBlockWriteBuffer,
+          mainFileIoRecorder,
+          new Block<>(mainFileBlockingFactor, tClass),
+          address);
     } catch (IOException e) {
       throw new RuntimeException(
           String.format(
@@ -191,6 +1133,7 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
 
   public long getNewMainBlockAddress() {
     try {
+      removeTrieCheckpoint();
       if (firstFreeBlockAddressFromMainFile == INVALID_ADDRESS) {
         long fileLength = mainFileStream.length();
         mainFileStream.setLength(
@@ -198,8 +1141,10 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
                 + ((long) tDummyInstance.getByteSize() * mainFileBlockingFactor
                     + (ElementByteSize.intByteSize() + (ElementByteSize.longByteSize() * 5L))));
 
+        mainFileIoRecorder.recordFileGrowth();
         return fileLength;
       } else {
+        mainFileIoRecorder.recordFreeBlockReuse();
         return getAddressFromFreeMainBlocks();
       }
     } catch (IOException e) {
@@ -233,12 +1178,36 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
   public Block<T> getOverflowBlock(long address) {
     // Similar logic to getBlock, but for the overflow file
     try {
-      overflowFileStream.seek(address);
+      BlockReadEvent event = new BlockReadEvent();
+      event.begin();
+
       Block<T> block = new Block<>(overflowFileBlockingFactor, tClass);
-      byte[] blockBytes = new byte[block.getByteSize()];
-      overflowFileStream.read(blockBytes);
-      block.fromByteArray(blockBytes);
+      block.readFrom(overflowFileStream.read(address, block.getByteSize()), 0);
+      overflowFileIoRecorder.recordBlockRead(overflowBlockByteSize);
 
+      event.commit(ovetflowFilePath, address, block.getValidRecordsCount());
+      return block;
+    } catch (IOException e) {
+      throw new RuntimeException(
+          String.format(
+              "Error occured when trying to read overflow block from address %d. Error message: %s",
+              address, e.getLocalizedMessage()));
+    }
+  }
+
+  public BlockView<T> getOverflowBlockView(long address) {
+    try {
+      BlockReadEvent event = new BlockReadEvent();
+      event.begin();
+
+      overflowFileIoRecorder.recordBlockRead(overflowBlockByteSize);
+      BlockView<T> block =
+          new BlockView<>(
+              overflowFileStream.read(address, overflowBlockByteSize),
+              0,
+              tDummyInstance.getByteSize());
+
+      event.commit(ovetflowFilePath, address, block.getValidRecordsCount());
       return block;
     } catch (IOException e) {
       throw new RuntimeException(
@@ -250,8 +1219,8 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
 
   public void writeOverflowBlock(Block<T> block, long address) {
     try {
-      overflowFileStream.seek(address);
-      overflowFileStream.write(block.toByteArray());
+      writeBlock(
+          overflowFileStream, overflowBlockWriteBuffer, overflowFileIoRecorder, block, address);
 
     } catch (IOException e) {
       throw new RuntimeException(
@@ -264,6 +1233,7 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
   public void deleteOverflowBlock(
       LeafTrieNode nodeOfData, Block<T> overflowBlockToDelete, long addressOfOverflowBlock)
       throws IOException {
+    removeTrieCheckpoint();
 
     if (isOverflowBlockOnTheEndOfFile(addressOfOverflowBlock, overflowBlockToDelete)) {
       // block is on the end of a file - set new length of file
@@ -281,9 +1251,9 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
 
   public Block<T> createOverflowBlock(long address) {
     try {
-      overflowFileStream.seek(address);
       Block<T> newBlock = new Block<>(overflowFileBlockingFactor, tClass);
-      overflowFileStream.write(newBlock.toByteArray());
+      writeBlock(
+          overflowFileStream, overflowBlockWriteBuffer, overflowFileIoRecorder, newBlock, address);
 
       return newBlock;
     } catch (IOException e) {
@@ -295,6 +1265,11 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
   }
 
   private void setOverflowBlockAsFirstFreeBlock(long addressOfData, Block<T> blockToDelete) {
+    if (freeOverflowBlockAddresses != null) {
+      freeOverflowBlockAddresses.add(addressOfData);
+      linkFreeOverflowBlocks(INVALID_ADDRESS, addressOfData);
+      linkFreeOverflowBlocks(addressOfData, firstFreeBlockAddressFromOverflowFile);
+    }
     if (firstFreeBlockAddressFromOverflowFile == INVALID_ADDRESS) {
       firstFreeBlockAddressFromOverflowFile = addressOfData;
       return;
@@ -315,6 +1290,7 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
 
   public long getNewOverflowBlockAddress() {
     try {
+      removeTrieCheckpoint();
       if (firstFreeBlockAddressFromOverflowFile == INVALID_ADDRESS) {
         long fileLength = overflowFileStream.length();
         overflowFileStream.setLength(
@@ -322,8 +1298,10 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
                 + ((long) tDummyInstance.getByteSize() * overflowFileBlockingFactor
                     + (ElementByteSize.intByteSize() + (ElementByteSize.longByteSize() * 5L))));
 
+        overflowFileIoRecorder.recordFileGrowth();
         return fileLength;
       } else {
+        overflowFileIoRecorder.recordFreeBlockReuse();
         return getAddressFromFreeOverflowBlocks();
       }
     } catch (IOException e) {
@@ -333,6 +1311,9 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
 
   private long getAddressFromFreeOverflowBlocks() throws IOException {
     long freeBlockAddress = firstFreeBlockAddressFromOverflowFile;
+    if (freeOverflowBlockAddresses != null) {
+      unlinkFreeOverflowBlock(freeBlockAddress);
+    }
     Block<T> freeBlock = getOverflowBlock(freeBlockAddress);
     long nextFreeBlockAddress = freeBlock.getNextFreeBlockAddress();
 
@@ -356,6 +1337,134 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
     return freeBlockAddress;
   }
 
+  /**
+   * Takes run of overflow blocks on consecutive addresses, the one with the lowest address. Run is
+   * made of free blocks and given blocks, file is extended only when there is no such run inside
+   * it. Free blocks of run are taken out of list of free blocks.
+   *
+   * @param usableAddresses addresses of used blocks, which can be part of run
+   * @return addresses of run in ascending order
+   */
+  public List<Long> takeOverflowBlocksRun(int blocksCount, Collection<Long> usableAddresses)
+      throws IOException {
+    removeTrieCheckpoint();
+    if (freeOverflowBlockAddresses == null) {
+      loadFreeOverflowBlocks();
+    }
+
+    long runAddress = findOverflowBlocksRun(new TreeSet<>(usableAddresses), blocksCount);
+
+    List<Long> runAddresses = new ArrayList<>(blocksCount);
+    Set<Long> changedAddresses = new HashSet<>();
+    for (int i = 0; i < blocksCount; i++) {
+      long address = runAddress + (long) i * overflowBlockByteSize;
+      runAddresses.add(address);
+
+      if (freeOverflowBlockAddresses.contains(address)) {
+        changedAddresses.add(previousFreeOverflowBlockAddresses.get(address));
+        changedAddresses.add(nextFreeOverflowBlockAddresses.get(address));
+        unlinkFreeOverflowBlock(address);
+      }
+    }
+
+    // free blocks, which stayed in list, are linked again
+    changedAddresses.removeAll(runAddresses);
+    changedAddresses.remove((long) INVALID_ADDRESS);
+    for (long address : changedAddresses) {
+      Block<T> freeBlock = getOverflowBlock(address);
+      freeBlock.setPreviousFreeBlockAddress(previousFreeOverflowBlockAddresses.get(address));
+      freeBlock.setNextFreeBlockAddress(nextFreeOverflowBlockAddresses.get(address));
+      writeOverflowBlock(freeBlock, address);
+    }
+
+    long runEndAddress = runAddress + (long) blocksCount * overflowBlockByteSize;
+    if (runEndAddress > overflowFileStream.length()) {
+      overflowFileStream.setLength(runEndAddress);
+      overflowFileIoRecorder.recordFileGrowth();
+    }
+
+    return runAddresses;
+  }
+
+  private long findOverflowBlocksRun(TreeSet<Long> usableAddresses, int blocksCount)
+      throws IOException {
+    Iterator<Long> freeIterator = freeOverflowBlockAddresses.iterator();
+    Iterator<Long> usableIterator = usableAddresses.iterator();
+    Long nextFreeAddress = freeIterator.hasNext() ? freeIterator.next() : null;
+    Long nextUsableAddress = usableIterator.hasNext() ? usableIterator.next() : null;
+
+    long runAddress = INVALID_ADDRESS;
+    long previousAddress = INVALID_ADDRESS;
+    int runBlocksCount = 0;
+
+    // both sets are merged in ascending order
+    while (nextFreeAddress != null || nextUsableAddress != null) {
+      long address;
+      if (nextUsableAddress == null
+          || (nextFreeAddress != null && nextFreeAddress < nextUsableAddress)) {
+        address = nextFreeAddress;
+        nextFreeAddress = freeIterator.hasNext() ? freeIterator.next() : null;
+      } else {
+        address = nextUsableAddress;
+        nextUsableAddress = usableIterator.hasNext() ? usableIterator.next() : null;
+      }
+
+      if (runBlocksCount == 0 || address != previousAddress + overflowBlockByteSize) {
+        runAddress = address;
+        runBlocksCount = 0;
+      }
+
+      runBlocksCount++;
+      previousAddress = address;
+
+      if (runBlocksCount == blocksCount) {
+        return runAddress;
+      }
+    }
+
+    // run on the end of file continues behind it
+    long fileLength = overflowFileStream.length();
+    return runBlocksCount > 0 && previousAddress + overflowBlockByteSize == fileLength
+        ? runAddress
+        : fileLength;
+  }
+
+  private void loadFreeOverflowBlocks() {
+    freeOverflowBlockAddresses = new TreeSet<>();
+    nextFreeOverflowBlockAddresses = new HashMap<>();
+    previousFreeOverflowBlockAddresses = new HashMap<>();
+
+    long previousAddress = INVALID_ADDRESS;
+    for (long address = firstFreeBlockAddressFromOverflowFile;
+        address != INVALID_ADDRESS;
+        address = getOverflowBlock(address).getNextFreeBlockAddress()) {
+      freeOverflowBlockAddresses.add(address);
+      linkFreeOverflowBlocks(previousAddress, address);
+      previousAddress = address;
+    }
+    linkFreeOverflowBlocks(previousAddress, INVALID_ADDRESS);
+  }
+
+  private void unlinkFreeOverflowBlock(long address) {
+    long previousAddress = previousFreeOverflowBlockAddresses.remove(address);
+    long nextAddress = nextFreeOverflowBlockAddresses.remove(address);
+    freeOverflowBlockAddresses.remove(address);
+
+    linkFreeOverflowBlocks(previousAddress, nextAddress);
+    if (previousAddress == INVALID_ADDRESS) {
+      firstFreeBlockAddressFromOverflowFile = nextAddress;
+    }
+  }
+
+  private void linkFreeOverflowBlocks(long previousAddress, long nextAddress) {
+    if (previousAddress != INVALID_ADDRESS) {
+      nextFreeOverflowBlockAddresses.put(previousAddress, nextAddress);
+    }
+    if (nextAddress != INVALID_ADDRESS) {
+      previousFreeOverflowBlockAddresses.put(nextAddress, previousAddress);
+    }
+  }
+
   public String sequenceToStringOverflowFile() throws IOException {
     StringBuilder sb = new StringBuilder();
     //        Stack<TrieNode> stack = new Stack<>();
@@ -384,7 +1493,8 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
     //        }
     sb.append("Overflow file:\n");
 
-    for (long i = 0, fileLength = overflowFileStream.length();
+    for (long i = getFirstBlockAddress(overflowFileHeader),
+            fileLength = overflowFileStream.length();
         i < fileLength;
         i +=
             ((long) tDummyInstance.getByteSize() * overflowFileBlockingFactor
@@ -405,8 +1515,66 @@ class FileBlockManager<T extends Record> implements AutoCloseable {
   @Override
   public void close() throws IOException {
     System.out.println("MANAGER: CLOSING FILES");
-    mainFileStream.close();
-    overflowFileStream.close();
+    stopPeriodicSync();
+    try {
+      if (mainFileHeader != null) {
+        mainFileHeader
+            .setFirstFreeBlockAddress(firstFreeBlockAddressFromMainFile)
+            .setFileLength(mainFileStream.length());
+        writeHeader(mainFileStream, mainFileHeader);
+      }
+      if (overflowFileHeader != null) {
+        overflowFileHeader
+            .setFirstFreeBlockAddress(firstFreeBlockAddressFromOverflowFile)
+            .setFileLength(overflowFileStream.length());
+        writeHeader(overflowFileStream, overflowFileHeader);
+      }
+
+      // operations after the last periodic force are forced too, logged file is forced by log
+      if (durabilityMode != DurabilityMode.NONE && writeAheadLog == null) {
+        groupSync.syncRegistered();
+      }
+    } finally {
+      closeFiles();
+    }
+  }
+
+  private void closeFiles() throws IOException {
+    try {
+      if (writeAheadLog != null) {
+        writeAheadLog.close();
+      }
+    } finally {
+      try {
+        mainFileStream.close();
+      } finally {
+        overflowFileStream.close();
+      }
+    }
+  }
+
+  /** Main block of recovered leaf with records of its chain of overflow blocks. */
+  private record RecoveredLeaf(
+      long address,
+      long hashBits,
+      int prefixLength,
+      int recordsInMainBlock,
+      List<Long> overflowBlockAddresses,
+      List<Integer> overflowBlockRecordCounts) {
+    Prefix prefix() {
+      return Prefix.of(hashBits, prefixLength);
+    }
+
+    int recordsInOverflowBlocks() {
+      return overflowBlockRecordCounts.stream().mapToInt(Integer::intValue).sum();
+    }
+  }
+
+  /** First bits of hash used on path from root to node of given depth. */
+  private record Prefix(int length, long bits) {
+    static Prefix of(long hashBits, int length) {
+      return new Prefix(length, length >= Long.SIZE ? hashBits : hashBits & ((1L << length) - 1));
+    }
   }
 
 }
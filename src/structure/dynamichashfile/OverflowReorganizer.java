@@ -0,0 +1,117 @@
+package structure.dynamichashfile;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import structure.dynamichashfile.trie.LeafTrieNode;
+
+/**
+ * Reorganizes overflow chains of leaves in background, one leaf at a time, so foreground operations
+ * wait at most for reorganization of one chain. Pause after every leaf keeps block I/O under given
+ * rate. Leaves are searched again after every pass. Failed leaf is skipped and reorganization goes
+ * on, the first error is thrown by close.
+ */
+class OverflowReorganizer implements AutoCloseable {
+  private static final long PASS_PAUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+  private final ScheduledThreadPoolExecutor executor;
+  private final int blocksPerSecond;
+  private final Supplier<Iterable<LeafTrieNode>> leavesSupplier;
+  private final ToIntFunction<LeafTrieNode> leafReorganizer;
+  // accessed only by the thread of executor
+  private final Queue<LeafTrieNode> pendingLeaves;
+  private final AtomicReference<RuntimeException> firstError;
+
+  /**
+   * @param leavesSupplier leaves with overflow blocks
+   * @param leafReorganizer reorganizes chain of leaf and returns count of read and written blocks
+   */
+  OverflowReorganizer(
+      int blocksPerSecond,
+      Supplier<Iterable<LeafTrieNode>> leavesSupplier,
+      ToIntFunction<LeafTrieNode> leafReorganizer) {
+    this.executor =
+        new ScheduledThreadPoolExecutor(
+            1,
+            runnable -> {
+              Thread thread = new Thread(runnable, "dynamic-hash-file-reorganizer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    // waiting reorganization is dropped by close, running one is finished
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    this.blocksPerSecond = blocksPerSecond;
+    this.leavesSupplier = leavesSupplier;
+    this.leafReorganizer = leafReorganizer;
+    this.pendingLeaves = new ArrayDeque<>();
+    this.firstError = new AtomicReference<>();
+  }
+
+  void start() {
+    executor.schedule(this::reorganizeNextLeaf, PASS_PAUSE_NANOS, TimeUnit.NANOSECONDS);
+  }
+
+  private void reorganizeNextLeaf() {
+    // exception would end the chain of scheduled calls, it is kept for close instead
+    long pauseNanos;
+    try {
+      pauseNanos = reorganizeLeaf();
+    } catch (RuntimeException e) {
+      firstError.compareAndSet(null, e);
+      pauseNanos = PASS_PAUSE_NANOS;
+    }
+
+    schedule(pauseNanos);
+  }
+
+  /**
+   * @return pause before next leaf
+   */
+  private long reorganizeLeaf() {
+    if (pendingLeaves.isEmpty()) {
+      leavesSupplier.get().forEach(pendingLeaves::add);
+
+      if (pendingLeaves.isEmpty()) {
+        return PASS_PAUSE_NANOS;
+      }
+    }
+
+    int blocksCount = leafReorganizer.applyAsInt(pendingLeaves.poll());
+    long pauseNanos = TimeUnit.SECONDS.toNanos(blocksCount) / blocksPerSecond;
+
+    return pendingLeaves.isEmpty() ? Math.max(pauseNanos, PASS_PAUSE_NANOS) : pauseNanos;
+  }
+
+  private void schedule(long delayNanos) {
+    if (!executor.isShutdown()) {
+      executor.schedule(this::reorganizeNextLeaf, delayNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Waits for reorganization of leaf, which is running.
+   *
+   * @throws IllegalStateException when reorganization of any leaf failed
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    RuntimeException error = firstError.get();
+    if (error != null) {
+      throw new IllegalStateException(
+          String.format(
+              "Reorganization of overflow chains failed! Error message: %s",
+              error.getLocalizedMessage()),
+          error);
+    }
+  }
+}
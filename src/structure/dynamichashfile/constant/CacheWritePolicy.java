@@ -0,0 +1,8 @@
+package structure.dynamichashfile.constant;
+
+public enum CacheWritePolicy {
+  /** Written block is stored in cache and immediately written to file. */
+  WRITE_THROUGH,
+  /** Written block is only marked as dirty and written to file on eviction or flush. */
+  WRITE_BACK
+}
@@ -0,0 +1,15 @@
+package structure.dynamichashfile.constant;
+
+/** Moment, when written data are forced to the device. */
+public enum DurabilityMode {
+  /**
+   * Data are never forced by file, operating system decides when they reach the device. Log is
+   * forced after every group of operations of its configured size, operations of unfinished group
+   * can be lost.
+   */
+  NONE,
+  /** Data are forced by background thread every period, operations do not wait for it. */
+  PERIODIC,
+  /** Every operation waits until its data are forced, waiting operations share one force. */
+  GROUP_COMMIT
+}
@@ -0,0 +1,10 @@
+package structure.dynamichashfile.constant;
+
+public enum IndexType {
+  /** Leaf of record is found by walking the trie from its root, one node per bit of hash. */
+  TRIE,
+  /** Leaf of record is found in directory indexed by first bits of hash, as in extendible hashing. */
+  DIRECTORY,
+  /** Leaf of record is found by walking copy of the trie kept in array of indexes of sons. */
+  COMPACT_TRIE
+}
@@ -0,0 +1,8 @@
+package structure.dynamichashfile.constant;
+
+public enum InsertStatus {
+  /** Record was inserted into the file. */
+  INSERTED,
+  /** Equal record was already in the file or earlier in the same batch, nothing was inserted. */
+  DUPLICATE
+}
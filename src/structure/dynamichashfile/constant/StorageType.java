@@ -0,0 +1,8 @@
+package structure.dynamichashfile.constant;
+
+public enum StorageType {
+  /** Every block is read and written by seek and read/write of RandomAccessFile. */
+  RANDOM_ACCESS_FILE,
+  /** Files are mapped into memory by FileChannel.map, blocks are copied from mapped region. */
+  MEMORY_MAPPED
+}
@@ -1,7 +1,7 @@
 package structure.dynamichashfile.entity;
 
 import entity.RecordDataFactory;
-import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import structure.dynamichashfile.constant.ElementByteSize;
 import structure.dynamichashfile.entity.record.Record;
@@ -9,9 +9,18 @@ import structure.dynamichashfile.entity.record.RecordFactory;
 
 public class Block<T extends Record> implements IConvertableToBytes {
   private static final int INVALID_ADDRESS = -1;
+  static final int HEADER_BYTE_SIZE =
+      ElementByteSize.intByteSize() + (ElementByteSize.longByteSize() * 5);
+  // offsets of header attributes from the beginning of block
+  static final int VALID_RECORDS_COUNT_OFFSET = 0;
+  static final int ADDRESS_OF_OVERFLOW_BLOCK_OFFSET = 4;
+  static final int PREVIOUS_FREE_BLOCK_ADDRESS_OFFSET = 12;
+  static final int NEXT_FREE_BLOCK_ADDRESS_OFFSET = 20;
+  static final int NEXT_OVERFLOW_BLOCK_ADDRESS_OFFSET = 28;
+  static final int PREVIOUS_OVERFLOW_BLOCK_ADDRESS_OFFSET = 36;
   private final T tDummyInstance;
   private final int blockingFactor;
-  private Record[] records;
+  private final Record[] records;
   private int validRecordsCount;
   private long addressOfOverflowBlock;
   private long nextOverflowBlockAddress;
@@ -61,8 +70,7 @@ public class Block<T extends Record> implements IConvertableToBytes {
   }
 
   public int getByteSize() {
-    return tDummyInstance.getByteSize() * blockingFactor
-        + (ElementByteSize.intByteSize() + (ElementByteSize.longByteSize() * 5));
+    return tDummyInstance.getByteSize() * blockingFactor + HEADER_BYTE_SIZE;
   }
 
   public Record[] getValidRecords() {
@@ -82,6 +90,10 @@ public class Block<T extends Record> implements IConvertableToBytes {
     return this;
   }
 
+  public long getPreviousFreeBlockAddress() {
+    return previousFreeBlockAddress;
+  }
+
   public void setPreviousFreeBlockAddress(long address) {
     previousFreeBlockAddress = address;
   }
@@ -136,7 +148,7 @@ public class Block<T extends Record> implements IConvertableToBytes {
     }
 
     int lastValidRecordIndex = validRecordsCount - 1;
-    for (int i = 0; i < records.length; i++) {
+    for (int i = 0; i < validRecordsCount; i++) {
       if (records[i].equals(pRecord)) {
         removeRecord(i, lastValidRecordIndex);
         return;
@@ -166,73 +178,80 @@ public class Block<T extends Record> implements IConvertableToBytes {
 
   @Override
   public byte[] toByteArray() {
-    try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        DataOutputStream outputStream = new DataOutputStream(byteArrayOutputStream)) {
-
-      outputStream.writeInt(validRecordsCount);
-      outputStream.writeLong(addressOfOverflowBlock);
-      outputStream.writeLong(previousFreeBlockAddress);
-      outputStream.writeLong(nextFreeBlockAddress);
-      outputStream.writeLong(nextOverflowBlockAddress);
-      outputStream.writeLong(previousOverflowBlockAddress);
-
-      int byteSizeOfOneRecord = tDummyInstance.getByteSize();
-      byte[] result = new byte[byteSizeOfOneRecord * blockingFactor];
-      for (int i = 0; i < records.length; i++) {
-        byte[] recordBytes = records[i].toByteArray();
-        System.arraycopy(recordBytes, 0, result, (i) * byteSizeOfOneRecord, byteSizeOfOneRecord);
-      }
-
-      outputStream.write(result);
+    ByteBuffer buffer = ByteBuffer.allocate(getByteSize());
+    writeTo(buffer);
 
-      return byteArrayOutputStream.toByteArray();
-    } catch (IOException e) {
-      throw new IllegalStateException("Error during conversion to byte array.");
-    }
+    return buffer.array();
   }
 
   @Override
   public void fromByteArray(byte[] byteArray) {
+    readFrom(ByteBuffer.wrap(byteArray), 0);
+  }
 
-    try (ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArray);
-        DataInputStream inputStream = new DataInputStream(byteArrayInputStream)) {
-
-      validRecordsCount = inputStream.readInt();
-      addressOfOverflowBlock = inputStream.readLong();
-      previousFreeBlockAddress = inputStream.readLong();
-      nextFreeBlockAddress = inputStream.readLong();
-      nextOverflowBlockAddress = inputStream.readLong();
-      previousOverflowBlockAddress = inputStream.readLong();
-
-      int byteSizeOfOneRecord = tDummyInstance.getByteSize();
-      int numberOfRecordsInByteArray = byteArray.length / byteSizeOfOneRecord;
-      records = new Record[numberOfRecordsInByteArray];
-
-      if (numberOfRecordsInByteArray > blockingFactor) {
-        throw new IllegalStateException(
-            String.format(
-                "Byte array contains more records that Block can handle. %d records for %d blocking factor!",
-                numberOfRecordsInByteArray, blockingFactor));
-      }
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    int blockOffset = buffer.position();
+
+    buffer.putInt(validRecordsCount);
+    buffer.putLong(addressOfOverflowBlock);
+    buffer.putLong(previousFreeBlockAddress);
+    buffer.putLong(nextFreeBlockAddress);
+    buffer.putLong(nextOverflowBlockAddress);
+    buffer.putLong(previousOverflowBlockAddress);
+
+    int byteSizeOfOneRecord = tDummyInstance.getByteSize();
+    for (int i = 0; i < validRecordsCount; i++) {
+      buffer.position(blockOffset + HEADER_BYTE_SIZE + i * byteSizeOfOneRecord);
+      records[i].writeTo(buffer);
+    }
 
-      int counter = 0;
-      for (int i = 0;
-          i < numberOfRecordsInByteArray * byteSizeOfOneRecord;
-          i += byteSizeOfOneRecord) {
-        Record record =
-            RecordDataFactory.fromByteArray(
-                Arrays.copyOfRange(
-                    byteArray,
-                    (ElementByteSize.intByteSize() + (ElementByteSize.longByteSize() * 5)) + i,
-                    ((ElementByteSize.intByteSize() + (ElementByteSize.longByteSize() * 5)) + i)
-                        + byteSizeOfOneRecord));
-        records[counter] = record;
-        counter++;
+    // slots behind valid records are only zeroed, reused buffer can hold bytes of other block
+    int unusedSlotsOffset =
+        blockOffset + HEADER_BYTE_SIZE + validRecordsCount * byteSizeOfOneRecord;
+    int blockEnd = blockOffset + getByteSize();
+    if (buffer.hasArray()) {
+      Arrays.fill(
+          buffer.array(),
+          buffer.arrayOffset() + unusedSlotsOffset,
+          buffer.arrayOffset() + blockEnd,
+          (byte) 0);
+    } else {
+      for (int i = unusedSlotsOffset; i < blockEnd; i++) {
+        buffer.put(i, (byte) 0);
       }
+    }
+
+    buffer.position(blockEnd);
+  }
+
+  @Override
+  public void readFrom(ByteBuffer buffer, int offset) {
+    int readValidRecordsCount = buffer.getInt(offset + VALID_RECORDS_COUNT_OFFSET);
 
-    } catch (IOException e) {
-      throw new RuntimeException("Error during conversion from byte array.", e);
+    if (readValidRecordsCount < 0 || readValidRecordsCount > blockingFactor) {
+      throw new IllegalStateException(
+          String.format(
+              "Cannot read block with %d valid records! Blocking factor is %d.",
+              readValidRecordsCount, blockingFactor));
+    }
+
+    validRecordsCount = readValidRecordsCount;
+    addressOfOverflowBlock = buffer.getLong(offset + ADDRESS_OF_OVERFLOW_BLOCK_OFFSET);
+    previousFreeBlockAddress = buffer.getLong(offset + PREVIOUS_FREE_BLOCK_ADDRESS_OFFSET);
+    nextFreeBlockAddress = buffer.getLong(offset + NEXT_FREE_BLOCK_ADDRESS_OFFSET);
+    nextOverflowBlockAddress = buffer.getLong(offset + NEXT_OVERFLOW_BLOCK_ADDRESS_OFFSET);
+    previousOverflowBlockAddress =
+        buffer.getLong(offset + PREVIOUS_OVERFLOW_BLOCK_ADDRESS_OFFSET);
+
+    int byteSizeOfOneRecord = tDummyInstance.getByteSize();
+
+    for (int i = 0; i < validRecordsCount; i++) {
+      records[i] =
+          RecordDataFactory.fromByteBuffer(
+              buffer, offset + HEADER_BYTE_SIZE + i * byteSizeOfOneRecord);
     }
+    Arrays.fill(records, validRecordsCount, blockingFactor, tDummyInstance);
   }
 
   public boolean isEmpty() {
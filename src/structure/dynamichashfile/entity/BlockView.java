@@ -0,0 +1,64 @@
+package structure.dynamichashfile.entity;
+
+import entity.RecordDataFactory;
+import java.nio.ByteBuffer;
+import structure.dynamichashfile.entity.record.Record;
+
+/**
+ * Read only view of block bytes. Header is read on demand and while searching only keys of valid
+ * records are compared, whole record is created just for the found one.
+ *
+ * <p>View is valid only until next read from the storage it was created from.
+ */
+public class BlockView<T extends Record> {
+  private static final int INVALID_OFFSET = -1;
+  private final ByteBuffer buffer;
+  private final int offset;
+  private final int byteSizeOfOneRecord;
+
+  public BlockView(ByteBuffer buffer, int offset, int byteSizeOfOneRecord) {
+    this.buffer = buffer;
+    this.offset = offset;
+    this.byteSizeOfOneRecord = byteSizeOfOneRecord;
+  }
+
+  public int getValidRecordsCount() {
+    return buffer.getInt(offset + Block.VALID_RECORDS_COUNT_OFFSET);
+  }
+
+  public long getAddressOfOverflowBlock() {
+    return buffer.getLong(offset + Block.ADDRESS_OF_OVERFLOW_BLOCK_OFFSET);
+  }
+
+  public long getNextOverflowBlockAddress() {
+    return buffer.getLong(offset + Block.NEXT_OVERFLOW_BLOCK_ADDRESS_OFFSET);
+  }
+
+  public Record getRecord(Record pRecord) {
+    int recordOffset = getOffsetOfRecord(pRecord);
+
+    return recordOffset == INVALID_OFFSET
+        ? null
+        : RecordDataFactory.fromByteBuffer(buffer, recordOffset);
+  }
+
+  public boolean containsRecord(Record pRecord) {
+    return getOffsetOfRecord(pRecord) != INVALID_OFFSET;
+  }
+
+  private int getOffsetOfRecord(Record pRecord) {
+    if (pRecord == null) {
+      throw new IllegalArgumentException("Cannot search null Record!");
+    }
+
+    int validRecordsCount = getValidRecordsCount();
+    for (int i = 0; i < validRecordsCount; i++) {
+      int recordOffset = offset + Block.HEADER_BYTE_SIZE + i * byteSizeOfOneRecord;
+
+      if (pRecord.hasSameKey(buffer, recordOffset)) {
+        return recordOffset;
+      }
+    }
+    return INVALID_OFFSET;
+  }
+}
@@ -0,0 +1,242 @@
+package structure.dynamichashfile.entity;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import structure.dynamichashfile.constant.IndexType;
+
+/**
+ * Header stored on offset 0 of main and overflow file, blocks follow after it. Header of main file
+ * holds description of whole DynamicHashFile - count of records, hash, index and location of
+ * checkpoint of trie. Header of overflow file describes only its blocks.
+ */
+public class FileHeader implements IConvertableToBytes {
+  public static final int BYTE_SIZE = 512;
+  private static final int MAGIC = 0x44484631;
+  private static final int VERSION = 1;
+  private static final int MAX_NAME_BYTE_SIZE = 200;
+  private static final int INVALID_ADDRESS = Block.getInvalidAddress();
+  private int blockingFactor;
+  private int blockByteSize;
+  private String recordClassName;
+  private long firstFreeBlockAddress;
+  private long recordCount;
+  private long trieCheckpointAddress;
+  private int trieCheckpointByteSize;
+  private String hashStrategyClassName;
+  private int hashSize;
+  private IndexType indexType;
+  private int maxDirectoryDepth;
+  private long fileLength;
+
+  public FileHeader() {
+    this.recordClassName = "";
+    this.firstFreeBlockAddress = INVALID_ADDRESS;
+    this.trieCheckpointAddress = INVALID_ADDRESS;
+    this.hashStrategyClassName = "";
+    this.indexType = IndexType.TRIE;
+  }
+
+  /** Checks magic number on the beginning of buffer, files without it have no header. */
+  public static boolean isHeader(ByteBuffer buffer) {
+    return buffer.limit() >= Integer.BYTES && buffer.getInt(0) == MAGIC;
+  }
+
+  private static void writeName(ByteBuffer buffer, String name) {
+    byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+
+    if (bytes.length > MAX_NAME_BYTE_SIZE) {
+      throw new IllegalArgumentException(
+          String.format("Name %s is longer than %d bytes!", name, MAX_NAME_BYTE_SIZE));
+    }
+
+    buffer.putShort((short) bytes.length);
+    buffer.put(bytes);
+    buffer.put(new byte[MAX_NAME_BYTE_SIZE - bytes.length]);
+  }
+
+  private static String readName(ByteBuffer buffer, int offset) {
+    byte[] bytes = new byte[buffer.getShort(offset)];
+    buffer.get(offset + Short.BYTES, bytes);
+
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  public int getBlockingFactor() {
+    return blockingFactor;
+  }
+
+  public FileHeader setBlockingFactor(int blockingFactor) {
+    this.blockingFactor = blockingFactor;
+    return this;
+  }
+
+  public int getBlockByteSize() {
+    return blockByteSize;
+  }
+
+  public FileHeader setBlockByteSize(int blockByteSize) {
+    this.blockByteSize = blockByteSize;
+    return this;
+  }
+
+  public String getRecordClassName() {
+    return recordClassName;
+  }
+
+  public FileHeader setRecordClassName(String recordClassName) {
+    this.recordClassName = recordClassName;
+    return this;
+  }
+
+  public long getFirstFreeBlockAddress() {
+    return firstFreeBlockAddress;
+  }
+
+  public FileHeader setFirstFreeBlockAddress(long firstFreeBlockAddress) {
+    this.firstFreeBlockAddress = firstFreeBlockAddress;
+    return this;
+  }
+
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  public FileHeader setRecordCount(long recordCount) {
+    this.recordCount = recordCount;
+    return this;
+  }
+
+  public long getTrieCheckpointAddress() {
+    return trieCheckpointAddress;
+  }
+
+  public int getTrieCheckpointByteSize() {
+    return trieCheckpointByteSize;
+  }
+
+  /**
+   * @param trieCheckpointAddress address of trie saved behind the last block, invalid address
+   *     when there is no checkpoint
+   */
+  public FileHeader setTrieCheckpoint(long trieCheckpointAddress, int trieCheckpointByteSize) {
+    this.trieCheckpointAddress = trieCheckpointAddress;
+    this.trieCheckpointByteSize = trieCheckpointByteSize;
+    return this;
+  }
+
+  public boolean hasTrieCheckpoint() {
+    return trieCheckpointAddress != INVALID_ADDRESS;
+  }
+
+  public String getHashStrategyClassName() {
+    return hashStrategyClassName;
+  }
+
+  public FileHeader setHashStrategyClassName(String hashStrategyClassName) {
+    this.hashStrategyClassName = hashStrategyClassName;
+    return this;
+  }
+
+  public int getHashSize() {
+    return hashSize;
+  }
+
+  public FileHeader setHashSize(int hashSize) {
+    this.hashSize = hashSize;
+    return this;
+  }
+
+  public IndexType getIndexType() {
+    return indexType;
+  }
+
+  public FileHeader setIndexType(IndexType indexType) {
+    this.indexType = indexType;
+    return this;
+  }
+
+  public int getMaxDirectoryDepth() {
+    return maxDirectoryDepth;
+  }
+
+  public FileHeader setMaxDirectoryDepth(int maxDirectoryDepth) {
+    this.maxDirectoryDepth = maxDirectoryDepth;
+    return this;
+  }
+
+  public long getFileLength() {
+    return fileLength;
+  }
+
+  /**
+   * @param fileLength length of file used by blocks and checkpoint, saved on close. It is 0 while
+   *     file is open or when it is not known.
+   */
+  public FileHeader setFileLength(long fileLength) {
+    this.fileLength = fileLength;
+    return this;
+  }
+
+  @Override
+  public byte[] toByteArray() {
+    ByteBuffer buffer = ByteBuffer.allocate(BYTE_SIZE);
+    writeTo(buffer);
+
+    return buffer.array();
+  }
+
+  @Override
+  public void fromByteArray(byte[] byteArray) {
+    readFrom(ByteBuffer.wrap(byteArray), 0);
+  }
+
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    int start = buffer.position();
+
+    buffer.putInt(MAGIC);
+    buffer.putInt(VERSION);
+    buffer.putInt(blockingFactor);
+    buffer.putInt(blockByteSize);
+    buffer.putLong(firstFreeBlockAddress);
+    buffer.putLong(recordCount);
+    buffer.putLong(trieCheckpointAddress);
+    buffer.putInt(trieCheckpointByteSize);
+    buffer.putInt(hashSize);
+    buffer.putInt(indexType.ordinal());
+    buffer.putInt(maxDirectoryDepth);
+    writeName(buffer, recordClassName);
+    writeName(buffer, hashStrategyClassName);
+    buffer.putLong(fileLength);
+
+    // rest of header is reserved for next versions
+    buffer.put(new byte[BYTE_SIZE - (buffer.position() - start)]);
+  }
+
+  @Override
+  public void readFrom(ByteBuffer buffer, int offset) {
+    if (buffer.getInt(offset) != MAGIC) {
+      throw new IllegalStateException("Data do not contain header of DynamicHashFile!");
+    }
+
+    int version = buffer.getInt(offset + 4);
+    if (version != VERSION) {
+      throw new IllegalStateException(
+          String.format("Version %d of file header is not supported!", version));
+    }
+
+    blockingFactor = buffer.getInt(offset + 8);
+    blockByteSize = buffer.getInt(offset + 12);
+    firstFreeBlockAddress = buffer.getLong(offset + 16);
+    recordCount = buffer.getLong(offset + 24);
+    trieCheckpointAddress = buffer.getLong(offset + 32);
+    trieCheckpointByteSize = buffer.getInt(offset + 40);
+    hashSize = buffer.getInt(offset + 44);
+    indexType = IndexType.values()[buffer.getInt(offset + 48)];
+    maxDirectoryDepth = buffer.getInt(offset + 52);
+    recordClassName = readName(buffer, offset + 56);
+    hashStrategyClassName = readName(buffer, offset + 56 + Short.BYTES + MAX_NAME_BYTE_SIZE);
+    // headers saved before length of file have zeros on its place
+    fileLength = buffer.getLong(offset + 56 + 2 * (Short.BYTES + MAX_NAME_BYTE_SIZE));
+  }
+}
@@ -1,7 +1,15 @@
 package structure.dynamichashfile.entity;
 
+import java.nio.ByteBuffer;
+
 public interface IConvertableToBytes {
   byte[] toByteArray();
 
   void fromByteArray(byte[] byteArray);
+
+  /** Writes same bytes as toByteArray on current position of buffer and moves the position. */
+  void writeTo(ByteBuffer buffer);
+
+  /** Reads object written by writeTo from given offset. Position of buffer is not changed. */
+  void readFrom(ByteBuffer buffer, int offset);
 }
@@ -1,6 +1,8 @@
 package structure.dynamichashfile.entity;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import structure.dynamichashfile.constant.ElementByteSize;
 
 public class LimitedString implements IConvertableToBytes {
@@ -48,6 +50,43 @@ public class LimitedString implements IConvertableToBytes {
     }
   }
 
+  @Override
+  public void writeTo(ByteBuffer buffer) {
+    buffer.putInt(maxLength);
+    buffer.putInt(string.length());
+
+    // same as DataOutputStream.writeBytes - only low byte of every char is written
+    int charsFromString = Math.min(string.length(), maxLength);
+    for (int i = 0; i < charsFromString; i++) {
+      buffer.put((byte) string.charAt(i));
+    }
+
+    for (int i = charsFromString; i < maxLength; i++) {
+      buffer.put((byte) FILLER.charAt(0));
+    }
+  }
+
+  @Override
+  public void readFrom(ByteBuffer buffer, int offset) {
+    maxLength = buffer.getInt(offset);
+    int stringLength = Math.min(buffer.getInt(offset + ElementByteSize.intByteSize()), maxLength);
+    int stringOffset = offset + STATIC_ATTRIBUTES_BYTE_SIZE;
+
+    if (buffer.hasArray()) {
+      string =
+          new String(
+              buffer.array(),
+              buffer.arrayOffset() + stringOffset,
+              stringLength,
+              StandardCharsets.ISO_8859_1);
+      return;
+    }
+
+    byte[] stringBytes = new byte[stringLength];
+    buffer.get(stringOffset, stringBytes);
+    string = new String(stringBytes, StandardCharsets.ISO_8859_1);
+  }
+
   private String getAdjustedString() {
     int lengthDifference = maxLength - string.length();
 
@@ -1,5 +1,6 @@
 package structure.dynamichashfile.entity.record;
 
+import java.nio.ByteBuffer;
 import java.util.BitSet;
 import structure.dynamichashfile.entity.IConvertableToBytes;
 
@@ -11,7 +12,19 @@ import structure.dynamichashfile.entity.IConvertableToBytes;
 public abstract class Record implements IConvertableToBytes {
   public abstract int getByteSize();
 
-  public abstract BitSet hash();
+  /** Bits of hash, bit on index i of the long is bit i of the hash. */
+  public abstract long hashBits();
+
+  /** Key of record for hash strategies, equal records need equal key. */
+  public abstract long getHashKey();
+
+  public BitSet hash() {
+    return BitSet.valueOf(new long[] {hashBits()});
+  }
+
+  public static boolean isHashBitSet(long hashBits, int index) {
+    return index < Long.SIZE && ((hashBits >>> index) & 1) != 0;
+  }
 
   public abstract int getMaxHashSize();
 
@@ -20,4 +33,16 @@ public abstract class Record implements IConvertableToBytes {
 
   @Override
   public abstract void fromByteArray(byte[] byteArray);
+
+  @Override
+  public abstract void writeTo(ByteBuffer buffer);
+
+  @Override
+  public abstract void readFrom(ByteBuffer buffer, int offset);
+
+  /**
+   * Compares only key of record written by writeTo on given offset, so the record does not need to
+   * be created. Result has to be same as equals with the created record.
+   */
+  public abstract boolean hasSameKey(ByteBuffer buffer, int offset);
 }
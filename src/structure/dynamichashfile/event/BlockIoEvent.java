@@ -0,0 +1,35 @@
+package structure.dynamichashfile.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Threshold;
+
+/**
+ * Read or write of one block. Blocks are read by every operation, so only the ones slower than the
+ * threshold are recorded by default.
+ */
+@Category({"Dynamic Hash File", "Block I/O"})
+@Threshold("1 ms")
+abstract class BlockIoEvent extends Event {
+  @Label("File")
+  String file;
+
+  @Label("Address")
+  long address;
+
+  @Label("Records Count")
+  int recordsCount;
+
+  /** Commits event started by begin, when it is enabled and longer than threshold. */
+  public void commit(String file, long address, int recordsCount) {
+    if (!shouldCommit()) {
+      return;
+    }
+
+    this.file = file;
+    this.address = address;
+    this.recordsCount = recordsCount;
+    commit();
+  }
+}
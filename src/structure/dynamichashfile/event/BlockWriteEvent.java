@@ -0,0 +1,8 @@
+package structure.dynamichashfile.event;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("structure.dynamichashfile.BlockWrite")
+@Label("Block Write")
+public class BlockWriteEvent extends BlockIoEvent {}
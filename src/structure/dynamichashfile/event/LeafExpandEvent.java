@@ -0,0 +1,36 @@
+package structure.dynamichashfile.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Split of full leaf into new leaves until records fit into their blocks. */
+@Name("structure.dynamichashfile.LeafExpand")
+@Label("Leaf Expand")
+@Category("Dynamic Hash File")
+public class LeafExpandEvent extends Event {
+  @Label("Address")
+  long address;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Records Count")
+  int recordsCount;
+
+  @Label("Iterations")
+  int iterations;
+
+  public void commit(long address, int depth, int recordsCount, int iterations) {
+    if (!shouldCommit()) {
+      return;
+    }
+
+    this.address = address;
+    this.depth = depth;
+    this.recordsCount = recordsCount;
+    this.iterations = iterations;
+    commit();
+  }
+}
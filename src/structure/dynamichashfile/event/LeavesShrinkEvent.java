@@ -0,0 +1,36 @@
+package structure.dynamichashfile.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Merge of two brother leaves into new leaf of their parent. */
+@Name("structure.dynamichashfile.LeavesShrink")
+@Label("Leaves Shrink")
+@Category("Dynamic Hash File")
+public class LeavesShrinkEvent extends Event {
+  @Label("Address")
+  long address;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Records Count")
+  int recordsCount;
+
+  /**
+   * @param address of main block of new leaf
+   * @param depth of new leaf
+   */
+  public void commit(long address, int depth, int recordsCount) {
+    if (!shouldCommit()) {
+      return;
+    }
+
+    this.address = address;
+    this.depth = depth;
+    this.recordsCount = recordsCount;
+    commit();
+  }
+}
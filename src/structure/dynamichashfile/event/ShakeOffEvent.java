@@ -0,0 +1,49 @@
+package structure.dynamichashfile.event;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Move of records of leaf to the front of its overflow chain, empty blocks are released. */
+@Name("structure.dynamichashfile.ShakeOff")
+@Label("Overflow Shake Off")
+@Category("Dynamic Hash File")
+public class ShakeOffEvent extends Event {
+  @Label("Address")
+  long address;
+
+  @Label("Depth")
+  int depth;
+
+  @Label("Records Count")
+  int recordsCount;
+
+  @Label("Overflow Blocks Count")
+  int overflowBlocksCount;
+
+  @Label("Released Blocks Count")
+  int releasedBlocksCount;
+
+  /**
+   * @param address of main block of leaf
+   * @param overflowBlocksCount overflow blocks of leaf before shake off
+   */
+  public void commit(
+      long address,
+      int depth,
+      int recordsCount,
+      int overflowBlocksCount,
+      int releasedBlocksCount) {
+    if (!shouldCommit()) {
+      return;
+    }
+
+    this.address = address;
+    this.depth = depth;
+    this.recordsCount = recordsCount;
+    this.overflowBlocksCount = overflowBlocksCount;
+    this.releasedBlocksCount = releasedBlocksCount;
+    commit();
+  }
+}
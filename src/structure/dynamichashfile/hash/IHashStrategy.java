@@ -0,0 +1,15 @@
+package structure.dynamichashfile.hash;
+
+import structure.dynamichashfile.entity.record.Record;
+
+/**
+ * Hash function used by trie of DynamicHashFile. Equal records need equal hash. File has to be
+ * opened again with the same strategy it was created with.
+ */
+public interface IHashStrategy {
+  /** Bit on index i of returned long is bit used on depth i of trie. */
+  long hash(Record record);
+
+  /** Number of used bits of hash, it is max depth of trie. */
+  int getHashSize();
+}
@@ -0,0 +1,41 @@
+package structure.dynamichashfile.hash;
+
+import structure.dynamichashfile.entity.record.Record;
+
+/**
+ * Mixes key of record by finalizer of MurmurHash3, so keys differing in any bit are spread over
+ * all bits of hash. Unlike hash of record, keys with equal low bits do not end in the same leaf.
+ */
+public class MixedHashStrategy implements IHashStrategy {
+  private final int hashSize;
+
+  public MixedHashStrategy(int hashSize) {
+    if (hashSize < 1 || hashSize > Long.SIZE) {
+      throw new IllegalArgumentException(
+          String.format("Hash size has to be between 1 and %d, was %d!", Long.SIZE, hashSize));
+    }
+
+    this.hashSize = hashSize;
+  }
+
+  public static long mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return key;
+  }
+
+  @Override
+  public long hash(Record record) {
+    long hash = mix(record.getHashKey());
+
+    return hashSize == Long.SIZE ? hash : hash & ((1L << hashSize) - 1);
+  }
+
+  @Override
+  public int getHashSize() {
+    return hashSize;
+  }
+}
@@ -0,0 +1,27 @@
+package structure.dynamichashfile.hash;
+
+import structure.dynamichashfile.entity.record.Record;
+
+/** Uses hash implemented by record itself. */
+public class RecordHashStrategy implements IHashStrategy {
+  private final int hashSize;
+
+  public RecordHashStrategy(int hashSize) {
+    if (hashSize < 1 || hashSize > Long.SIZE) {
+      throw new IllegalArgumentException(
+          String.format("Hash size has to be between 1 and %d, was %d!", Long.SIZE, hashSize));
+    }
+
+    this.hashSize = hashSize;
+  }
+
+  @Override
+  public long hash(Record record) {
+    return record.hashBits();
+  }
+
+  @Override
+  public int getHashSize() {
+    return hashSize;
+  }
+}
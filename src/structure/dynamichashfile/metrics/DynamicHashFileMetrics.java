@@ -0,0 +1,22 @@
+package structure.dynamichashfile.metrics;
+
+/**
+ * Snapshot of metrics of DynamicHashFile since it was opened. Latencies are in nanoseconds and
+ * include waiting for locks and durability of operation.
+ *
+ * @param trieDepths depth of leaf found for every searched, inserted or deleted record
+ * @param overflowBlocksPerFind overflow blocks read by find until record was found
+ * @param expandIterations levels of trie added by splits of full leaves
+ * @param shakeOffRuns moves of records from overflow blocks back to fewer blocks
+ */
+public record DynamicHashFileMetrics(
+    FileIoMetrics mainFile,
+    FileIoMetrics overflowFile,
+    HistogramSnapshot findNanos,
+    HistogramSnapshot insertNanos,
+    HistogramSnapshot deleteNanos,
+    HistogramSnapshot editNanos,
+    HistogramSnapshot trieDepths,
+    HistogramSnapshot overflowBlocksPerFind,
+    long expandIterations,
+    long shakeOffRuns) {}
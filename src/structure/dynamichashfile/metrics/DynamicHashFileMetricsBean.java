@@ -0,0 +1,166 @@
+package structure.dynamichashfile.metrics;
+
+import java.util.function.Supplier;
+
+/** Every attribute is read from a new snapshot of metrics. */
+public class DynamicHashFileMetricsBean implements DynamicHashFileMetricsMXBean {
+  private final Supplier<DynamicHashFileMetrics> metricsSupplier;
+
+  public DynamicHashFileMetricsBean(Supplier<DynamicHashFileMetrics> metricsSupplier) {
+    this.metricsSupplier = metricsSupplier;
+  }
+
+  private DynamicHashFileMetrics metrics() {
+    return metricsSupplier.get();
+  }
+
+  @Override
+  public long getMainFileBlockReads() {
+    return metrics().mainFile().blockReads();
+  }
+
+  @Override
+  public long getMainFileBlockWrites() {
+    return metrics().mainFile().blockWrites();
+  }
+
+  @Override
+  public long getMainFileBytesRead() {
+    return metrics().mainFile().bytesRead();
+  }
+
+  @Override
+  public long getMainFileBytesWritten() {
+    return metrics().mainFile().bytesWritten();
+  }
+
+  @Override
+  public long getMainFileFreeBlockReuses() {
+    return metrics().mainFile().freeBlockReuses();
+  }
+
+  @Override
+  public long getMainFileGrowths() {
+    return metrics().mainFile().fileGrowths();
+  }
+
+  @Override
+  public long getOverflowFileBlockReads() {
+    return metrics().overflowFile().blockReads();
+  }
+
+  @Override
+  public long getOverflowFileBlockWrites() {
+    return metrics().overflowFile().blockWrites();
+  }
+
+  @Override
+  public long getOverflowFileBytesRead() {
+    return metrics().overflowFile().bytesRead();
+  }
+
+  @Override
+  public long getOverflowFileBytesWritten() {
+    return metrics().overflowFile().bytesWritten();
+  }
+
+  @Override
+  public long getOverflowFileFreeBlockReuses() {
+    return metrics().overflowFile().freeBlockReuses();
+  }
+
+  @Override
+  public long getOverflowFileGrowths() {
+    return metrics().overflowFile().fileGrowths();
+  }
+
+  @Override
+  public long getFindCount() {
+    return metrics().findNanos().count();
+  }
+
+  @Override
+  public double getFindMeanNanos() {
+    return metrics().findNanos().mean();
+  }
+
+  @Override
+  public long getFindP99Nanos() {
+    return metrics().findNanos().percentile(99);
+  }
+
+  @Override
+  public long getInsertCount() {
+    return metrics().insertNanos().count();
+  }
+
+  @Override
+  public double getInsertMeanNanos() {
+    return metrics().insertNanos().mean();
+  }
+
+  @Override
+  public long getInsertP99Nanos() {
+    return metrics().insertNanos().percentile(99);
+  }
+
+  @Override
+  public long getDeleteCount() {
+    return metrics().deleteNanos().count();
+  }
+
+  @Override
+  public double getDeleteMeanNanos() {
+    return metrics().deleteNanos().mean();
+  }
+
+  @Override
+  public long getDeleteP99Nanos() {
+    return metrics().deleteNanos().percentile(99);
+  }
+
+  @Override
+  public long getEditCount() {
+    return metrics().editNanos().count();
+  }
+
+  @Override
+  public double getEditMeanNanos() {
+    return metrics().editNanos().mean();
+  }
+
+  @Override
+  public long getEditP99Nanos() {
+    return metrics().editNanos().percentile(99);
+  }
+
+  @Override
+  public double getMeanTrieDepth() {
+    return metrics().trieDepths().mean();
+  }
+
+  @Override
+  public long getMaxTrieDepth() {
+    return metrics().trieDepths().max();
+  }
+
+  @Override
+  public double getMeanOverflowBlocksPerFind() {
+    return metrics().overflowBlocksPerFind().mean();
+  }
+
+  @Override
+  public long getMaxOverflowBlocksPerFind() {
+    return metrics().overflowBlocksPerFind().max();
+  }
+
+  @Override
+  public long getExpandIterations() {
+    return metrics().expandIterations();
+  }
+
+  @Override
+  public long getShakeOffRuns() {
+    return metrics().shakeOffRuns();
+  }
+}
@@ -0,0 +1,64 @@
+package structure.dynamichashfile.metrics;
+
+/** Metrics of DynamicHashFile as flat attributes for JMX clients. */
+public interface DynamicHashFileMetricsMXBean {
+  long getMainFileBlockReads();
+
+  long getMainFileBlockWrites();
+
+  long getMainFileBytesRead();
+
+  long getMainFileBytesWritten();
+
+  long getMainFileFreeBlockReuses();
+
+  long getMainFileGrowths();
+
+  long getOverflowFileBlockReads();
+
+  long getOverflowFileBlockWrites();
+
+  long getOverflowFileBytesRead();
+
+  long getOverflowFileBytesWritten();
+
+  long getOverflowFileFreeBlockReuses();
+
+  long getOverflowFileGrowths();
+
+  long getFindCount();
+
+  double getFindMeanNanos();
+
+  long getFindP99Nanos();
+
+  long getInsertCount();
+
+  double getInsertMeanNanos();
+
+  long getInsertP99Nanos();
+
+  long getDeleteCount();
+
+  double getDeleteMeanNanos();
+
+  long getDeleteP99Nanos();
+
+  long getEditCount();
+
+  double getEditMeanNanos();
+
+  long getEditP99Nanos();
+
+  double getMeanTrieDepth();
+
+  long getMaxTrieDepth();
+
+  double getMeanOverflowBlocksPerFind();
+
+  long getMaxOverflowBlocksPerFind();
+
+  long getExpandIterations();
+
+  long getShakeOffRuns();
+}
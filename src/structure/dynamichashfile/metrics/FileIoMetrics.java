@@ -0,0 +1,21 @@
+package structure.dynamichashfile.metrics;
+
+/**
+ * Block I/O of file counted above its cache, so read of cached block is counted too.
+ *
+ * @param freeBlockReuses new blocks taken from list of free blocks
+ * @param fileGrowths new blocks appended to the end of file
+ */
+public record FileIoMetrics(
+    long blockReads,
+    long blockWrites,
+    long bytesRead,
+    long bytesWritten,
+    long freeBlockReuses,
+    long fileGrowths) {
+
+  public double freeBlockReuseRatio() {
+    long allocations = freeBlockReuses + fileGrowths;
+    return allocations == 0 ? 0 : (double) freeBlockReuses / allocations;
+  }
+}
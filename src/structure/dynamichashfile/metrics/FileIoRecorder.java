@@ -0,0 +1,41 @@
+package structure.dynamichashfile.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Counts block reads and writes of one file and allocations of its blocks. */
+public class FileIoRecorder {
+  private final LongAdder blockReads = new LongAdder();
+  private final LongAdder blockWrites = new LongAdder();
+  private final LongAdder bytesRead = new LongAdder();
+  private final LongAdder bytesWritten = new LongAdder();
+  private final LongAdder freeBlockReuses = new LongAdder();
+  private final LongAdder fileGrowths = new LongAdder();
+
+  public void recordBlockRead(int byteSize) {
+    blockReads.increment();
+    bytesRead.add(byteSize);
+  }
+
+  public void recordBlockWrite(int byteSize) {
+    blockWrites.increment();
+    bytesWritten.add(byteSize);
+  }
+
+  public void recordFreeBlockReuse() {
+    freeBlockReuses.increment();
+  }
+
+  public void recordFileGrowth() {
+    fileGrowths.increment();
+  }
+
+  public FileIoMetrics getMetrics() {
+    return new FileIoMetrics(
+        blockReads.sum(),
+        blockWrites.sum(),
+        bytesRead.sum(),
+        bytesWritten.sum(),
+        freeBlockReuses.sum(),
+        fileGrowths.sum());
+  }
+}
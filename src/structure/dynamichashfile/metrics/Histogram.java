@@ -0,0 +1,42 @@
+package structure.dynamichashfile.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values in buckets by powers of two, bucket i counts values from 2^(i-1)
+ * to 2^i - 1. Values are recorded concurrently without locks.
+ */
+public class Histogram {
+  private final LongAdder[] bucketCounts;
+  private final LongAdder sum;
+  private final LongAccumulator max;
+
+  public Histogram() {
+    this.bucketCounts = new LongAdder[Long.SIZE + 1];
+    for (int i = 0; i < bucketCounts.length; i++) {
+      bucketCounts[i] = new LongAdder();
+    }
+    this.sum = new LongAdder();
+    this.max = new LongAccumulator(Math::max, 0);
+  }
+
+  public void record(long value) {
+    long recordedValue = Math.max(value, 0);
+
+    bucketCounts[Long.SIZE - Long.numberOfLeadingZeros(recordedValue)].increment();
+    sum.add(recordedValue);
+    max.accumulate(recordedValue);
+  }
+
+  public HistogramSnapshot getSnapshot() {
+    long[] counts = new long[bucketCounts.length];
+    long count = 0;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = bucketCounts[i].sum();
+      count += counts[i];
+    }
+
+    return new HistogramSnapshot(count, sum.sum(), max.get(), counts);
+  }
+}
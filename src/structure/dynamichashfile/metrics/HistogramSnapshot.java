@@ -0,0 +1,36 @@
+package structure.dynamichashfile.metrics;
+
+/**
+ * @param bucketCounts count of values in bucket i from 2^(i-1) to 2^i - 1, values 0 are in bucket
+ *     0
+ */
+public record HistogramSnapshot(long count, long sum, long max, long[] bucketCounts) {
+
+  public double mean() {
+    return count == 0 ? 0 : (double) sum / count;
+  }
+
+  /**
+   * Upper bound of bucket with given percentile of values, so it is at most twice the real value.
+   *
+   * @param percentile from 0 to 100
+   */
+  public long percentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException(
+          String.format("Percentile %f is not between 0 and 100!", percentile));
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+    long countedValues = 0;
+    for (int i = 0; i < bucketCounts.length; i++) {
+      countedValues += bucketCounts[i];
+
+      if (countedValues >= rank) {
+        return i == Long.SIZE ? max : Math.min(max, (1L << i) - 1);
+      }
+    }
+
+    return max;
+  }
+}
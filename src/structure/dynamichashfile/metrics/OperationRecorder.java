@@ -0,0 +1,61 @@
+package structure.dynamichashfile.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Records latencies of operations of DynamicHashFile and work done by them in trie and blocks. */
+public class OperationRecorder {
+  private final Histogram findNanos = new Histogram();
+  private final Histogram insertNanos = new Histogram();
+  private final Histogram deleteNanos = new Histogram();
+  private final Histogram editNanos = new Histogram();
+  private final Histogram trieDepths = new Histogram();
+  private final Histogram overflowBlocksPerFind = new Histogram();
+  private final LongAdder expandIterations = new LongAdder();
+  private final LongAdder shakeOffRuns = new LongAdder();
+
+  public void recordFind(long startNanos) {
+    findNanos.record(System.nanoTime() - startNanos);
+  }
+
+  public void recordInsert(long startNanos) {
+    insertNanos.record(System.nanoTime() - startNanos);
+  }
+
+  public void recordDelete(long startNanos) {
+    deleteNanos.record(System.nanoTime() - startNanos);
+  }
+
+  public void recordEdit(long startNanos) {
+    editNanos.record(System.nanoTime() - startNanos);
+  }
+
+  public void recordTrieDepth(int depth) {
+    trieDepths.record(depth);
+  }
+
+  public void recordOverflowBlocksOfFind(int overflowBlocksCount) {
+    overflowBlocksPerFind.record(overflowBlocksCount);
+  }
+
+  public void recordExpandIteration() {
+    expandIterations.increment();
+  }
+
+  public void recordShakeOff() {
+    shakeOffRuns.increment();
+  }
+
+  public DynamicHashFileMetrics getMetrics(FileIoMetrics mainFile, FileIoMetrics overflowFile) {
+    return new DynamicHashFileMetrics(
+        mainFile,
+        overflowFile,
+        findNanos.getSnapshot(),
+        insertNanos.getSnapshot(),
+        deleteNanos.getSnapshot(),
+        editNanos.getSnapshot(),
+        trieDepths.getSnapshot(),
+        overflowBlocksPerFind.getSnapshot(),
+        expandIterations.sum(),
+        shakeOffRuns.sum());
+  }
+}
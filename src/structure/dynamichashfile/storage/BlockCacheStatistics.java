@@ -0,0 +1,10 @@
+package structure.dynamichashfile.storage;
+
+public record BlockCacheStatistics(
+    long hitCount, long missCount, long evictionCount, int cachedBlocksCount, int capacity) {
+
+  public double hitRatio() {
+    long requests = hitCount + missCount;
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+}
@@ -0,0 +1,182 @@
+package structure.dynamichashfile.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import structure.dynamichashfile.constant.CacheWritePolicy;
+
+/**
+ * LRU cache of blocks in front of another storage. Blocks are cached as raw bytes, so every reader
+ * still gets its own decoded Block and cannot change cached data without writing it.
+ */
+public class CachedBlockStorage implements IBlockStorage {
+  private final IBlockStorage storage;
+  private final int capacity;
+  private final int blockSize;
+  private final CacheWritePolicy writePolicy;
+  // access ordered - eldest entry is least recently used one
+  private final LinkedHashMap<Long, CacheEntry> cachedBlocks;
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public CachedBlockStorage(
+      IBlockStorage storage, int capacity, int blockSize, CacheWritePolicy writePolicy) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity of block cache must be greater than 0!");
+    }
+
+    this.storage = storage;
+    this.capacity = capacity;
+    this.blockSize = blockSize;
+    this.writePolicy = writePolicy;
+    this.cachedBlocks = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  @Override
+  public ByteBuffer read(long address, int size) throws IOException {
+    if (size != blockSize) {
+      return storage.read(address, size);
+    }
+
+    // concurrent calls change order of entries and statistics, storage is read without lock
+    synchronized (cachedBlocks) {
+      CacheEntry entry = cachedBlocks.get(address);
+
+      if (entry != null) {
+        hitCount++;
+        return entry.data;
+      }
+
+      missCount++;
+    }
+
+    ByteBuffer data = ByteBuffer.allocate(blockSize);
+    data.put(0, storage.read(address, size), 0, blockSize);
+
+    synchronized (cachedBlocks) {
+      putEntry(address, new CacheEntry(data, false));
+    }
+
+    return data;
+  }
+
+  @Override
+  public void write(long address, ByteBuffer source) throws IOException {
+    synchronized (cachedBlocks) {
+      writeToCache(address, source);
+    }
+  }
+
+  private void writeToCache(long address, ByteBuffer source) throws IOException {
+    if (source.remaining() != blockSize) {
+      cachedBlocks.remove(address);
+      storage.write(address, source);
+      return;
+    }
+
+    boolean writeBack = writePolicy == CacheWritePolicy.WRITE_BACK;
+    CacheEntry entry = cachedBlocks.get(address);
+
+    if (entry == null) {
+      entry = new CacheEntry(ByteBuffer.allocate(blockSize), writeBack);
+      putEntry(address, entry);
+    } else {
+      entry.dirty = entry.dirty || writeBack;
+    }
+    entry.data.put(0, source, source.position(), blockSize);
+
+    if (writeBack) {
+      source.position(source.position() + blockSize);
+    } else {
+      storage.write(address, source);
+    }
+  }
+
+  @Override
+  public long length() throws IOException {
+    return storage.length();
+  }
+
+  @Override
+  public void setLength(long newLength) throws IOException {
+    synchronized (cachedBlocks) {
+      if (newLength < storage.length()) {
+        // blocks behind new end of file do not exist anymore - dirty ones are dropped too
+        cachedBlocks.keySet().removeIf(address -> address + blockSize > newLength);
+      }
+
+      storage.setLength(newLength);
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    writeDirtyBlocks();
+    storage.flush();
+  }
+
+  /** Writes dirty blocks to wrapped storage without flushing it. */
+  public void writeDirtyBlocks() throws IOException {
+    synchronized (cachedBlocks) {
+      for (Map.Entry<Long, CacheEntry> entry : cachedBlocks.entrySet()) {
+        if (entry.getValue().dirty) {
+          storage.write(entry.getKey(), entry.getValue().data.duplicate());
+          entry.getValue().dirty = false;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void sync() throws IOException {
+    flush();
+    storage.sync();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      cachedBlocks.clear();
+      storage.close();
+    }
+  }
+
+  public BlockCacheStatistics getStatistics() {
+    synchronized (cachedBlocks) {
+      return new BlockCacheStatistics(
+          hitCount, missCount, evictionCount, cachedBlocks.size(), capacity);
+    }
+  }
+
+  private void putEntry(long address, CacheEntry entry) throws IOException {
+    cachedBlocks.put(address, entry);
+
+    if (cachedBlocks.size() <= capacity) {
+      return;
+    }
+
+    Iterator<Map.Entry<Long, CacheEntry>> iterator = cachedBlocks.entrySet().iterator();
+    Map.Entry<Long, CacheEntry> eldest = iterator.next();
+    iterator.remove();
+    evictionCount++;
+
+    if (eldest.getValue().dirty) {
+      storage.write(eldest.getKey(), eldest.getValue().data.duplicate());
+    }
+  }
+
+  private static class CacheEntry {
+    private final ByteBuffer data;
+    private boolean dirty;
+
+    private CacheEntry(ByteBuffer data, boolean dirty) {
+      this.data = data;
+      this.dirty = dirty;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package structure.dynamichashfile.storage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Shares one force of files between operations waiting for it. Operation waiting while other force
+ * is running is not covered by it, after it ends one of waiting operations forces files for all of
+ * them. Thread-safe.
+ */
+public class GroupSync {
+  private final ForceAction forceAction;
+  private long registeredOperations;
+  private long syncedOperations;
+  private boolean forceRunning;
+  private long syncCount;
+  private long maxBatchSize;
+  private long totalSyncNanos;
+  private long maxSyncNanos;
+
+  public GroupSync(ForceAction forceAction) {
+    this.forceAction = forceAction;
+  }
+
+  /** Registers operation and returns after its data are forced. */
+  public void sync() throws IOException {
+    syncUpTo(register());
+  }
+
+  /** Registers operation without waiting, it is forced by the next force. */
+  public synchronized long register() {
+    return ++registeredOperations;
+  }
+
+  /** Forces data of all registered operations. */
+  public void syncRegistered() throws IOException {
+    long lastOperation;
+    synchronized (this) {
+      lastOperation = registeredOperations;
+    }
+
+    syncUpTo(lastOperation);
+  }
+
+  private void syncUpTo(long operation) throws IOException {
+    long lastOperationOfBatch;
+
+    synchronized (this) {
+      while (forceRunning) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Waiting for force of files was interrupted!");
+        }
+      }
+
+      if (syncedOperations >= operation) {
+        // operation was covered by force of other operation
+        return;
+      }
+
+      forceRunning = true;
+      lastOperationOfBatch = registeredOperations;
+    }
+
+    long start = System.nanoTime();
+    boolean forced = false;
+    try {
+      forceAction.force();
+      forced = true;
+    } finally {
+      long duration = System.nanoTime() - start;
+
+      synchronized (this) {
+        if (forced) {
+          long batchSize = lastOperationOfBatch - syncedOperations;
+          syncedOperations = lastOperationOfBatch;
+
+          syncCount++;
+          maxBatchSize = Math.max(maxBatchSize, batchSize);
+          totalSyncNanos += duration;
+          maxSyncNanos = Math.max(maxSyncNanos, duration);
+        }
+
+        forceRunning = false;
+        notifyAll();
+      }
+    }
+  }
+
+  public synchronized SyncStatistics getStatistics() {
+    return new SyncStatistics(
+        syncCount, syncedOperations, maxBatchSize, totalSyncNanos, maxSyncNanos);
+  }
+
+  @FunctionalInterface
+  public interface ForceAction {
+    void force() throws IOException;
+  }
+}
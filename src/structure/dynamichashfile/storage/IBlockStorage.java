@@ -0,0 +1,32 @@
+package structure.dynamichashfile.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Storage of fixed size blocks addressed by their byte offset in file. Reads, and writes of
+ * different blocks which do not change length of file, can be called concurrently. Other methods
+ * need exclusive access to storage.
+ */
+public interface IBlockStorage extends AutoCloseable {
+  /**
+   * Returns buffer with bytes of block from index 0 to given size. Buffer is valid only until next
+   * call of the storage from the same thread and must not be changed.
+   */
+  ByteBuffer read(long address, int size) throws IOException;
+
+  /** Writes remaining bytes of source buffer on given address. */
+  void write(long address, ByteBuffer source) throws IOException;
+
+  long length() throws IOException;
+
+  void setLength(long newLength) throws IOException;
+
+  void flush() throws IOException;
+
+  /** Flushes storage and forces its content and length to the device. */
+  void sync() throws IOException;
+
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,160 @@
+package structure.dynamichashfile.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Storage mapping whole file into memory. File is mapped by segments, because one mapping cannot
+ * be bigger than 2 GB. When file needs to grow, it is extended by chunks and only last segment is
+ * mapped again. Blocks inside one segment are returned as slices of the mapping without copying.
+ * Sync can run concurrently with growth of file, it forces segments mapped when it started.
+ */
+public class MappedFileStorage implements IBlockStorage {
+  private static final int SEGMENT_SIZE = 1 << 30;
+  private static final long GROWTH_CHUNK_SIZE = 4L << 20;
+  private final RandomAccessFile fileStream;
+  private final FileChannel channel;
+  // segments are replaced only by growth of file, sync iterates copy of them
+  private final List<MappedByteBuffer> segments;
+  // blocks crossing segments are copied, every reading thread has own buffer
+  private final ThreadLocal<ByteBuffer> readBuffers;
+  // length used by blocks, file itself can be longer by not used part of last chunk
+  private long length;
+  private long mappedLength;
+
+  public MappedFileStorage(File file) throws IOException {
+    this.fileStream = new RandomAccessFile(file, "rw");
+    this.channel = fileStream.getChannel();
+    this.segments = new CopyOnWriteArrayList<>();
+    this.readBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
+    this.length = channel.size();
+    this.mappedLength = 0;
+
+    mapUpTo(length);
+  }
+
+  @Override
+  public ByteBuffer read(long address, int size) {
+    int offsetInSegment = (int) (address % SEGMENT_SIZE);
+
+    if (address + size <= length && offsetInSegment + size <= SEGMENT_SIZE) {
+      return segments.get((int) (address / SEGMENT_SIZE)).slice(offsetInSegment, size);
+    }
+
+    // block crosses segments or end of file - it is copied into own buffer
+    ByteBuffer readBuffer = readBuffers.get();
+    if (readBuffer.capacity() < size) {
+      readBuffer = ByteBuffer.allocate(size);
+      readBuffers.set(readBuffer);
+    }
+    readBuffer.clear().limit(size);
+
+    int bytesToRead = (int) Math.max(0, Math.min(size, length - address));
+    int copied = 0;
+    while (copied < bytesToRead) {
+      long position = address + copied;
+      MappedByteBuffer segment = segments.get((int) (position / SEGMENT_SIZE));
+      int offset = (int) (position % SEGMENT_SIZE);
+      int count = Math.min(bytesToRead - copied, segment.capacity() - offset);
+
+      readBuffer.put(copied, segment, offset, count);
+      copied += count;
+    }
+    Arrays.fill(readBuffer.array(), copied, size, (byte) 0);
+
+    return readBuffer;
+  }
+
+  @Override
+  public void write(long address, ByteBuffer source) throws IOException {
+    int size = source.remaining();
+    if (address + size > length) {
+      setLength(address + size);
+    }
+
+    int copied = 0;
+    while (copied < size) {
+      long position = address + copied;
+      MappedByteBuffer segment = segments.get((int) (position / SEGMENT_SIZE));
+      int offsetInSegment = (int) (position % SEGMENT_SIZE);
+      int count = Math.min(size - copied, segment.capacity() - offsetInSegment);
+
+      segment.put(offsetInSegment, source, source.position() + copied, count);
+      copied += count;
+    }
+
+    source.position(source.position() + size);
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public void setLength(long newLength) throws IOException {
+    if (newLength > mappedLength) {
+      long newMappedLength =
+          ((newLength + GROWTH_CHUNK_SIZE - 1) / GROWTH_CHUNK_SIZE) * GROWTH_CHUNK_SIZE;
+      fileStream.setLength(newMappedLength);
+      mapUpTo(newMappedLength);
+    }
+
+    // file is not shrunk while it is mapped, freed space is reused by next growth
+    length = newLength;
+  }
+
+  @Override
+  public void flush() {
+    for (MappedByteBuffer segment : segments) {
+      segment.force();
+    }
+  }
+
+  @Override
+  public void sync() throws IOException {
+    flush();
+    channel.force(true);
+  }
+
+  @Override
+  public void close() throws IOException {
+    flush();
+    segments.clear();
+
+    try {
+      channel.truncate(length);
+    } catch (IOException e) {
+      // some systems do not allow to truncate mapped file, not used chunk stays on its end and
+      // it is ignored by length saved in header of file
+    }
+    fileStream.close();
+  }
+
+  private void mapUpTo(long newMappedLength) throws IOException {
+    int lastSegment = segments.size() - 1;
+    if (lastSegment >= 0 && segments.get(lastSegment).capacity() < SEGMENT_SIZE) {
+      // last segment is not full - it is mapped again with new size in its place
+      long segmentPosition = (long) lastSegment * SEGMENT_SIZE;
+      long size = Math.min(SEGMENT_SIZE, newMappedLength - segmentPosition);
+      segments.set(
+          lastSegment, channel.map(FileChannel.MapMode.READ_WRITE, segmentPosition, size));
+    }
+
+    long position = (long) segments.size() * SEGMENT_SIZE;
+    while (position < newMappedLength) {
+      long size = Math.min(SEGMENT_SIZE, newMappedLength - position);
+      segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, size));
+      position += size;
+    }
+
+    mappedLength = newMappedLength;
+  }
+}
@@ -0,0 +1,83 @@
+package structure.dynamichashfile.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class RandomAccessFileStorage implements IBlockStorage {
+  private final RandomAccessFile fileStream;
+  private final FileChannel channel;
+  // every reading thread has own buffer, positional reads of channel can run concurrently
+  private final ThreadLocal<ByteBuffer> readBuffers;
+  private long length;
+
+  public RandomAccessFileStorage(File file) throws IOException {
+    this.fileStream = new RandomAccessFile(file, "rw");
+    this.channel = fileStream.getChannel();
+    this.readBuffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(0));
+    this.length = fileStream.length();
+  }
+
+  @Override
+  public ByteBuffer read(long address, int size) throws IOException {
+    ByteBuffer readBuffer = readBuffers.get();
+    if (readBuffer.capacity() < size) {
+      readBuffer = ByteBuffer.allocate(size);
+      readBuffers.set(readBuffer);
+    }
+
+    readBuffer.clear().limit(size);
+
+    while (readBuffer.hasRemaining()) {
+      int count = channel.read(readBuffer, address + readBuffer.position());
+
+      if (count < 0) {
+        // reading behind end of file - rest of the block stays empty
+        Arrays.fill(readBuffer.array(), readBuffer.position(), size, (byte) 0);
+        break;
+      }
+    }
+
+    return readBuffer.position(0);
+  }
+
+  @Override
+  public void write(long address, ByteBuffer source) throws IOException {
+    long position = address;
+
+    while (source.hasRemaining()) {
+      position += channel.write(source, position);
+    }
+
+    length = Math.max(length, position);
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public void setLength(long newLength) throws IOException {
+    fileStream.setLength(newLength);
+    length = newLength;
+  }
+
+  @Override
+  public void flush() {
+    // every write goes straight to the file
+  }
+
+  @Override
+  public void sync() throws IOException {
+    channel.force(true);
+  }
+
+  @Override
+  public void close() throws IOException {
+    fileStream.close();
+  }
+}
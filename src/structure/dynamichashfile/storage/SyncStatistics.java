@@ -0,0 +1,21 @@
+package structure.dynamichashfile.storage;
+
+/**
+ * @param syncedOperationsCount operations made durable by all forces, their count in one force is
+ *     size of its batch
+ */
+public record SyncStatistics(
+    long syncCount,
+    long syncedOperationsCount,
+    long maxBatchSize,
+    long totalSyncNanos,
+    long maxSyncNanos) {
+
+  public double averageBatchSize() {
+    return syncCount == 0 ? 0 : (double) syncedOperationsCount / syncCount;
+  }
+
+  public double averageSyncNanos() {
+    return syncCount == 0 ? 0 : (double) totalSyncNanos / syncCount;
+  }
+}
@@ -0,0 +1,170 @@
+package structure.dynamichashfile.trie;
+
+import java.util.Arrays;
+import structure.dynamichashfile.entity.record.Record;
+
+/**
+ * Trie kept in primitive array of sons, leaf of hash is found without reading node objects. Inner
+ * node is index into the array, two sons for every node and left one (set bit of hash) on even
+ * index. Non negative son is inner node, son lower than {@link #NO_NODE} is encoded index of leaf
+ * and {@link #NO_NODE} means there is no son.
+ *
+ * <p>Trie has to be refreshed after every change of sons of inner node, same as {@link
+ * TrieDirectory}. Removed indexes are reused by next created nodes.
+ */
+public class CompactTrie {
+  private static final int NO_NODE = -1;
+  private static final int ROOT = 0;
+  private static final int INITIAL_CAPACITY = 16;
+  private final InnerTrieNode root;
+  // inner nodes - two sons for every node, free nodes are linked by their left son
+  private int[] sons;
+  private int innerNodesCapacityUsed;
+  private int firstFreeInnerNode;
+  // leaves - nodes of leaves, free indexes are kept on stack
+  private LeafTrieNode[] leaves;
+  private int leavesCapacityUsed;
+  private int[] freeLeaves;
+  private int freeLeavesCount;
+
+  public CompactTrie(InnerTrieNode root) {
+    this.root = root;
+    this.sons = new int[INITIAL_CAPACITY * 2];
+    this.firstFreeInnerNode = NO_NODE;
+    this.leaves = new LeafTrieNode[INITIAL_CAPACITY];
+    this.freeLeaves = new int[INITIAL_CAPACITY];
+
+    copySons(root, createInnerNode());
+  }
+
+  /**
+   * @return leaf of hash or null when there is no son on the path
+   */
+  public LeafTrieNode getLeaf(long hashBits) {
+    int node = ROOT;
+    int depth = 0;
+
+    while (true) {
+      int son = sons[node * 2 + (Record.isHashBitSet(hashBits, depth) ? 0 : 1)];
+
+      if (son == NO_NODE) {
+        return null;
+      }
+      if (son < NO_NODE) {
+        return leaves[-son - 2];
+      }
+
+      node = son;
+      depth++;
+    }
+  }
+
+  /** Replaces subtree of node, whose sons were changed. */
+  public void refresh(InnerTrieNode changedNode) {
+    int innerNode = getInnerNode(changedNode);
+
+    removeSons(innerNode);
+    copySons(changedNode, innerNode);
+  }
+
+  public int getLeavesCount() {
+    return leavesCapacityUsed - freeLeavesCount;
+  }
+
+  /** Inner node is found by path of node in node trie, its ancestors were not changed. */
+  private int getInnerNode(InnerTrieNode node) {
+    if (node == root) {
+      return ROOT;
+    }
+
+    InnerTrieNode parent = (InnerTrieNode) node.getParent();
+    int son = sons[getInnerNode(parent) * 2 + (parent.getLeftSon() == node ? 0 : 1)];
+
+    if (son < ROOT) {
+      throw new IllegalStateException(
+          String.format("Node %s is not inner node of compact trie!", node));
+    }
+
+    return son;
+  }
+
+  private void copySons(InnerTrieNode node, int innerNode) {
+    TrieNode[] sonNodes = {node.getLeftSon(), node.getRightSon()};
+
+    for (int i = 0; i < sonNodes.length; i++) {
+      int son = NO_NODE;
+
+      if (sonNodes[i] instanceof LeafTrieNode leafNode) {
+        son = -createLeaf(leafNode) - 2;
+      } else if (sonNodes[i] instanceof InnerTrieNode innerSonNode) {
+        son = createInnerNode();
+        copySons(innerSonNode, son);
+      }
+
+      // array could be reallocated by sons
+      sons[innerNode * 2 + i] = son;
+    }
+  }
+
+  private void removeSons(int innerNode) {
+    for (int i = 0; i < 2; i++) {
+      int son = sons[innerNode * 2 + i];
+
+      if (son < NO_NODE) {
+        removeLeaf(-son - 2);
+      } else if (son != NO_NODE) {
+        removeSons(son);
+        removeInnerNode(son);
+      }
+
+      sons[innerNode * 2 + i] = NO_NODE;
+    }
+  }
+
+  private int createInnerNode() {
+    int innerNode;
+    if (firstFreeInnerNode != NO_NODE) {
+      innerNode = firstFreeInnerNode;
+      firstFreeInnerNode = sons[innerNode * 2];
+    } else {
+      if (innerNodesCapacityUsed * 2 == sons.length) {
+        sons = Arrays.copyOf(sons, sons.length * 2);
+      }
+      innerNode = innerNodesCapacityUsed++;
+    }
+
+    sons[innerNode * 2] = NO_NODE;
+    sons[innerNode * 2 + 1] = NO_NODE;
+
+    return innerNode;
+  }
+
+  private void removeInnerNode(int innerNode) {
+    sons[innerNode * 2] = firstFreeInnerNode;
+    firstFreeInnerNode = innerNode;
+  }
+
+  private int createLeaf(LeafTrieNode leafNode) {
+    int leaf;
+    if (freeLeavesCount > 0) {
+      leaf = freeLeaves[--freeLeavesCount];
+    } else {
+      if (leavesCapacityUsed == leaves.length) {
+        leaves = Arrays.copyOf(leaves, leaves.length * 2);
+      }
+      leaf = leavesCapacityUsed++;
+    }
+
+    leaves[leaf] = leafNode;
+    return leaf;
+  }
+
+  private void removeLeaf(int leaf) {
+    if (freeLeavesCount == freeLeaves.length) {
+      freeLeaves = Arrays.copyOf(freeLeaves, freeLeaves.length * 2);
+    }
+
+    leaves[leaf] = null;
+    freeLeaves[freeLeavesCount++] = leaf;
+  }
+}
@@ -0,0 +1,143 @@
+package structure.dynamichashfile.trie;
+
+/**
+ * Directory of extendible hashing built over the trie. Entry on index i is node reached from root
+ * by first global depth bits of hash equal to i, so leaf with depth (local depth) d is shared by
+ * 2^(globalDepth - d) entries. Global depth grows with the deepest leaf up to max global depth,
+ * entry of deeper leaves is their ancestor in max global depth and lookup continues from it.
+ *
+ * <p>Entry of missing son is its parent. Directory has to be refreshed after every change of sons
+ * of inner node. Depths are counted from root, not taken from nodes.
+ */
+public class TrieDirectory {
+  private final InnerTrieNode root;
+  private final int maxGlobalDepth;
+  private TrieNode[] entries;
+  private byte[] depthsOfEntries;
+  private int globalDepth;
+
+  public TrieDirectory(InnerTrieNode root, int maxGlobalDepth) {
+    if (maxGlobalDepth < 1) {
+      throw new IllegalArgumentException(
+          String.format("Max global depth %d must be at least 1!", maxGlobalDepth));
+    }
+
+    this.root = root;
+    this.maxGlobalDepth = maxGlobalDepth;
+    this.globalDepth = Math.max(1, getMaxLeafDepth(root, 0));
+    rebuild();
+  }
+
+  /**
+   * @return leaf of hash or inner node from which search in trie has to continue
+   */
+  public TrieNode getNode(long hashBits) {
+    return entries[getIndex(hashBits)];
+  }
+
+  /**
+   * @return depth of node returned by {@link #getNode(long)}, index of next bit for inner node
+   */
+  public int getDepthOfNode(long hashBits) {
+    return depthsOfEntries[getIndex(hashBits)];
+  }
+
+  /** Updates entries pointing into subtree of node, whose sons were changed. */
+  public void refresh(InnerTrieNode changedNode) {
+    int depth = 0;
+    for (TrieNode node = changedNode; node != root; node = node.getParent()) {
+      depth++;
+    }
+
+    if (globalDepth < maxGlobalDepth) {
+      int maxLeafDepth = getMaxLeafDepth(changedNode, depth);
+
+      if (maxLeafDepth > globalDepth) {
+        // directory is doubled until the deepest leaf has its own entries
+        globalDepth = maxLeafDepth;
+        rebuild();
+        return;
+      }
+    }
+
+    if (depth >= globalDepth) {
+      // entries end in ancestor of changed node, they stay the same
+      return;
+    }
+
+    fillEntries(changedNode, getPrefix(changedNode, depth), depth);
+  }
+
+  public int getGlobalDepth() {
+    return globalDepth;
+  }
+
+  public int getMaxGlobalDepth() {
+    return maxGlobalDepth;
+  }
+
+  private int getIndex(long hashBits) {
+    return (int) (hashBits & (entries.length - 1));
+  }
+
+  private void rebuild() {
+    entries = new TrieNode[1 << globalDepth];
+    depthsOfEntries = new byte[1 << globalDepth];
+    fillEntries(root, 0, 0);
+  }
+
+  private void fillEntries(TrieNode node, int prefix, int depth) {
+    if (node instanceof InnerTrieNode innerNode && depth < globalDepth) {
+      fillSonEntries(innerNode, innerNode.getLeftSon(), prefix | (1 << depth), depth + 1);
+      fillSonEntries(innerNode, innerNode.getRightSon(), prefix, depth + 1);
+      return;
+    }
+
+    setEntries(node, prefix, depth, depth);
+  }
+
+  private void fillSonEntries(InnerTrieNode parent, TrieNode son, int prefix, int depth) {
+    if (son == null) {
+      setEntries(parent, prefix, depth, depth - 1);
+    } else {
+      fillEntries(son, prefix, depth);
+    }
+  }
+
+  /** Node covers every entry with the same first prefixLength bits. */
+  private void setEntries(TrieNode node, int prefix, int prefixLength, int depthOfNode) {
+    for (int index = prefix; index < entries.length; index += 1 << prefixLength) {
+      entries[index] = node;
+      depthsOfEntries[index] = (byte) depthOfNode;
+    }
+  }
+
+  /** First bits of hash of records in subtree of node. */
+  private int getPrefix(TrieNode node, int depth) {
+    int prefix = 0;
+
+    int bitIndex = depth;
+    for (TrieNode currentNode = node; currentNode != root; currentNode = currentNode.getParent()) {
+      bitIndex--;
+
+      if (((InnerTrieNode) currentNode.getParent()).getLeftSon() == currentNode) {
+        prefix |= 1 << bitIndex;
+      }
+    }
+
+    return prefix;
+  }
+
+  private int getMaxLeafDepth(TrieNode node, int depth) {
+    if (node instanceof InnerTrieNode innerNode && depth < maxGlobalDepth) {
+      int leftDepth =
+          innerNode.getLeftSon() == null ? 0 : getMaxLeafDepth(innerNode.getLeftSon(), depth + 1);
+      int rightDepth =
+          innerNode.getRightSon() == null ? 0 : getMaxLeafDepth(innerNode.getRightSon(), depth + 1);
+
+      return Math.max(leftDepth, rightDepth);
+    }
+
+    return depth;
+  }
+}
@@ -0,0 +1,137 @@
+package structure.dynamichashfile.wal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import structure.dynamichashfile.storage.IBlockStorage;
+
+/**
+ * Storage holding writes in memory until their record is forced to the log. Reads see the held
+ * writes, length of file is changed only logically until then too. Writes of forced records are
+ * applied by the next commit, so storage is accessed only by operations.
+ */
+class LoggedBlockStorage implements IBlockStorage {
+  private final IBlockStorage storage;
+  // writes not applied to storage yet
+  private final Map<Long, ByteBuffer> heldWrites;
+  // writes not saved in record of log yet
+  private final Map<Long, ByteBuffer> writesSinceCommit;
+  // writes saved in records of log, in order of operations
+  private final ArrayDeque<CommittedWrites> committedWrites;
+  private long length;
+
+  LoggedBlockStorage(IBlockStorage storage) throws IOException {
+    this.storage = storage;
+    this.heldWrites = new HashMap<>();
+    this.writesSinceCommit = new LinkedHashMap<>();
+    this.committedWrites = new ArrayDeque<>();
+    this.length = storage.length();
+  }
+
+  @Override
+  public ByteBuffer read(long address, int size) throws IOException {
+    ByteBuffer heldWrite = heldWrites.get(address);
+
+    // held data are always whole blocks or headers, other reads go to storage
+    if (heldWrite != null && heldWrite.capacity() == size) {
+      return heldWrite.duplicate();
+    }
+
+    return storage.read(address, size);
+  }
+
+  @Override
+  public void write(long address, ByteBuffer source) throws IOException {
+    ByteBuffer data = ByteBuffer.allocate(source.remaining());
+    data.put(source).flip();
+
+    heldWrites.put(address, data);
+    writesSinceCommit.put(address, data);
+    length = Math.max(length, address + data.capacity());
+  }
+
+  @Override
+  public long length() {
+    return length;
+  }
+
+  @Override
+  public void setLength(long newLength) {
+    if (newLength < length) {
+      // data behind new end are gone, block created later on their place starts empty
+      removeWritesFrom(heldWrites, newLength);
+      removeWritesFrom(writesSinceCommit, newLength);
+    }
+
+    length = newLength;
+  }
+
+  private static void removeWritesFrom(Map<Long, ByteBuffer> writes, long address) {
+    writes.keySet().removeIf(writeAddress -> writeAddress >= address);
+  }
+
+  /** Held writes are only applied by {@link #sync()}, flush keeps them in memory. */
+  @Override
+  public void flush() throws IOException {
+    storage.flush();
+  }
+
+  /** Applies held writes to storage and forces it to the device. */
+  @Override
+  public void sync() throws IOException {
+    applyHeldWrites();
+    storage.sync();
+  }
+
+  @Override
+  public void close() throws IOException {
+    storage.close();
+  }
+
+  /** Writes done since last call, they are saved in record of given operation. */
+  Map<Long, ByteBuffer> takeWritesSinceCommit(long operation) {
+    Map<Long, ByteBuffer> writes = new LinkedHashMap<>(writesSinceCommit);
+    writesSinceCommit.clear();
+    committedWrites.add(new CommittedWrites(operation, writes, length));
+
+    return writes;
+  }
+
+  /** Applies writes of operations up to given one, whose records are forced. */
+  void applyCommittedWrites(long lastOperation) throws IOException {
+    while (!committedWrites.isEmpty() && committedWrites.peek().operation() <= lastOperation) {
+      CommittedWrites operationWrites = committedWrites.poll();
+
+      for (Map.Entry<Long, ByteBuffer> write : operationWrites.writes().entrySet()) {
+        storage.write(write.getKey(), write.getValue().duplicate());
+        // block written again by later operation is still held
+        heldWrites.remove(write.getKey(), write.getValue());
+      }
+
+      if (storage.length() != operationWrites.length()) {
+        storage.setLength(operationWrites.length());
+      }
+    }
+  }
+
+  private void applyHeldWrites() throws IOException {
+    Iterator<Map.Entry<Long, ByteBuffer>> iterator = heldWrites.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Long, ByteBuffer> write = iterator.next();
+      storage.write(write.getKey(), write.getValue().duplicate());
+      iterator.remove();
+    }
+    writesSinceCommit.clear();
+    committedWrites.clear();
+
+    if (storage.length() != length) {
+      storage.setLength(length);
+    }
+  }
+
+  private record CommittedWrites(long operation, Map<Long, ByteBuffer> writes, long length) {}
+}
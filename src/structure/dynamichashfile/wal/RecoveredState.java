@@ -0,0 +1,9 @@
+package structure.dynamichashfile.wal;
+
+import structure.dynamichashfile.trie.InnerTrieNode;
+
+/** Trie and heads of free blocks of both files after replay of log. */
+public record RecoveredState(
+    InnerTrieNode root,
+    long firstFreeBlockAddressFromMainFile,
+    long firstFreeBlockAddressFromOverflowFile) {}
@@ -0,0 +1,10 @@
+package structure.dynamichashfile.wal;
+
+/**
+ * Subtree of trie changed by one operation. Subtree replaces son on given depth, which is reached
+ * from root by bits of prefix - bit i of prefix selects son on depth i + 1, set bit is left son.
+ * Subtree with depth 0 is new root.
+ *
+ * @param subtree subtree saved by {@link util.file.dynamichashfile.BinaryBuilderTrie}
+ */
+public record TrieDelta(int depth, long prefix, byte[] subtree) {}
@@ -0,0 +1,386 @@
+package structure.dynamichashfile.wal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import structure.dynamichashfile.storage.IBlockStorage;
+import structure.dynamichashfile.trie.InnerTrieNode;
+import structure.dynamichashfile.trie.TrieNode;
+import util.file.dynamichashfile.BinaryBuilderTrie;
+
+/**
+ * Redo log of DynamicHashFile. Log starts with base record - trie, lengths of files and heads of
+ * free blocks saved by checkpoint - followed by records of committed operations with images of
+ * written blocks and changed subtrees of trie.
+ *
+ * <p>Writes of blocks are held by wrapped storages until their record is forced to the log, so data
+ * files never contain uncommitted blocks and replay of log over them restores the last committed
+ * operation after crash. Commit only appends record, it is forced by {@link #sync()} called by
+ * durability mode of file, so records of operations finished meanwhile share one force. Sync can
+ * run concurrently with operations, it forces only the log and writes of forced records are
+ * applied to files by the next commit.
+ * Checkpoint forces data files and replaces log by new base record, log of closed file is empty.
+ */
+public class WriteAheadLog implements AutoCloseable {
+  public static final int MAIN_FILE = 0;
+  public static final int OVERFLOW_FILE = 1;
+  private static final byte BASE_RECORD = 1;
+  private static final byte OPERATION_RECORD = 2;
+  // length and checksum of every record
+  private static final int FRAME_SIZE = 2 * Integer.BYTES;
+  private final Path pathToLog;
+  private final int checkpointInterval;
+  private final LoggedBlockStorage[] storages;
+  // force of log can run concurrently with commit, not with replacement of log
+  private final Object syncLock;
+  private FileChannel channel;
+  // log is replaced only after the first checkpoint, until then it is kept for recovery
+  private boolean started;
+  private int operationsSinceCheckpoint;
+  // operations are numbered by commit
+  private volatile long committedOperations;
+  private volatile long syncedOperations;
+
+  /**
+   * @param checkpointInterval count of operations after which checkpoint is needed
+   */
+  public WriteAheadLog(String pathToLog, int checkpointInterval) throws IOException {
+    this.pathToLog = Path.of(pathToLog);
+    this.checkpointInterval = checkpointInterval;
+    this.storages = new LoggedBlockStorage[2];
+    this.syncLock = new Object();
+    this.channel = openChannel(this.pathToLog);
+  }
+
+  private static FileChannel openChannel(Path path) throws IOException {
+    return FileChannel.open(
+        path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  /** Wraps storage of file, all its writes have to go through returned storage. */
+  public IBlockStorage wrap(int file, IBlockStorage storage) throws IOException {
+    storages[file] = new LoggedBlockStorage(storage);
+    return storages[file];
+  }
+
+  /**
+   * Replays committed operations of log over storages, which are not wrapped yet. Torn record on
+   * the end of log was not committed and it is ignored.
+   *
+   * @return trie and free blocks after the last committed operation, or null when log is empty
+   */
+  public RecoveredState recover(IBlockStorage mainStorage, IBlockStorage overflowStorage)
+      throws IOException {
+    List<ByteBuffer> records = readRecords();
+
+    if (records.isEmpty() || records.get(0).get(0) != BASE_RECORD) {
+      return null;
+    }
+
+    IBlockStorage[] storagesToRecover = {mainStorage, overflowStorage};
+    InnerTrieNode root = null;
+    long[] freeBlockAddresses = new long[2];
+
+    for (ByteBuffer record : records) {
+      byte type = record.get();
+
+      if (type == OPERATION_RECORD) {
+        int writesCount = record.getInt();
+        for (int i = 0; i < writesCount; i++) {
+          IBlockStorage storage = storagesToRecover[record.get()];
+          long address = record.getLong();
+          storage.write(address, slice(record, record.getInt()));
+        }
+      }
+
+      for (IBlockStorage storage : storagesToRecover) {
+        storage.setLength(record.getLong());
+      }
+      freeBlockAddresses[MAIN_FILE] = record.getLong();
+      freeBlockAddresses[OVERFLOW_FILE] = record.getLong();
+
+      if (type == BASE_RECORD) {
+        root = BinaryBuilderTrie.readTrie(record);
+        continue;
+      }
+
+      int deltasCount = record.getInt();
+      for (int i = 0; i < deltasCount; i++) {
+        int depth = record.getInt();
+        long prefix = record.getLong();
+        TrieNode subtree = BinaryBuilderTrie.readSubtree(slice(record, record.getInt()));
+
+        root = applyDelta(root, depth, prefix, subtree);
+      }
+    }
+
+    mainStorage.sync();
+    overflowStorage.sync();
+
+    return new RecoveredState(
+        root, freeBlockAddresses[MAIN_FILE], freeBlockAddresses[OVERFLOW_FILE]);
+  }
+
+  private List<ByteBuffer> readRecords() throws IOException {
+    ByteBuffer log = ByteBuffer.allocate((int) channel.size());
+    while (log.hasRemaining()) {
+      if (channel.read(log, log.position()) < 0) {
+        break;
+      }
+    }
+    log.flip();
+
+    List<ByteBuffer> records = new ArrayList<>();
+    CRC32 checksum = new CRC32();
+
+    while (log.remaining() >= FRAME_SIZE) {
+      int length = log.getInt();
+      if (length <= 0 || log.remaining() < length + Integer.BYTES) {
+        break;
+      }
+
+      ByteBuffer record = slice(log, length);
+      checksum.reset();
+      checksum.update(record.duplicate());
+
+      if ((int) checksum.getValue() != log.getInt()) {
+        break;
+      }
+      records.add(record);
+    }
+
+    return records;
+  }
+
+  private static ByteBuffer slice(ByteBuffer buffer, int length) {
+    ByteBuffer slice = buffer.slice(buffer.position(), length);
+    buffer.position(buffer.position() + length);
+
+    return slice;
+  }
+
+  private static InnerTrieNode applyDelta(
+      InnerTrieNode root, int depth, long prefix, TrieNode subtree) {
+    if (depth == 0) {
+      return (InnerTrieNode) subtree;
+    }
+
+    InnerTrieNode parent = root;
+    for (int i = 0; i < depth - 1; i++) {
+      parent =
+          (InnerTrieNode) (isBitSet(prefix, i) ? parent.getLeftSon() : parent.getRightSon());
+    }
+
+    if (isBitSet(prefix, depth - 1)) {
+      parent.setLeftSon(subtree);
+    } else {
+      parent.setRightSon(subtree);
+    }
+
+    // depths of loaded subtree start from 0, they are set again under their new parent
+    List<InnerTrieNode> nodesToRefresh = new ArrayList<>();
+    if (subtree instanceof InnerTrieNode innerSubtree) {
+      nodesToRefresh.add(innerSubtree);
+    }
+    while (!nodesToRefresh.isEmpty()) {
+      InnerTrieNode node = nodesToRefresh.remove(nodesToRefresh.size() - 1);
+
+      for (TrieNode son : new TrieNode[] {node.getLeftSon(), node.getRightSon()}) {
+        if (son != null) {
+          son.setParent(node);
+        }
+        if (son instanceof InnerTrieNode innerSon) {
+          nodesToRefresh.add(innerSon);
+        }
+      }
+    }
+
+    return root;
+  }
+
+  private static boolean isBitSet(long prefix, int index) {
+    return (prefix & (1L << index)) != 0;
+  }
+
+  /**
+   * Saves held writes of both storages and changes of trie as record of one operation. Operation
+   * is not durable until the next {@link #sync()}, held writes are applied to files by commit
+   * after it.
+   *
+   * @return true, when checkpoint should be made
+   */
+  public boolean commit(
+      List<TrieDelta> trieDeltas,
+      long firstFreeBlockAddressFromMainFile,
+      long firstFreeBlockAddressFromOverflowFile)
+      throws IOException {
+    long lastSyncedOperation = syncedOperations;
+    for (LoggedBlockStorage storage : storages) {
+      storage.applyCommittedWrites(lastSyncedOperation);
+    }
+
+    long operation = committedOperations + 1;
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream record = new DataOutputStream(byteArrayOutputStream);
+
+    record.writeByte(OPERATION_RECORD);
+
+    List<Map<Long, ByteBuffer>> writesOfFiles = new ArrayList<>();
+    int writesCount = 0;
+    for (LoggedBlockStorage storage : storages) {
+      Map<Long, ByteBuffer> writes = storage.takeWritesSinceCommit(operation);
+      writesOfFiles.add(writes);
+      writesCount += writes.size();
+    }
+
+    record.writeInt(writesCount);
+    for (int file = 0; file < writesOfFiles.size(); file++) {
+      for (Map.Entry<Long, ByteBuffer> write : writesOfFiles.get(file).entrySet()) {
+        ByteBuffer data = write.getValue();
+
+        record.writeByte(file);
+        record.writeLong(write.getKey());
+        record.writeInt(data.capacity());
+        record.write(data.array(), data.arrayOffset(), data.capacity());
+      }
+    }
+
+    writeState(
+        record, firstFreeBlockAddressFromMainFile, firstFreeBlockAddressFromOverflowFile);
+
+    record.writeInt(trieDeltas.size());
+    for (TrieDelta trieDelta : trieDeltas) {
+      record.writeInt(trieDelta.depth());
+      record.writeLong(trieDelta.prefix());
+      record.writeInt(trieDelta.subtree().length);
+      record.write(trieDelta.subtree());
+    }
+
+    append(channel, byteArrayOutputStream.toByteArray());
+
+    committedOperations = operation;
+    operationsSinceCheckpoint++;
+
+    return operationsSinceCheckpoint >= checkpointInterval;
+  }
+
+  private void writeState(
+      DataOutputStream record,
+      long firstFreeBlockAddressFromMainFile,
+      long firstFreeBlockAddressFromOverflowFile)
+      throws IOException {
+    for (LoggedBlockStorage storage : storages) {
+      record.writeLong(storage.length());
+    }
+    record.writeLong(firstFreeBlockAddressFromMainFile);
+    record.writeLong(firstFreeBlockAddressFromOverflowFile);
+  }
+
+  private static void append(FileChannel channel, byte[] record) throws IOException {
+    CRC32 checksum = new CRC32();
+    checksum.update(record);
+
+    ByteBuffer frame = ByteBuffer.allocate(record.length + FRAME_SIZE);
+    frame.putInt(record.length).put(record).putInt((int) checksum.getValue()).flip();
+
+    long position = channel.size();
+    while (frame.hasRemaining()) {
+      position += channel.write(frame, position);
+    }
+  }
+
+  /**
+   * Forces committed records to the log. Storages are not accessed, so it does not need exclusive
+   * access to them.
+   */
+  public void sync() throws IOException {
+    synchronized (syncLock) {
+      long lastCommittedOperation = committedOperations;
+      if (lastCommittedOperation == syncedOperations) {
+        return;
+      }
+
+      channel.force(false);
+      syncedOperations = lastCommittedOperation;
+    }
+  }
+
+  /**
+   * Forces all writes to files and replaces log by base record with given trie. New log is written
+   * aside and moved over the old one, so crash during checkpoint leaves one of them complete.
+   */
+  public void checkpoint(
+      InnerTrieNode root,
+      long firstFreeBlockAddressFromMainFile,
+      long firstFreeBlockAddressFromOverflowFile)
+      throws IOException {
+    synchronized (syncLock) {
+      for (LoggedBlockStorage storage : storages) {
+        storage.sync();
+      }
+
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      DataOutputStream record = new DataOutputStream(byteArrayOutputStream);
+
+      record.writeByte(BASE_RECORD);
+      writeState(
+          record, firstFreeBlockAddressFromMainFile, firstFreeBlockAddressFromOverflowFile);
+      BinaryBuilderTrie.writeTrie(root, record);
+
+      Path pathToNewLog = pathToLog.resolveSibling(pathToLog.getFileName() + ".new");
+      try (FileChannel newChannel =
+          FileChannel.open(
+              pathToNewLog,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING,
+              StandardOpenOption.WRITE)) {
+        append(newChannel, byteArrayOutputStream.toByteArray());
+        newChannel.force(false);
+      }
+
+      channel.close();
+      Files.move(pathToNewLog, pathToLog, StandardCopyOption.ATOMIC_MOVE);
+      channel = openChannel(pathToLog);
+
+      started = true;
+      syncedOperations = committedOperations;
+      operationsSinceCheckpoint = 0;
+    }
+  }
+
+  /**
+   * Forces all writes to files and empties the log, log which was not started by checkpoint stays
+   * unchanged. Storages are not closed, they have to be closed after the log.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (syncLock) {
+      syncedOperations = committedOperations;
+    }
+
+    try {
+      for (LoggedBlockStorage storage : storages) {
+        if (storage != null) {
+          storage.sync();
+        }
+      }
+
+      if (started) {
+        channel.truncate(0);
+        channel.force(true);
+      }
+    } finally {
+      channel.close();
+    }
+  }
+}
@@ -479,8 +479,20 @@ public class QuadTree<T extends IShapeData> {
   }
 
   public void optimize() {
+    QuadTreeOptimizeEvent event = new QuadTreeOptimizeEvent();
+    event.begin();
+
+    Quadrant worstQuadrant = rebuildByWorstQuadrant();
+
+    event.commit(size, height, worstQuadrant);
+  }
+
+  /**
+   * @return quadrant by which the tree was rebuilt, null when it was not rebuilt
+   */
+  private Quadrant rebuildByWorstQuadrant() {
     if (size <= 4) {
-      return;
+      return null;
     }
 
     double[] healthOfEachQudrant = new double[5];
@@ -506,7 +518,7 @@ public class QuadTree<T extends IShapeData> {
 
     // everything is equal
     if (maxIndex == -1 || maxIndex == 4) {
-      return;
+      return null;
     }
 
     Quadrant worstQuadrant;
@@ -514,12 +526,13 @@ public class QuadTree<T extends IShapeData> {
     worstQuadrant = Quadrant.values()[maxIndex];
 
     if (last2WorstQuadrants.contains(worstQuadrant)) {
-      return;
+      return null;
     }
 
     addWorstQuadrantToWorstQuadrantHistory(worstQuadrant);
 
     generateNewQuadTreeBasedOnWorstQuadrant(worstQuadrant);
+    return worstQuadrant;
   }
 
   private void addWorstQuadrantToWorstQuadrantHistory(Quadrant worstQuadrant) {
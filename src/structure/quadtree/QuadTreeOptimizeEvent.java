@@ -0,0 +1,39 @@
+package structure.quadtree;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Optimization of tree, which is rebuilt when one quadrant of root holds too many items. */
+@Name("structure.quadtree.Optimize")
+@Label("Quad Tree Optimize")
+@Category("Quad Tree")
+public class QuadTreeOptimizeEvent extends Event {
+  @Label("Items Count")
+  int itemsCount;
+
+  @Label("Max Height")
+  int maxHeight;
+
+  @Label("Worst Quadrant")
+  String worstQuadrant;
+
+  @Label("Rebuilt")
+  boolean rebuilt;
+
+  /**
+   * @param worstQuadrant by which the tree was rebuilt, null when it was not rebuilt
+   */
+  public void commit(int itemsCount, int maxHeight, Quadrant worstQuadrant) {
+    if (!shouldCommit()) {
+      return;
+    }
+
+    this.itemsCount = itemsCount;
+    this.maxHeight = maxHeight;
+    this.worstQuadrant = worstQuadrant == null ? null : worstQuadrant.name();
+    this.rebuilt = worstQuadrant != null;
+    commit();
+  }
+}
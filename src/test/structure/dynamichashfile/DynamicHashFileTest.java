@@ -8,10 +8,48 @@ import entity.shape.GpsCoordinates;
 import entity.shape.Rectangle;
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import structure.dynamichashfile.constant.CacheWritePolicy;
+import structure.dynamichashfile.constant.DurabilityMode;
+import structure.dynamichashfile.constant.IndexType;
+import structure.dynamichashfile.constant.InsertStatus;
+import structure.dynamichashfile.constant.StorageType;
+import structure.dynamichashfile.entity.Block;
+import structure.dynamichashfile.entity.record.Record;
+import structure.dynamichashfile.event.BlockReadEvent;
+import structure.dynamichashfile.event.BlockWriteEvent;
+import structure.dynamichashfile.hash.MixedHashStrategy;
+import structure.dynamichashfile.metrics.DynamicHashFileMetrics;
+import structure.dynamichashfile.metrics.FileIoMetrics;
+import structure.dynamichashfile.storage.BlockCacheStatistics;
+import structure.dynamichashfile.storage.GroupSync;
+import structure.dynamichashfile.storage.SyncStatistics;
+import structure.dynamichashfile.trie.InnerTrieNode;
+import structure.dynamichashfile.trie.LeafTrieNode;
+import structure.dynamichashfile.trie.TrieNode;
+import util.file.dynamichashfile.BinaryBuilderTrie;
+import util.file.dynamichashfile.TextBuilderTrie;
 
 class DynamicHashFileTest {
   private static final int NUMBER_OF_REPETETIONS = 100;
@@ -83,6 +121,1393 @@ class DynamicHashFileTest {
     }
   }
 
+  @Test
+  void testWriteBackCacheIsFlushedOnClose(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("cache.sz").toString();
+    String overflowFile = directory.resolve("cacheOverflow.sz").toString();
+
+    Random random = new Random(0);
+    List<Parcel> insertedItems = new ArrayList<>();
+    InnerTrieNode rootOfTrie;
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setCacheCapacityInBlocks(8)
+            .setCacheWritePolicy(CacheWritePolicy.WRITE_BACK);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 10, Parcel.class, configuration)) {
+      for (int i = 0; i < 2000; i++) {
+        Parcel parcel = new Parcel(random.nextInt(1000000000), String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+      }
+
+      BlockCacheStatistics statistics = dynamicHashFile.getMainFileCacheStatistics();
+      assertTrue(statistics.hitCount() > 0);
+      assertTrue(statistics.cachedBlocksCount() <= 8);
+
+      rootOfTrie = (InnerTrieNode) dynamicHashFile.getTrieNodes().get(0);
+    }
+
+    try (DynamicHashFile<Parcel> reopenedHashFile =
+        new DynamicHashFile<>(
+            mainFile,
+            overflowFile,
+            5,
+            10,
+            Parcel.class,
+            rootOfTrie,
+            new DynamicHashFileConfiguration().setCacheCapacityInBlocks(0))) {
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, reopenedHashFile.find(parcel));
+      }
+    }
+  }
+
+  @Test
+  void testMemoryMappedStorage(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("mapped.sz").toString();
+    String overflowFile = directory.resolve("mappedOverflow.sz").toString();
+
+    Random random = new Random(1);
+    List<Parcel> insertedItems = new ArrayList<>();
+    InnerTrieNode rootOfTrie;
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setStorageType(StorageType.MEMORY_MAPPED)
+            .setCacheCapacityInBlocks(0);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 10, Parcel.class, configuration)) {
+      for (int i = 0; i < 3000; i++) {
+        Parcel parcel = new Parcel(random.nextInt(1000000000), String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        deleteAndTestResult(random, insertedItems, dynamicHashFile);
+      }
+
+      rootOfTrie = (InnerTrieNode) dynamicHashFile.getTrieNodes().get(0);
+    }
+
+    // chunk left on the end of file, when system did not allow to truncate it, is not used
+    long overflowFileLength = new File(overflowFile).length();
+    try (RandomAccessFile overflowFileStream = new RandomAccessFile(overflowFile, "rw")) {
+      overflowFileStream.setLength(overflowFileLength + (4 << 20));
+    }
+
+    try (DynamicHashFile<Parcel> reopenedHashFile =
+        new DynamicHashFile<>(
+            mainFile, overflowFile, 5, 10, Parcel.class, rootOfTrie, configuration)) {
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, reopenedHashFile.find(parcel));
+      }
+    }
+    assertEquals(overflowFileLength, new File(overflowFile).length());
+  }
+
+  @Test
+  void testBlockWrittenIntoReusedBuffer() {
+    Block<Parcel> fullBlock = new Block<>(5, Parcel.class);
+    Block<Parcel> sparseBlock = new Block<>(5, Parcel.class);
+    for (int i = 0; i < 5; i++) {
+      fullBlock.addRecord(new Parcel(i, String.valueOf(i), getRectangle()));
+    }
+    sparseBlock.addRecord(new Parcel(10, "10", getRectangle()));
+
+    // slots of records of previous block do not stay in buffer
+    ByteBuffer buffer = ByteBuffer.allocate(fullBlock.getByteSize());
+    fullBlock.writeTo(buffer);
+    sparseBlock.writeTo(buffer.clear());
+
+    assertEquals(sparseBlock.getByteSize(), buffer.position());
+    assertArrayEquals(sparseBlock.toByteArray(), buffer.array());
+  }
+
+  @Test
+  void testInsertAll(@TempDir Path directory) throws IOException {
+    Random random = new Random(2);
+    List<Parcel> parcels = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      parcels.add(new Parcel(random.nextInt(1000000000), String.valueOf(i), getRectangle()));
+    }
+    // repeated records are reported as duplicates
+    parcels.add(parcels.get(0));
+    parcels.add(parcels.get(4999));
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            directory.resolve("batch.sz").toString(),
+            directory.resolve("batchOverflow.sz").toString(),
+            10,
+            10,
+            Parcel.class)) {
+      Parcel insertedBefore = parcels.get(100);
+      dynamicHashFile.insert(insertedBefore);
+
+      List<InsertStatus> statuses = dynamicHashFile.insertAll(parcels);
+
+      assertEquals(parcels.size(), statuses.size());
+      assertEquals(InsertStatus.DUPLICATE, statuses.get(100));
+      assertEquals(InsertStatus.DUPLICATE, statuses.get(5000));
+      assertEquals(InsertStatus.DUPLICATE, statuses.get(5001));
+      assertEquals(InsertStatus.INSERTED, statuses.get(0));
+
+      for (Parcel parcel : parcels) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+    }
+  }
+
+  @Test
+  void testInsertAllEqualsSingleInserts(@TempDir Path directory) throws IOException {
+    Random random = new Random(6);
+    List<Parcel> parcels = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      parcels.add(new Parcel(random.nextInt(1000000000), String.valueOf(i), getRectangle()));
+    }
+
+    try (DynamicHashFile<Parcel> batchFile =
+            new DynamicHashFile<>(
+                directory.resolve("batch.sz").toString(),
+                directory.resolve("batchOverflow.sz").toString(),
+                4,
+                3,
+                Parcel.class);
+        DynamicHashFile<Parcel> singleFile =
+            new DynamicHashFile<>(
+                directory.resolve("single.sz").toString(),
+                directory.resolve("singleOverflow.sz").toString(),
+                4,
+                3,
+                Parcel.class)) {
+      batchFile.insertAll(parcels.subList(0, 1000));
+      batchFile.insertAll(parcels.subList(1000, parcels.size()));
+      for (Parcel parcel : parcels) {
+        singleFile.insert(parcel);
+      }
+
+      // same trie and same records in every block of leaf
+      List<TrieNode> batchNodes = batchFile.getTrieNodes();
+      List<TrieNode> singleNodes = singleFile.getTrieNodes();
+      assertEquals(singleNodes.size(), batchNodes.size());
+
+      for (int i = 0; i < singleNodes.size(); i++) {
+        TrieNode singleNode = singleNodes.get(i);
+        TrieNode batchNode = batchNodes.get(i);
+
+        if (singleNode == null) {
+          assertNull(batchNode);
+          continue;
+        }
+        assertEquals(singleNode.getClass(), batchNode.getClass());
+        assertEquals(singleNode.getDepth(), batchNode.getDepth());
+
+        if (singleNode instanceof LeafTrieNode singleLeaf) {
+          LeafTrieNode batchLeaf = (LeafTrieNode) batchNode;
+          assertEquals(singleLeaf.getDataSizeInMainBlock(), batchLeaf.getDataSizeInMainBlock());
+          assertEquals(
+              singleLeaf.getDataSizeInReserveBlocks(), batchLeaf.getDataSizeInReserveBlocks());
+          assertEquals(singleLeaf.getOverflowBlocksCount(), batchLeaf.getOverflowBlocksCount());
+
+          if (singleLeaf.getAddressOfData() != Block.getInvalidAddress()) {
+            List<Record[]> singleBlocks = singleFile.getRecordsOfBlocks(singleLeaf);
+            List<Record[]> batchBlocks = batchFile.getRecordsOfBlocks(batchLeaf);
+
+            assertEquals(singleBlocks.size(), batchBlocks.size());
+            for (int j = 0; j < singleBlocks.size(); j++) {
+              assertArrayEquals(singleBlocks.get(j), batchBlocks.get(j));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void testBulkLoad(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("bulk.sz").toString();
+    String overflowFile = directory.resolve("bulkOverflow.sz").toString();
+
+    Random random = new Random(3);
+    List<Parcel> parcels = new ArrayList<>();
+    for (int i = 0; i < 20000; i++) {
+      parcels.add(new Parcel(i, String.valueOf(i), getRectangle()));
+    }
+    Collections.shuffle(parcels, random);
+
+    DynamicHashFileBulkLoader<Parcel> bulkLoader =
+        new DynamicHashFileBulkLoader<>(mainFile, overflowFile, 5, 10, Parcel.class);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile = bulkLoader.load(parcels)) {
+      for (Parcel parcel : parcels) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+
+      // loaded file is usable as any other one
+      List<Parcel> insertedItems = new ArrayList<>(parcels);
+      for (int i = 0; i < 1000; i++) {
+        deleteAndTestResult(random, insertedItems, dynamicHashFile);
+        Parcel parcel = new Parcel(100000 + i, String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+      }
+    }
+  }
+
+  @Test
+  void testMixedHashStrategy(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("mixed.sz").toString();
+    String overflowFile = directory.resolve("mixedOverflow.sz").toString();
+
+    Random random = new Random(4);
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration().setHashStrategy(new MixedHashStrategy(32));
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 10, Parcel.class, configuration)) {
+      // same identification numbers modulo 4096 would end in one leaf with record's own hash
+      for (int i = 0; i < 2000; i++) {
+        Parcel parcel = new Parcel(i * 4096, String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+      }
+
+      for (int i = 0; i < 500; i++) {
+        deleteAndTestResult(random, insertedItems, dynamicHashFile);
+      }
+
+      for (TrieNode node : dynamicHashFile.getTrieNodes()) {
+        if (node instanceof LeafTrieNode leaf) {
+          assertFalse(leaf.hasItemsInOverflowBlock());
+        }
+      }
+    }
+  }
+
+  @Test
+  void testDirectoryIndex(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("directory.sz").toString();
+    String overflowFile = directory.resolve("directoryOverflow.sz").toString();
+
+    Random random = new Random(5);
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    // leaves deeper than max directory depth are searched from directory entry
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setIndexType(IndexType.DIRECTORY)
+            .setMaxDirectoryDepth(8);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration)) {
+      for (int i = 0; i < 20000; i++) {
+        if (random.nextBoolean()) {
+          Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+          insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+        } else {
+          deleteAndTestResult(random, insertedItems, dynamicHashFile);
+        }
+      }
+
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+      assertEquals(IndexType.DIRECTORY, dynamicHashFile.getInfo().indexType());
+    }
+  }
+
+  @Test
+  void testCompactTrieIndex(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("compact.sz").toString();
+    String overflowFile = directory.resolve("compactOverflow.sz").toString();
+
+    Random random = new Random(6);
+    List<Parcel> insertedItems = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      insertedItems.add(new Parcel(i, String.valueOf(i), getRectangle()));
+    }
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setIndexType(IndexType.COMPACT_TRIE)
+            .setHashStrategy(new MixedHashStrategy(20));
+
+    // bulk insert creates subtrees, single operations split and shrink leaves
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration)) {
+      dynamicHashFile.insertAll(insertedItems);
+
+      for (int i = 2000; i < 20000; i++) {
+        if (random.nextBoolean()) {
+          Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+          insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+        } else {
+          deleteAndTestResult(random, insertedItems, dynamicHashFile);
+        }
+      }
+
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+      assertEquals(IndexType.COMPACT_TRIE, dynamicHashFile.getInfo().indexType());
+    }
+
+    try (DynamicHashFile<Parcel> dynamicHashFile = DynamicHashFile.open(mainFile, overflowFile)) {
+      assertEquals(IndexType.COMPACT_TRIE, dynamicHashFile.getInfo().indexType());
+
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+    }
+  }
+
+  @Test
+  void testBinaryTrieFile(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("binaryTrie.sz").toString();
+    String overflowFile = directory.resolve("binaryTrieOverflow.sz").toString();
+    String trieFile = directory.resolve("trie.sz").toString();
+
+    List<Parcel> parcels = new ArrayList<>();
+    for (int i = 0; i < 5000; i++) {
+      parcels.add(new Parcel(i, String.valueOf(i), getRectangle()));
+    }
+
+    BinaryBuilderTrie trieBuilder = new BinaryBuilderTrie();
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 10, Parcel.class)) {
+      dynamicHashFile.insertAll(parcels);
+      trieBuilder.saveToFile(trieFile, dynamicHashFile.getTrieNodes());
+    }
+
+    assertTrue(BinaryBuilderTrie.isBinaryTrieFile(trieFile));
+    trieBuilder.loadFromFile(trieFile);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            mainFile,
+            overflowFile,
+            5,
+            10,
+            Parcel.class,
+            (InnerTrieNode) trieBuilder.getLoadedData().get(0))) {
+      for (Parcel parcel : parcels) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+    }
+  }
+
+  @Test
+  void testTextTrieFile(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("textTrie.sz").toString();
+    String overflowFile = directory.resolve("textTrieOverflow.sz").toString();
+    String trieFile = directory.resolve("textTrie.txt").toString();
+
+    List<Parcel> parcels = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      parcels.add(new Parcel(i, String.valueOf(i), getRectangle()));
+    }
+
+    TextBuilderTrie<TrieNode> trieBuilder = new TextBuilderTrie<>();
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 10, Parcel.class)) {
+      dynamicHashFile.insertAll(parcels);
+      trieBuilder.saveToFile(trieFile, dynamicHashFile.getTrieNodes());
+    }
+
+    trieBuilder.loadFromFile(trieFile);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            mainFile,
+            overflowFile,
+            5,
+            10,
+            Parcel.class,
+            (InnerTrieNode) trieBuilder.getLoadedData().get(0))) {
+      for (Parcel parcel : parcels) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+    }
+
+    // node with parameterized constructor declared first is created by the one without parameters
+    InnerTrieNode root = new InnerTrieNode();
+    root.setLeftSon(new LeafWithParameterizedConstructor(root, 1).setAddressOfData(42));
+    root.setRightSon(null);
+    trieBuilder.saveToFile(trieFile, Arrays.asList(root, root.getLeftSon(), null));
+
+    trieBuilder.clearLoadedData();
+    trieBuilder.loadFromFile(trieFile);
+    LeafTrieNode loadedLeaf = (LeafTrieNode) trieBuilder.getLoadedData().get(1);
+    assertInstanceOf(LeafWithParameterizedConstructor.class, loadedLeaf);
+    assertEquals(42, loadedLeaf.getAddressOfData());
+  }
+
+  public static class LeafWithParameterizedConstructor extends LeafTrieNode {
+    public LeafWithParameterizedConstructor(TrieNode parent, int maxDepth) {
+      super(parent, maxDepth);
+    }
+
+    public LeafWithParameterizedConstructor() {}
+  }
+
+  @Test
+  void testOpenFromHeader(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("header.sz").toString();
+    String overflowFile = directory.resolve("headerOverflow.sz").toString();
+
+    Random random = new Random(6);
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setHashStrategy(new MixedHashStrategy(20))
+            .setIndexType(IndexType.DIRECTORY);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration)) {
+      for (int i = 0; i < 3000; i++) {
+        Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        deleteAndTestResult(random, insertedItems, dynamicHashFile);
+      }
+    }
+
+    // blocking factors, hash, index and trie are read from files
+    try (DynamicHashFile<Parcel> dynamicHashFile = DynamicHashFile.open(mainFile, overflowFile)) {
+      assertEquals(insertedItems.size(), dynamicHashFile.getRecordCount());
+      assertEquals(IndexType.DIRECTORY, dynamicHashFile.getInfo().indexType());
+
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+
+      for (int i = 0; i < 1000; i++) {
+        Parcel parcel = new Parcel(100000 + i, String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+        deleteAndTestResult(random, insertedItems, dynamicHashFile);
+      }
+    }
+
+    assertThrows(
+        IllegalStateException.class,
+        () -> new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class));
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration)) {
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+    }
+  }
+
+  @Test
+  void testOpenWithoutClose(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("crash.sz").toString();
+    String overflowFile = directory.resolve("crashOverflow.sz").toString();
+
+    Random random = new Random(8);
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class)) {
+      for (int i = 0; i < 2000; i++) {
+        Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+      }
+      for (int i = 0; i < 500; i++) {
+        deleteAndTestResult(random, insertedItems, dynamicHashFile);
+      }
+    }
+
+    // file is not closed - process crashes after changes of blocks
+    DynamicHashFile<Parcel> crashedFile = DynamicHashFile.open(mainFile, overflowFile);
+    try {
+      for (Parcel parcel : insertedItems) {
+        assertEquals(parcel, crashedFile.find(parcel));
+      }
+      // checkpoint stays, while file is only read
+      assertTrue(FileBlockManager.readHeader(mainFile).hasTrieCheckpoint());
+
+      for (int i = 2000; i < 6000; i++) {
+        if (random.nextInt(3) > 0) {
+          Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+          insertAndTestResult(insertedItems, parcel, crashedFile);
+        } else {
+          deleteAndTestResult(random, insertedItems, crashedFile);
+        }
+      }
+      assertFalse(FileBlockManager.readHeader(mainFile).hasTrieCheckpoint());
+
+      // trie is recovered from blocks, released blocks can be used again
+      try (DynamicHashFile<Parcel> dynamicHashFile =
+          DynamicHashFile.open(mainFile, overflowFile)) {
+        assertEquals(insertedItems.size(), dynamicHashFile.getRecordCount());
+
+        for (Parcel parcel : insertedItems) {
+          assertEquals(parcel, dynamicHashFile.find(parcel));
+        }
+
+        for (int i = 0; i < 1000; i++) {
+          Parcel parcel = new Parcel(100000 + i, String.valueOf(i), getRectangle());
+          insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+          deleteAndTestResult(random, insertedItems, dynamicHashFile);
+        }
+      }
+
+      try (DynamicHashFile<Parcel> dynamicHashFile =
+          DynamicHashFile.open(mainFile, overflowFile)) {
+        assertEquals(insertedItems.size(), dynamicHashFile.getRecordCount());
+
+        for (Parcel parcel : insertedItems) {
+          assertEquals(parcel, dynamicHashFile.find(parcel));
+        }
+      }
+    } finally {
+      crashedFile.close();
+    }
+  }
+
+  @Test
+  void testWriteAheadLogRecovery(@TempDir Path directory) throws IOException {
+    String mainFile = directory.resolve("wal.sz").toString();
+    String overflowFile = directory.resolve("walOverflow.sz").toString();
+    File log = new File(FileBlockManager.getPathToLog(mainFile));
+
+    Random random = new Random(7);
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setWriteAheadLog(true)
+            .setLogGroupCommitSize(4)
+            .setLogCheckpointInterval(700);
+
+    // file is not closed - process crashes and only log and partly written files are left
+    DynamicHashFile<Parcel> crashedFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration);
+    try {
+      for (int i = 0; i < 2000; i++) {
+        Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+        insertAndTestResult(insertedItems, parcel, crashedFile);
+      }
+      for (int i = 0; i < 700; i++) {
+        deleteAndTestResult(random, insertedItems, crashedFile);
+      }
+      assertTrue(log.length() > 0);
+
+      // log is forced once for every group of operations
+      assertEquals(2700 / 4, crashedFile.getSyncStatistics().syncCount());
+      assertEquals(4, crashedFile.getSyncStatistics().maxBatchSize());
+
+      try (DynamicHashFile<Parcel> dynamicHashFile =
+          new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration)) {
+        assertEquals(insertedItems.size(), dynamicHashFile.getRecordCount());
+
+        for (Parcel parcel : insertedItems) {
+          assertEquals(parcel, dynamicHashFile.find(parcel));
+        }
+
+        for (int i = 0; i < 500; i++) {
+          Parcel parcel = new Parcel(100000 + i, String.valueOf(i), getRectangle());
+          insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+          deleteAndTestResult(random, insertedItems, dynamicHashFile);
+        }
+      }
+
+      // log of closed file is empty, file is opened from its checkpoint
+      assertEquals(0, log.length());
+
+      try (DynamicHashFile<Parcel> dynamicHashFile =
+          DynamicHashFile.open(
+              mainFile,
+              overflowFile,
+              configuration.copy().setDurabilityMode(DurabilityMode.GROUP_COMMIT))) {
+        assertEquals(insertedItems.size(), dynamicHashFile.getRecordCount());
+
+        for (Parcel parcel : insertedItems) {
+          assertEquals(parcel, dynamicHashFile.find(parcel));
+        }
+
+        // every operation returns after its record is forced
+        for (int i = 0; i < 10; i++) {
+          Parcel parcel = new Parcel(200000 + i, String.valueOf(i), getRectangle());
+          insertAndTestResult(insertedItems, parcel, dynamicHashFile);
+          assertEquals(i + 1, dynamicHashFile.getSyncStatistics().syncedOperationsCount());
+        }
+      }
+    } finally {
+      crashedFile.close();
+    }
+  }
+
+  @Test
+  void testDurabilityModes(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("durable.sz").toString();
+    String overflowFile = directory.resolve("durableOverflow.sz").toString();
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            mainFile,
+            overflowFile,
+            3,
+            5,
+            Parcel.class,
+            new DynamicHashFileConfiguration().setDurabilityMode(DurabilityMode.GROUP_COMMIT))) {
+      for (int i = 0; i < 100; i++) {
+        insertAndTestResult(
+            insertedItems, new Parcel(i, String.valueOf(i), getRectangle()), dynamicHashFile);
+      }
+
+      // single writer - every insert is forced alone, refused duplicates are not forced
+      SyncStatistics statistics = dynamicHashFile.getSyncStatistics();
+      assertEquals(100, statistics.syncCount());
+      assertEquals(1, statistics.maxBatchSize());
+    }
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            mainFile,
+            overflowFile,
+            3,
+            5,
+            Parcel.class,
+            new DynamicHashFileConfiguration()
+                .setDurabilityMode(DurabilityMode.PERIODIC)
+                .setDurabilityPeriodMillis(60_000))) {
+      for (int i = 100; i < 200; i++) {
+        insertAndTestResult(
+            insertedItems, new Parcel(i, String.valueOf(i), getRectangle()), dynamicHashFile);
+      }
+
+      assertEquals(0, dynamicHashFile.getSyncStatistics().syncCount());
+    }
+
+    // lone operation is forced by background thread after period, idle file is not forced again
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(
+            mainFile,
+            overflowFile,
+            3,
+            5,
+            Parcel.class,
+            new DynamicHashFileConfiguration()
+                .setDurabilityMode(DurabilityMode.PERIODIC)
+                .setDurabilityPeriodMillis(100))) {
+      insertAndTestResult(
+          insertedItems, new Parcel(200, String.valueOf(200), getRectangle()), dynamicHashFile);
+
+      long deadline = System.nanoTime() + 5_000_000_000L;
+      while (dynamicHashFile.getSyncStatistics().syncCount() == 0
+          && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, dynamicHashFile.getSyncStatistics().syncCount());
+      assertEquals(1, dynamicHashFile.getSyncStatistics().syncedOperationsCount());
+
+      Thread.sleep(300);
+      assertEquals(1, dynamicHashFile.getSyncStatistics().syncCount());
+    }
+
+    // concurrent operations share forces
+    AtomicInteger forcesRunning = new AtomicInteger();
+    GroupSync groupSync =
+        new GroupSync(
+            () -> {
+              assertEquals(1, forcesRunning.incrementAndGet());
+              try {
+                Thread.sleep(2);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              forcesRunning.decrementAndGet();
+            });
+
+    List<Thread> threads = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread =
+          new Thread(
+              () -> {
+                for (int j = 0; j < 50; j++) {
+                  assertDoesNotThrow(groupSync::sync);
+                }
+              });
+      thread.start();
+      threads.add(thread);
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    SyncStatistics statistics = groupSync.getStatistics();
+    assertEquals(400, statistics.syncedOperationsCount());
+    assertTrue(statistics.syncCount() < 400);
+    assertTrue(statistics.maxBatchSize() > 1);
+  }
+
+  @Test
+  void testGroupCommitWithConcurrentOperations(@TempDir Path directory) throws Exception {
+    List<DynamicHashFileConfiguration> configurations =
+        List.of(
+            new DynamicHashFileConfiguration()
+                .setDurabilityMode(DurabilityMode.GROUP_COMMIT)
+                .setCacheCapacityInBlocks(64)
+                .setCacheWritePolicy(CacheWritePolicy.WRITE_BACK),
+            new DynamicHashFileConfiguration()
+                .setDurabilityMode(DurabilityMode.GROUP_COMMIT)
+                .setWriteAheadLog(true)
+                .setLogCheckpointInterval(500));
+
+    for (int i = 0; i < configurations.size(); i++) {
+      DynamicHashFileConfiguration configuration = configurations.get(i);
+      String mainFile = directory.resolve("group" + i + ".sz").toString();
+      String overflowFile = directory.resolve("groupOverflow" + i + ".sz").toString();
+
+      List<Parcel> preloadedItems = new ArrayList<>();
+      for (int j = 0; j < 1000; j++) {
+        preloadedItems.add(new Parcel(j, String.valueOf(j), getRectangle()));
+      }
+      List<Parcel> keptItems = Collections.synchronizedList(new ArrayList<>(preloadedItems));
+      List<Parcel> deletedItems = Collections.synchronizedList(new ArrayList<>());
+
+      // logged file is closed after reopening - its operations are recovered from forced log
+      DynamicHashFile<Parcel> dynamicHashFile =
+          new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration);
+      try {
+        for (Parcel parcel : preloadedItems) {
+          dynamicHashFile.insert(parcel);
+        }
+
+        // files are forced while writers and readers continue with next operations
+        List<Thread> threads = new ArrayList<>();
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+        for (int j = 0; j < 4; j++) {
+          int writer = j;
+          threads.add(
+              new Thread(
+                  () -> {
+                    try {
+                      for (int k = 0; k < 500; k++) {
+                        int id = 100000 * (writer + 1) + k;
+                        Parcel parcel = new Parcel(id, String.valueOf(k), getRectangle());
+                        dynamicHashFile.insert(parcel);
+
+                        if (k % 4 == 0) {
+                          dynamicHashFile.delete(parcel);
+                          deletedItems.add(parcel);
+                        } else {
+                          keptItems.add(parcel);
+                        }
+                      }
+                    } catch (Throwable e) {
+                      errors.add(e);
+                    }
+                  }));
+        }
+
+        for (int j = 0; j < 2; j++) {
+          Random random = new Random(j);
+          threads.add(
+              new Thread(
+                  () -> {
+                    try {
+                      for (int k = 0; k < 5000; k++) {
+                        Parcel parcel = preloadedItems.get(random.nextInt(preloadedItems.size()));
+                        assertEquals(parcel, dynamicHashFile.find(parcel));
+                      }
+                    } catch (Throwable e) {
+                      errors.add(e);
+                    }
+                  }));
+        }
+
+        for (Thread thread : threads) {
+          thread.start();
+        }
+        for (Thread thread : threads) {
+          thread.join();
+        }
+
+        assertEquals(List.of(), errors);
+        assertEquals(3500, dynamicHashFile.getSyncStatistics().syncedOperationsCount());
+      } finally {
+        if (!configuration.isWriteAheadLog()) {
+          dynamicHashFile.close();
+        }
+      }
+
+      try (DynamicHashFile<Parcel> reopenedFile =
+          new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class, configuration)) {
+        assertEquals(keptItems.size(), reopenedFile.getRecordCount());
+
+        for (Parcel parcel : keptItems) {
+          assertEquals(parcel, reopenedFile.find(parcel));
+        }
+        for (Parcel parcel : deletedItems) {
+          assertFalse(reopenedFile.contains(parcel));
+        }
+      } finally {
+        if (configuration.isWriteAheadLog()) {
+          dynamicHashFile.close();
+        }
+      }
+    }
+  }
+
+  @Test
+  void testConcurrentFind(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("concurrent.sz").toString();
+    String overflowFile = directory.resolve("concurrentOverflow.sz").toString();
+
+    List<Parcel> insertedItems = new ArrayList<>();
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 3, 5, Parcel.class)) {
+      for (int i = 0; i < 3000; i++) {
+        insertedItems.add(new Parcel(i, String.valueOf(i), getRectangle()));
+      }
+      dynamicHashFile.insertAll(insertedItems);
+
+      // readers search inserted records while writer changes trie and blocks
+      List<Thread> threads = new ArrayList<>();
+      List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+
+      threads.add(
+          new Thread(
+              () -> {
+                try {
+                  Random random = new Random(8);
+                  List<Parcel> writtenItems = new ArrayList<>();
+
+                  for (int i = 0; i < 2000; i++) {
+                    Parcel parcel = new Parcel(100000 + i, String.valueOf(i), getRectangle());
+                    dynamicHashFile.insert(parcel);
+                    writtenItems.add(parcel);
+
+                    if (random.nextBoolean()) {
+                      int index = random.nextInt(writtenItems.size());
+                      dynamicHashFile.delete(writtenItems.remove(index));
+                    }
+                  }
+                } catch (Throwable e) {
+                  errors.add(e);
+                }
+              }));
+
+      for (int i = 0; i < 6; i++) {
+        Random random = new Random(i);
+        threads.add(
+            new Thread(
+                () -> {
+                  try {
+                    for (int j = 0; j < 5000; j++) {
+                      Parcel parcel = insertedItems.get(random.nextInt(insertedItems.size()));
+                      assertEquals(parcel, dynamicHashFile.find(parcel));
+                      assertTrue(dynamicHashFile.contains(parcel));
+                      assertFalse(
+                          dynamicHashFile.contains(new Parcel(-1 - j, "", getRectangle())));
+                    }
+                  } catch (Throwable e) {
+                    errors.add(e);
+                  }
+                }));
+      }
+
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      assertEquals(List.of(), errors);
+    }
+  }
+
+  @Test
+  void testConcurrentWriters(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("writers.sz").toString();
+    String overflowFile = directory.resolve("writersOverflow.sz").toString();
+
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration()
+            .setCacheCapacityInBlocks(64)
+            .setCacheWritePolicy(CacheWritePolicy.WRITE_BACK);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 3, Parcel.class, configuration)) {
+      List<Parcel> insertedItems = new ArrayList<>();
+      for (int i = 0; i < 2000; i++) {
+        insertedItems.add(new Parcel(i, String.valueOf(i), getRectangle()));
+      }
+      dynamicHashFile.insertAll(insertedItems);
+
+      // every writer inserts, edits and deletes own records, readers search preloaded ones
+      List<Thread> threads = new ArrayList<>();
+      List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+      List<Parcel> keptItems = Collections.synchronizedList(new ArrayList<>());
+      List<Parcel> deletedItems = Collections.synchronizedList(new ArrayList<>());
+
+      for (int i = 0; i < 4; i++) {
+        int writer = i;
+        threads.add(
+            new Thread(
+                () -> {
+                  try {
+                    for (int j = 0; j < 1000; j++) {
+                      int id = 100000 * (writer + 1) + j;
+                      Parcel parcel = new Parcel(id, String.valueOf(j), getRectangle());
+                      dynamicHashFile.insert(parcel);
+
+                      if (j % 3 == 0) {
+                        dynamicHashFile.delete(parcel);
+                        deletedItems.add(parcel);
+                      } else if (j % 3 == 1) {
+                        Parcel editedParcel = new Parcel(id, "edited", getRectangle());
+                        dynamicHashFile.edit(parcel, editedParcel);
+                        keptItems.add(editedParcel);
+                      } else {
+                        keptItems.add(parcel);
+                      }
+                    }
+                  } catch (Throwable e) {
+                    errors.add(e);
+                  }
+                }));
+      }
+
+      for (int i = 0; i < 2; i++) {
+        Random random = new Random(i);
+        threads.add(
+            new Thread(
+                () -> {
+                  try {
+                    for (int j = 0; j < 5000; j++) {
+                      Parcel parcel = insertedItems.get(random.nextInt(insertedItems.size()));
+                      assertEquals(parcel, dynamicHashFile.find(parcel));
+                    }
+                  } catch (Throwable e) {
+                    errors.add(e);
+                  }
+                }));
+      }
+
+      for (Thread thread : threads) {
+        thread.start();
+      }
+      for (Thread thread : threads) {
+        thread.join();
+      }
+
+      assertEquals(List.of(), errors);
+
+      for (Parcel parcel : keptItems) {
+        assertEquals(parcel.toString(), dynamicHashFile.find(parcel).toString());
+      }
+      for (Parcel parcel : deletedItems) {
+        assertFalse(dynamicHashFile.contains(parcel));
+      }
+      assertEquals(insertedItems.size() + keptItems.size(), dynamicHashFile.getRecordCount());
+    }
+  }
+
+  @Test
+  void testAsyncOperations(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("async.sz").toString();
+    String overflowFile = directory.resolve("asyncOverflow.sz").toString();
+
+    // tasks are run by the test, so finds scheduled before run wait for readers
+    List<Runnable> tasks = new ArrayList<>();
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration().setAsyncExecutor(tasks::add).setAsyncReadersCount(4);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 3, Parcel.class, configuration)) {
+      List<Parcel> insertedItems = new ArrayList<>();
+      for (int i = 0; i < 500; i++) {
+        insertedItems.add(new Parcel(i, String.valueOf(i), getRectangle()));
+      }
+      dynamicHashFile.insertAll(insertedItems);
+
+      List<CompletableFuture<Optional<Parcel>>> finds = new ArrayList<>();
+      for (Parcel parcel : insertedItems) {
+        finds.add(dynamicHashFile.findAsync(parcel));
+      }
+      CompletableFuture<Optional<Parcel>> missingFind =
+          dynamicHashFile.findAsync(new Parcel(-1, "", getRectangle()));
+
+      assertEquals(4, tasks.size());
+      assertTrue(finds.stream().noneMatch(CompletableFuture::isDone));
+
+      runTasks(tasks);
+      for (int i = 0; i < insertedItems.size(); i++) {
+        assertEquals(insertedItems.get(i), finds.get(i).get().orElseThrow());
+      }
+      assertEquals(Optional.empty(), missingFind.get());
+
+      Parcel newParcel = new Parcel(1000, "new", getRectangle());
+      CompletableFuture<Void> insert = dynamicHashFile.insertAsync(newParcel);
+      CompletableFuture<Void> duplicateInsert = dynamicHashFile.insertAsync(insertedItems.get(0));
+      CompletableFuture<Void> delete = dynamicHashFile.deleteAsync(insertedItems.get(1));
+
+      runTasks(tasks);
+      insert.get();
+      delete.get();
+      ExecutionException exception = assertThrows(ExecutionException.class, duplicateInsert::get);
+      assertInstanceOf(IllegalStateException.class, exception.getCause());
+
+      assertEquals(newParcel, dynamicHashFile.find(newParcel));
+      assertFalse(dynamicHashFile.contains(insertedItems.get(1)));
+    }
+
+    // error of reader fails its finds and the waiting ones, next find starts new reader
+    AsyncIoScheduler<Parcel> ioScheduler =
+        new AsyncIoScheduler<>(
+            tasks::add,
+            1,
+            (address, recordsToFind) -> {
+              throw new AssertionError("Read failed!");
+            });
+    Parcel parcel = new Parcel(0, "0", getRectangle());
+    CompletableFuture<Optional<Parcel>> failedFind = ioScheduler.find(0, parcel);
+    CompletableFuture<Optional<Parcel>> waitingFind = ioScheduler.find(1, parcel);
+
+    assertThrows(AssertionError.class, () -> runTasks(tasks));
+    assertTrue(failedFind.isCompletedExceptionally() && waitingFind.isCompletedExceptionally());
+    assertInstanceOf(
+        AssertionError.class, assertThrows(ExecutionException.class, failedFind::get).getCause());
+    assertInstanceOf(
+        IllegalStateException.class,
+        assertThrows(ExecutionException.class, waitingFind::get).getCause());
+
+    ioScheduler.find(2, parcel);
+    assertEquals(1, tasks.size());
+  }
+
+  @Test
+  void testMetrics(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("metrics.sz").toString();
+    String overflowFile = directory.resolve("metricsOverflow.sz").toString();
+
+    MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name =
+        new ObjectName(
+            "structure.dynamichashfile:type=DynamicHashFile,name=" + ObjectName.quote(mainFile));
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration().setMetricsMXBean(true);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 5, 3, Parcel.class, configuration)) {
+      List<Parcel> insertedItems = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+        Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+        dynamicHashFile.insert(parcel);
+        insertedItems.add(parcel);
+      }
+      for (Parcel parcel : insertedItems) {
+        dynamicHashFile.find(parcel);
+      }
+      for (Parcel parcel : insertedItems.subList(0, 100)) {
+        dynamicHashFile.delete(parcel);
+      }
+      dynamicHashFile.edit(insertedItems.get(200), insertedItems.get(200));
+
+      DynamicHashFileMetrics metrics = dynamicHashFile.getMetrics();
+      assertEquals(300, metrics.insertNanos().count());
+      assertEquals(300, metrics.findNanos().count());
+      assertEquals(100, metrics.deleteNanos().count());
+      assertEquals(1, metrics.editNanos().count());
+      assertEquals(300, metrics.overflowBlocksPerFind().count());
+      assertTrue(metrics.trieDepths().count() >= 700);
+      assertTrue(metrics.trieDepths().max() > 0);
+      assertTrue(metrics.expandIterations() > 0);
+      assertTrue(metrics.findNanos().percentile(50) <= metrics.findNanos().percentile(99));
+      assertTrue(metrics.findNanos().percentile(100) <= metrics.findNanos().max());
+
+      FileIoMetrics mainFileMetrics = metrics.mainFile();
+      assertTrue(mainFileMetrics.blockReads() >= 700);
+      assertTrue(mainFileMetrics.blockWrites() >= 400);
+      assertEquals(0, mainFileMetrics.bytesRead() % mainFileMetrics.blockReads());
+      assertEquals(
+          mainFileMetrics.bytesRead() / mainFileMetrics.blockReads(),
+          mainFileMetrics.bytesWritten() / mainFileMetrics.blockWrites());
+      assertTrue(mainFileMetrics.fileGrowths() > 0);
+
+      assertTrue(mBeanServer.isRegistered(name));
+      assertEquals(300L, mBeanServer.getAttribute(name, "InsertCount"));
+      assertEquals(metrics.expandIterations(), mBeanServer.getAttribute(name, "ExpandIterations"));
+      assertThrows(
+          IllegalStateException.class,
+          () ->
+              new DynamicHashFile<>(mainFile, overflowFile, 5, 3, Parcel.class, configuration));
+    }
+
+    assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+  }
+
+  @Test
+  void testFlightRecorderEvents(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("events.sz").toString();
+    String overflowFile = directory.resolve("eventsOverflow.sz").toString();
+    Path recordingFile = directory.resolve("events.jfr");
+
+    // short hash fills overflow blocks, deletes in random order shake them off and shrink leaves
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration().setHashStrategy(new MixedHashStrategy(6));
+
+    try (Recording recording = new Recording()) {
+      recording.enable(BlockReadEvent.class).withThreshold(Duration.ZERO);
+      recording.enable(BlockWriteEvent.class).withThreshold(Duration.ZERO);
+      recording.start();
+
+      try (DynamicHashFile<Parcel> dynamicHashFile =
+          new DynamicHashFile<>(mainFile, overflowFile, 2, 2, Parcel.class, configuration)) {
+        List<Parcel> insertedItems = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+          Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+          dynamicHashFile.insert(parcel);
+          insertedItems.add(parcel);
+        }
+        Collections.shuffle(insertedItems, new Random(1));
+        for (Parcel parcel : insertedItems) {
+          dynamicHashFile.delete(parcel);
+        }
+      }
+
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+
+    Set<String> names =
+        Set.of(
+            "structure.dynamichashfile.BlockRead",
+            "structure.dynamichashfile.BlockWrite",
+            "structure.dynamichashfile.LeafExpand",
+            "structure.dynamichashfile.LeavesShrink",
+            "structure.dynamichashfile.ShakeOff");
+    for (String name : names) {
+      assertTrue(
+          events.stream().anyMatch(event -> event.getEventType().getName().equals(name)), name);
+    }
+
+    for (RecordedEvent event : events) {
+      switch (event.getEventType().getName()) {
+        case "structure.dynamichashfile.BlockRead", "structure.dynamichashfile.BlockWrite" -> {
+          assertTrue(Set.of(mainFile, overflowFile).contains(event.getString("file")));
+          assertTrue(event.getInt("recordsCount") <= 2);
+        }
+        case "structure.dynamichashfile.LeafExpand" -> {
+          assertEquals(3, event.getInt("recordsCount"));
+          assertTrue(event.getInt("depth") + event.getInt("iterations") <= 6);
+        }
+        case "structure.dynamichashfile.ShakeOff" -> {
+          assertEquals(6, event.getInt("depth"));
+          assertTrue(event.getInt("releasedBlocksCount") <= event.getInt("overflowBlocksCount"));
+        }
+        case "structure.dynamichashfile.LeavesShrink" ->
+            assertTrue(event.getInt("recordsCount") <= 2);
+        default -> {}
+      }
+    }
+  }
+
+  @Test
+  void testOverflowReorganization(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("reorganization.sz").toString();
+    String overflowFile = directory.resolve("reorganizationOverflow.sz").toString();
+
+    // short hash fills overflow blocks, deletes in random order leave their chains half empty
+    DynamicHashFileConfiguration configuration =
+        new DynamicHashFileConfiguration().setHashStrategy(new MixedHashStrategy(4));
+    Random random = new Random(2);
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 2, 2, Parcel.class, configuration)) {
+      List<Parcel> insertedItems = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+        dynamicHashFile.insert(parcel);
+        insertedItems.add(parcel);
+      }
+      Collections.shuffle(insertedItems, random);
+      for (Parcel parcel : insertedItems.subList(0, 120)) {
+        dynamicHashFile.delete(parcel);
+      }
+      List<Parcel> remainingItems = insertedItems.subList(120, insertedItems.size());
+
+      long overflowFileLength = new File(overflowFile).length();
+      assertFalse(areOverflowChainsDense(dynamicHashFile, 2, 2));
+      assertFalse(areOverflowChainsContiguous(dynamicHashFile));
+
+      assertTrue(dynamicHashFile.reorganizeOverflowChains() > 0);
+      assertTrue(areOverflowChainsDense(dynamicHashFile, 2, 2));
+      assertTrue(areOverflowChainsContiguous(dynamicHashFile));
+      assertTrue(new File(overflowFile).length() <= overflowFileLength);
+      assertEquals(0, dynamicHashFile.reorganizeOverflowChains());
+
+      assertEquals(remainingItems.size(), dynamicHashFile.getRecordCount());
+      for (Parcel parcel : remainingItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+      for (Parcel parcel : remainingItems.subList(0, 40)) {
+        dynamicHashFile.delete(parcel);
+      }
+    }
+
+    // background reorganization of the same chains, left half empty by deletes
+    configuration.setOverflowReorganizationRate(10_000);
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 2, 2, Parcel.class, configuration)) {
+      long deadline = System.nanoTime() + 10_000_000_000L;
+      while (!areOverflowChainsDense(dynamicHashFile, 2, 2) && System.nanoTime() < deadline) {
+        Thread.sleep(100);
+      }
+
+      assertTrue(areOverflowChainsDense(dynamicHashFile, 2, 2));
+      assertTrue(areOverflowChainsContiguous(dynamicHashFile));
+      assertEquals(0, dynamicHashFile.reorganizeOverflowChains());
+      assertEquals(40, dynamicHashFile.getRecordCount());
+    }
+
+    // failed leaf does not stop background reorganization, its error is thrown by close
+    AtomicInteger reorganizedLeavesCount = new AtomicInteger();
+    OverflowReorganizer reorganizer =
+        new OverflowReorganizer(
+            1_000_000,
+            () -> List.of(new LeafTrieNode(), new LeafTrieNode()),
+            leaf -> {
+              if (reorganizedLeavesCount.incrementAndGet() == 1) {
+                throw new IllegalStateException("Reorganization failed!");
+              }
+              return 1;
+            });
+    reorganizer.start();
+
+    long deadline = System.nanoTime() + 10_000_000_000L;
+    while (reorganizedLeavesCount.get() < 2 && System.nanoTime() < deadline) {
+      Thread.sleep(100);
+    }
+
+    assertTrue(reorganizedLeavesCount.get() >= 2);
+    IllegalStateException exception = assertThrows(IllegalStateException.class, reorganizer::close);
+    assertEquals("Reorganization failed!", exception.getCause().getMessage());
+  }
+
+  private static boolean areOverflowChainsDense(
+      DynamicHashFile<Parcel> dynamicHashFile, int blockingFactor, int overflowBlockingFactor) {
+    for (TrieNode node : dynamicHashFile.getTrieNodes()) {
+      if (node instanceof LeafTrieNode leaf
+          && leaf.hasItemsInOverflowBlock()
+          && (leaf.getDataSizeInMainBlock() < blockingFactor
+              || leaf.getOverflowBlocksCount()
+                  != (leaf.getDataSizeInReserveBlock() + overflowBlockingFactor - 1)
+                      / overflowBlockingFactor)) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  private static boolean areOverflowChainsContiguous(DynamicHashFile<Parcel> dynamicHashFile) {
+    int blockByteSize = new Block<>(2, Parcel.class).getByteSize();
+
+    for (TrieNode node : dynamicHashFile.getTrieNodes()) {
+      if (node instanceof LeafTrieNode leaf
+          && leaf.getAddressOfData() != Block.getInvalidAddress()) {
+        List<Long> addresses = dynamicHashFile.getOverflowBlockAddresses(leaf);
+
+        for (int i = 1; i < addresses.size(); i++) {
+          if (addresses.get(i) != addresses.get(i - 1) + blockByteSize) {
+            return false;
+          }
+        }
+      }
+    }
+
+    return true;
+  }
+
+  @Test
+  void testMainFileCompaction(@TempDir Path directory) throws Exception {
+    String mainFile = directory.resolve("compaction.sz").toString();
+    String overflowFile = directory.resolve("compactionOverflow.sz").toString();
+    Random random = new Random(3);
+
+    List<Parcel> remainingItems;
+    long compactedFileLength;
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 2, 2, Parcel.class)) {
+      List<Parcel> insertedItems = new ArrayList<>();
+      for (int i = 0; i < 300; i++) {
+        Parcel parcel = new Parcel(i, String.valueOf(i), getRectangle());
+        dynamicHashFile.insert(parcel);
+        insertedItems.add(parcel);
+      }
+      // deletes in random order merge leaves in the middle of file, their blocks stay free
+      Collections.shuffle(insertedItems, random);
+      for (Parcel parcel : insertedItems.subList(0, 240)) {
+        dynamicHashFile.delete(parcel);
+      }
+      remainingItems = new ArrayList<>(insertedItems.subList(240, insertedItems.size()));
+
+      long mainFileLength = new File(mainFile).length();
+      int removedBlocksCount = 0;
+      int removedBlocksCountOfCall;
+      do {
+        removedBlocksCountOfCall = dynamicHashFile.compactMainFile(5);
+        assertTrue(removedBlocksCountOfCall <= 5);
+        removedBlocksCount += removedBlocksCountOfCall;
+
+        // lookups work between incremental calls
+        for (Parcel parcel : remainingItems) {
+          assertEquals(parcel, dynamicHashFile.find(parcel));
+        }
+      } while (removedBlocksCountOfCall == 5);
+
+      compactedFileLength = new File(mainFile).length();
+      assertTrue(removedBlocksCount > 0);
+      assertTrue(compactedFileLength < mainFileLength);
+      assertEquals(0, dynamicHashFile.compactMainFile(5));
+      assertEquals(remainingItems.size(), dynamicHashFile.getRecordCount());
+
+      Parcel parcel = new Parcel(300, "300", getRectangle());
+      dynamicHashFile.insert(parcel);
+      remainingItems.add(parcel);
+    }
+
+    try (DynamicHashFile<Parcel> dynamicHashFile =
+        new DynamicHashFile<>(mainFile, overflowFile, 2, 2, Parcel.class)) {
+      assertEquals(remainingItems.size(), dynamicHashFile.getRecordCount());
+      for (Parcel parcel : remainingItems) {
+        assertEquals(parcel, dynamicHashFile.find(parcel));
+      }
+    }
+  }
+
+  private static void runTasks(List<Runnable> tasks) {
+    List<Runnable> tasksToRun = new ArrayList<>(tasks);
+    tasks.clear();
+    tasksToRun.forEach(Runnable::run);
+  }
+
+  private static Rectangle getRectangle() {
+    return new Rectangle(
+        new GpsCoordinates(Direction.S, 1, Direction.W, 1),
+        new GpsCoordinates(Direction.S, 2, Direction.W, 2));
+  }
+
   private void insertAndTestResult(
       List<Parcel> insertedItems, Parcel parcel, DynamicHashFile<Parcel> dynamicHashFile) {
     assertDoesNotThrow(() -> dynamicHashFile.insert(parcel));
@@ -90,6 +1515,7 @@ class DynamicHashFileTest {
     assertThrows(IllegalStateException.class, () -> dynamicHashFile.insert(parcel));
 
     assertEquals(parcel, dynamicHashFile.find(parcel));
+    assertTrue(dynamicHashFile.contains(parcel));
 
     insertedItems.add(parcel);
   }
@@ -109,6 +1535,8 @@ class DynamicHashFileTest {
     dynamicHashFile.delete(parcelToDelete);
 
     assertThrows(IllegalStateException.class, () -> dynamicHashFile.find(parcelToDelete));
+    assertTrue(dynamicHashFile.findOptional(parcelToDelete).isEmpty());
+    assertFalse(dynamicHashFile.contains(parcelToDelete));
     assertThrows(IllegalStateException.class, () -> dynamicHashFile.delete(parcelToDelete));
 
     insertedItems.remove(parcelToDelete);
@@ -0,0 +1,229 @@
+package util.file.dynamichashfile;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import structure.dynamichashfile.trie.InnerTrieNode;
+import structure.dynamichashfile.trie.LeafTrieNode;
+import structure.dynamichashfile.trie.TrieNode;
+import util.file.IFileBuilder;
+
+/**
+ * Saves trie in binary preorder. File starts with header (magic number, version, count of nodes)
+ * followed by node records of fixed size - type of node, address of data, count of records in
+ * main block, count of records in overflow blocks and count of overflow blocks. Values of inner
+ * and missing nodes are zero. Only first item of saved list is used, it has to be root.
+ *
+ * <p>Loaded data contain nodes in preorder without missing ones, root is the first one. Same format
+ * is used for checkpoint of trie stored in main file of DynamicHashFile.
+ */
+public class BinaryBuilderTrie implements IFileBuilder<TrieNode> {
+  private static final int MAGIC = 0x54524945;
+  private static final int VERSION = 1;
+  private static final int HEADER_SIZE = 3 * Integer.BYTES;
+  private static final int NODE_SIZE = Byte.BYTES + Long.BYTES + 3 * Integer.BYTES;
+  private static final byte NULL_NODE = 0;
+  private static final byte INNER_NODE = 1;
+  private static final byte LEAF_NODE = 2;
+  private List<TrieNode> loadedItems;
+
+  public BinaryBuilderTrie() {
+    this.loadedItems = new ArrayList<>();
+  }
+
+  /** Checks, if file was saved by this builder, or it is older text format. */
+  public static boolean isBinaryTrieFile(String pathToFile) throws IOException {
+    try (DataInputStream dataInputStream =
+        new DataInputStream(new FileInputStream(pathToFile))) {
+      return dataInputStream.available() >= HEADER_SIZE && dataInputStream.readInt() == MAGIC;
+    }
+  }
+
+  /** Writes trie with given root from current position of output. */
+  public static void writeTrie(TrieNode root, DataOutput dataOutput) throws IOException {
+    List<TrieNode> nodes = getNodesInPreorder(root);
+
+    dataOutput.writeInt(MAGIC);
+    dataOutput.writeInt(VERSION);
+    dataOutput.writeInt(nodes.size());
+
+    for (TrieNode node : nodes) {
+      if (node instanceof LeafTrieNode leaf) {
+        dataOutput.writeByte(LEAF_NODE);
+        dataOutput.writeLong(leaf.getAddressOfData());
+        dataOutput.writeInt(leaf.getDataSizeInMainBlock());
+        dataOutput.writeInt(leaf.getDataSizeInReserveBlock());
+        dataOutput.writeInt(leaf.getOverflowBlocksCount());
+      } else {
+        dataOutput.writeByte(node == null ? NULL_NODE : INNER_NODE);
+        dataOutput.write(new byte[NODE_SIZE - Byte.BYTES]);
+      }
+    }
+  }
+
+  /**
+   * Reads trie written by {@link #writeTrie(TrieNode, DataOutput)} from current position of data.
+   *
+   * @return root of trie
+   */
+  public static InnerTrieNode readTrie(ByteBuffer data) {
+    return (InnerTrieNode) readNodes(data).get(0);
+  }
+
+  /**
+   * Reads subtree written by {@link #writeTrie(TrieNode, DataOutput)}, its root can be a leaf too.
+   * Depths of nodes start from 0 in its root.
+   */
+  public static TrieNode readSubtree(ByteBuffer data) {
+    return readNodes(data).get(0);
+  }
+
+  @Override
+  public void saveToFile(String pathToFile, List<TrieNode> itemsToSave) throws IOException {
+    if (itemsToSave.isEmpty()) {
+      return;
+    }
+
+    try (DataOutputStream dataOutputStream =
+        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(pathToFile)))) {
+      writeTrie(itemsToSave.get(0), dataOutputStream);
+    }
+  }
+
+  @Override
+  public void loadFromFile(String pathToFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(Path.of(pathToFile), StandardOpenOption.READ)) {
+      MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+      loadedItems.addAll(readNodes(data));
+    }
+  }
+
+  @Override
+  public List<TrieNode> getLoadedData() {
+    return loadedItems;
+  }
+
+  @Override
+  public void clearLoadedData() {
+    loadedItems = new ArrayList<>();
+  }
+
+  private static List<TrieNode> getNodesInPreorder(TrieNode root) {
+    List<TrieNode> nodes = new ArrayList<>();
+
+    Deque<TrieNode> nodesStack = new ArrayDeque<>();
+    nodesStack.push(root);
+
+    while (!nodesStack.isEmpty()) {
+      TrieNode currentNode = nodesStack.pop();
+
+      // missing sons are saved too, so every inner node is followed by exactly two subtrees
+      if (currentNode == NullNode.INSTANCE) {
+        nodes.add(null);
+        continue;
+      }
+      nodes.add(currentNode);
+
+      if (currentNode instanceof InnerTrieNode innerNode) {
+        nodesStack.push(NullNode.replaceNull(innerNode.getRightSon()));
+        nodesStack.push(NullNode.replaceNull(innerNode.getLeftSon()));
+      }
+    }
+
+    return nodes;
+  }
+
+  private static List<TrieNode> readNodes(ByteBuffer data) {
+    if (data.remaining() < HEADER_SIZE || data.getInt() != MAGIC) {
+      throw new IllegalStateException("Data do not contain binary trie!");
+    }
+
+    int version = data.getInt();
+    if (version != VERSION) {
+      throw new IllegalStateException(
+          String.format("Version %d of binary trie is not supported!", version));
+    }
+
+    int nodesCount = data.getInt();
+    if (data.remaining() < (long) nodesCount * NODE_SIZE) {
+      throw new IllegalStateException(
+          String.format("Binary trie is shorter than its %d nodes!", nodesCount));
+    }
+
+    List<TrieNode> nodes = new ArrayList<>(nodesCount);
+    // inner nodes waiting for sons, top one is the last read
+    Deque<InnerTrieNode> parents = new ArrayDeque<>();
+    Deque<Boolean> hasLeftSon = new ArrayDeque<>();
+
+    for (int i = 0; i < nodesCount; i++) {
+      TrieNode node = readNode(data);
+
+      if (i > 0) {
+        if (parents.isEmpty()) {
+          throw new IllegalStateException(
+              String.format("Node %d of trie does not have parent!", i));
+        }
+
+        InnerTrieNode parent = parents.peek();
+        if (!hasLeftSon.pop()) {
+          parent.setLeftSon(node);
+          hasLeftSon.push(true);
+        } else {
+          parent.setRightSon(node);
+          parents.pop();
+        }
+      }
+
+      if (node != null) {
+        nodes.add(node);
+      }
+
+      if (node instanceof InnerTrieNode innerNode) {
+        parents.push(innerNode);
+        hasLeftSon.push(false);
+      }
+    }
+
+    return nodes;
+  }
+
+  private static TrieNode readNode(ByteBuffer data) {
+    byte type = data.get();
+
+    if (type == LEAF_NODE) {
+      return new LeafTrieNode()
+          .setAddressOfData(data.getLong())
+          .setDataSizeInMainBlock(data.getInt())
+          .setDataSizeInReserveBlocks(data.getInt())
+          .setOverflowBlocksCount(data.getInt());
+    }
+
+    data.position(data.position() + NODE_SIZE - Byte.BYTES);
+
+    if (type == INNER_NODE) {
+      return new InnerTrieNode();
+    }
+    if (type == NULL_NODE) {
+      return null;
+    }
+
+    throw new IllegalStateException(String.format("Unknown type %d of trie node!", type));
+  }
+
+  /** Placeholder of missing son on the stack of saved nodes. */
+  private static class NullNode extends TrieNode {
+    private static final NullNode INSTANCE = new NullNode();
+
+    private static TrieNode replaceNull(TrieNode node) {
+      return node == null ? INSTANCE : node;
+    }
+  }
+}
@@ -1,5 +1,6 @@
 package util.file.dynamichashfile;
 
+import structure.dynamichashfile.constant.IndexType;
 import structure.dynamichashfile.entity.record.Record;
 
 public record DynamicHashFileInfo(
@@ -7,4 +8,6 @@ public record DynamicHashFileInfo(
     int blockingFactorOfOverflowFile,
     Class<? extends Record> tClass,
     String pathToMainFile,
-    String pathToOverflowFile) {}
+    String pathToOverflowFile,
+    IndexType indexType,
+    int maxDirectoryDepth) {}
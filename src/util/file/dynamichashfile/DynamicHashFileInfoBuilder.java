@@ -3,6 +3,8 @@ package util.file.dynamichashfile;
 import java.io.*;
 import java.util.ArrayList;
 import java.util.List;
+import structure.dynamichashfile.DynamicHashFileConfiguration;
+import structure.dynamichashfile.constant.IndexType;
 import structure.dynamichashfile.entity.record.Record;
 import util.file.IFileBuilder;
 
@@ -29,6 +31,10 @@ public class DynamicHashFileInfoBuilder implements IFileBuilder<DynamicHashFileI
       sb.append(dynamicHashFileInfo.pathToMainFile());
       sb.append(DELIMITER);
       sb.append(dynamicHashFileInfo.pathToOverflowFile());
+      sb.append(DELIMITER);
+      sb.append(dynamicHashFileInfo.indexType());
+      sb.append(DELIMITER);
+      sb.append(dynamicHashFileInfo.maxDirectoryDepth());
       sb.append(System.lineSeparator());
     }
 
@@ -55,6 +61,12 @@ public class DynamicHashFileInfoBuilder implements IFileBuilder<DynamicHashFileI
         Class<?> tClass = Class.forName(data[2]);
         String pathToMainFile = data[3];
         String pathToOverflowFile = data[4];
+        // files saved before directory mode have only trie
+        IndexType indexType = data.length > 5 ? IndexType.valueOf(data[5]) : IndexType.TRIE;
+        int maxDirectoryDepth =
+            data.length > 6
+                ? Integer.parseInt(data[6])
+                : DynamicHashFileConfiguration.DEFAULT_MAX_DIRECTORY_DEPTH;
 
         loadedItems.add(
             new DynamicHashFileInfo(
@@ -62,7 +74,9 @@ public class DynamicHashFileInfoBuilder implements IFileBuilder<DynamicHashFileI
                 blockingFactorOfOverflowFile,
                 (Class<? extends Record>) tClass,
                 pathToMainFile,
-                pathToOverflowFile));
+                pathToOverflowFile,
+                indexType,
+                maxDirectoryDepth));
       }
     } catch (ClassNotFoundException e) {
       throw new RuntimeException(e);
@@ -77,10 +77,11 @@ public class TextBuilderTrie<T extends TrieNode> implements IFileBuilder<T> {
 
         Class<?> classToCreate = Class.forName(className);
 
-        Object createdObject = classToCreate.getConstructors()[0].newInstance();
+        // order of constructors is not specified, nodes are created by the one without parameters
+        Object createdObject = classToCreate.getConstructor().newInstance();
 
         if (createdObject instanceof LeafTrieNode) {
-          int addressOfData = Integer.parseInt(data[1]);
+          long addressOfData = Long.parseLong(data[1]);
           int dataSizeInMainBlock = Integer.parseInt(data[2]);
           int dataSizeInReserveBlock = Integer.parseInt(data[3]);
           int overflowBlocksCount = Integer.parseInt(data[4]);
@@ -131,6 +132,7 @@ public class TextBuilderTrie<T extends TrieNode> implements IFileBuilder<T> {
       }
 
     } catch (ClassNotFoundException
+        | NoSuchMethodException
         | InvocationTargetException
         | InstantiationException
         | IllegalAccessException e) {